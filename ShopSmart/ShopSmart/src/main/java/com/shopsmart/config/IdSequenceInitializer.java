@@ -0,0 +1,57 @@
+package com.shopsmart.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aligns the pooled id sequences with rows that were inserted while the tables still used
+ * AUTO_INCREMENT ids.
+ *
+ * MySQL has no sequences, so Hibernate emulates each {@code @SequenceGenerator} with a one-row
+ * {@code <name>_seq} table. The pooled optimizer treats the stored value as the top of the next
+ * block of ALLOCATION_SIZE ids, so the value must be at least {@code MAX(id) + ALLOCATION_SIZE}
+ * or the first block would overlap existing ids. Runs after schema update and before the web
+ * server accepts requests.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer {
+
+    // Must match allocationSize on the entities' @SequenceGenerator
+    public static final int ALLOCATION_SIZE = 50;
+
+    // sequence table -> { table, id column }
+    private static final Map<String, String[]> SEQUENCES = new LinkedHashMap<>();
+
+    static {
+        SEQUENCES.put("product_seq", new String[] { "product", "product_id" });
+        SEQUENCES.put("customer_order_seq", new String[] { "customer_order", "order_id" });
+        SEQUENCES.put("order_item_seq", new String[] { "order_item", "order_item_id" });
+        SEQUENCES.put("carts_seq", new String[] { "carts", "id" });
+        SEQUENCES.put("cart_items_seq", new String[] { "cart_items", "id" });
+        SEQUENCES.put("payments_seq", new String[] { "payments", "id" });
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        for (Map.Entry<String, String[]> entry : SEQUENCES.entrySet()) {
+            String sequenceTable = entry.getKey();
+            String table = entry.getValue()[0];
+            String idColumn = entry.getValue()[1];
+            // GREATEST keeps the sequence untouched once it is already ahead of the table
+            jdbcTemplate.update("UPDATE " + sequenceTable + " SET next_val = GREATEST(next_val, "
+                    + "(SELECT COALESCE(MAX(" + idColumn + "), 0) + " + ALLOCATION_SIZE + " FROM " + table + "))");
+        }
+    }
+}
@@ -1,51 +1,114 @@
 package com.shopsmart.config;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shopsmart.dto.OrderDTO;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * The one producer/consumer set for {@code shop-smart-orders}. Values are OrderDTO JSON written
+ * and read with the application's ObjectMapper; the type is fixed here rather than taken from
+ * message headers. The listener factory is the default one, so {@code @KafkaListener}s get
+ * batches and {@code concurrency} consumers (one per partition by default).
+ */
 @EnableKafka
 @Configuration
 public class KafkaConfig {
 
-    public static final String TOPIC_ORDERS = "shop-smart-orders";
+    private final ObjectMapper objectMapper;
+    private final String bootstrapServers;
+    private final int partitions;
+    private final int concurrency;
+    private final int maxPollRecords;
+    private final long retryBackoffMillis;
+    private final long retryAttempts;
+    private final String acks;
+    private final boolean idempotence;
+    private final int lingerMillis;
+    private final int batchSize;
+    private final String compressionType;
 
+    public KafkaConfig(ObjectMapper objectMapper,
+                       @Value("${spring.kafka.bootstrap-servers:" + KafkaConstants.HOST + "}") String bootstrapServers,
+                       @Value("${shopsmart.kafka.orders.partitions:3}") int partitions,
+                       @Value("${shopsmart.kafka.orders.concurrency:${shopsmart.kafka.orders.partitions:3}}") int concurrency,
+                       @Value("${shopsmart.kafka.orders.max-poll-records:100}") int maxPollRecords,
+                       @Value("${shopsmart.kafka.orders.retry-backoff-ms:1000}") long retryBackoffMillis,
+                       @Value("${shopsmart.kafka.orders.retry-attempts:3}") long retryAttempts,
+                       @Value("${shopsmart.kafka.producer.acks:all}") String acks,
+                       @Value("${shopsmart.kafka.producer.idempotence:true}") boolean idempotence,
+                       @Value("${shopsmart.kafka.producer.linger-ms:5}") int lingerMillis,
+                       @Value("${shopsmart.kafka.producer.batch-size:65536}") int batchSize,
+                       @Value("${shopsmart.kafka.producer.compression-type:lz4}") String compressionType) {
+        // Producers may be a release ahead of consumers; a new field must not make a command unreadable
+        this.objectMapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.bootstrapServers = bootstrapServers;
+        this.partitions = partitions;
+        this.concurrency = concurrency;
+        this.maxPollRecords = maxPollRecords;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.retryAttempts = retryAttempts;
+        this.acks = acks;
+        this.idempotence = idempotence;
+        this.lingerMillis = lingerMillis;
+        this.batchSize = batchSize;
+        this.compressionType = compressionType;
+    }
+
+    /**
+     * Batches sends for up to {@code linger-ms} or {@code batch-size} bytes per partition and
+     * compresses whole batches. With idempotence the broker drops the duplicates a retried batch
+     * would otherwise leave, and keeps each partition in send order across retries.
+     */
     @Bean
-    public ProducerFactory<String, OrderDTO> producerFactory() {
-        Map<String, Object> config = new HashMap<>();
-        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
-        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(config);
+    public ProducerFactory<String, OrderDTO> orderProducerFactory() {
+        return new DefaultKafkaProducerFactory<>(producerConfig(), new StringSerializer(),
+                new JsonSerializer<OrderDTO>(objectMapper).noTypeInfo());
     }
 
     @Bean
-    public KafkaTemplate<String, OrderDTO> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, OrderDTO> orderKafkaTemplate() {
+        return new KafkaTemplate<>(orderProducerFactory());
     }
 
+    // Sends the original bytes of order messages that could not be deserialized to the DLT
     @Bean
-    public ConsumerFactory<String, OrderDTO> consumerFactory() {
-        JsonDeserializer<OrderDTO> deserializer = new JsonDeserializer<>(OrderDTO.class);
-        deserializer.addTrustedPackages("*");
+    public KafkaTemplate<String, byte[]> orderRawKafkaTemplate() {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerConfig(), new StringSerializer(),
+                new ByteArraySerializer()));
+    }
+
+    @Bean
+    public ConsumerFactory<String, OrderDTO> orderConsumerFactory() {
+        // Unreadable values arrive as null instead of failing the poll over and over
+        ErrorHandlingDeserializer<OrderDTO> deserializer =
+                new ErrorHandlingDeserializer<>(new JsonDeserializer<>(OrderDTO.class, objectMapper, false));
         Map<String, Object> config = new HashMap<>();
-        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
-        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, deserializer);
-        config.put(ConsumerConfig.GROUP_ID_CONFIG, "shop-smart-orders-group");
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, KafkaConstants.GROUP_ORDERS);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
         return new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(), deserializer);
     }
 
@@ -53,13 +116,56 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, OrderDTO> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, OrderDTO> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(orderConsumerFactory());
+        factory.setBatchListener(true);
+        // More consumers than partitions would sit idle
+        factory.setConcurrency(Math.min(concurrency, partitions));
+        // Failed records are moved to the retry topic by the listener. Only if that move fails does
+        // it throw BatchListenerFailedException: the records before the failed one are committed and
+        // the rest retried in place; after the last attempt the record is published to the DLT.
+        // Undeserializable records are thrown the same way and go to the DLT at once, as raw bytes
+        factory.setCommonErrorHandler(new DefaultErrorHandler(orderDeadLetterRecoverer(),
+                new FixedBackOff(retryBackoffMillis, retryAttempts)));
         return factory;
     }
 
+    // Partition -1 lets the producer pick by key, as the DLT need not match the source's partitions
+    private DeadLetterPublishingRecoverer orderDeadLetterRecoverer() {
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, orderRawKafkaTemplate());
+        templates.put(OrderDTO.class, orderKafkaTemplate());
+        return new DeadLetterPublishingRecoverer(templates,
+                (record, ex) -> new TopicPartition(KafkaConstants.TOPIC_ORDERS_DLT, -1));
+    }
+
+    /**
+     * One record at a time, for the retry, backoff and dead-letter topics. Delays there pause only
+     * the waiting partition, and the retry topic machinery installs its own error handler.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, OrderDTO> orderRetryListenerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, OrderDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(orderConsumerFactory());
+        factory.setConcurrency(Math.min(concurrency, partitions));
+        return factory;
+    }
+
+    private Map<String, Object> producerConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        // Idempotence needs acks=all; the client refuses to start otherwise
+        config.put(ProducerConfig.ACKS_CONFIG, idempotence ? "all" : acks);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, idempotence);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMillis);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        return config;
+    }
+
     // Automatically creates the topic if not already existing
     @Bean
     public NewTopic createOrdersTopic() {
-        return new NewTopic(TOPIC_ORDERS, 3, (short) 1);
+        return new NewTopic(KafkaConstants.TOPIC_ORDERS, partitions, (short) 1);
     }
 }
@@ -8,7 +8,17 @@ public class KafkaConstants {
     // Topic
     public static final String TOPIC_ORDERS = "shop-smart-orders";
 
+    // Failed order messages; backoff topics (-backoff-0, -backoff-1, ...) and the DLT hang off it
+    public static final String TOPIC_ORDERS_RETRY = "shop-smart-orders-retry";
+
+    public static final String TOPIC_ORDERS_DLT = TOPIC_ORDERS_RETRY + "-dlt";
+
     // Consumer Group
     public static final String GROUP_ORDERS = "shop-smart-orders-group";
 
+    public static final String GROUP_ORDERS_RETRY = "shop-smart-orders-retry-group";
+
+    // Position of the admin replay in the DLT
+    public static final String GROUP_ORDERS_DLT_REPLAY = "shop-smart-orders-dlt-replay";
+
 }
\ No newline at end of file
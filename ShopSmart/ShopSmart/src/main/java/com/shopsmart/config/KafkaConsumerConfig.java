@@ -1,44 +0,0 @@
-package com.shopsmart.config;
-
-import com.shopsmart.dto.OrderDTO;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.common.serialization.StringDeserializer;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.kafka.annotation.EnableKafka;
-import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
-import org.springframework.kafka.core.ConsumerFactory;
-import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
-
-import java.util.HashMap;
-import java.util.Map;
-
-@EnableKafka
-@Configuration
-public class KafkaConsumerConfig {
-
-    // ConsumerFactory for OrderDTO messages
-    @Bean
-    public ConsumerFactory<String, OrderDTO> orderConsumerFactory() {
-        JsonDeserializer<OrderDTO> deserializer = new JsonDeserializer<>(OrderDTO.class);
-        deserializer.addTrustedPackages("*"); // Trust all packages
-
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, KafkaConstants.HOST);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, KafkaConstants.GROUP_ORDERS);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, deserializer);
-
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), deserializer);
-    }
-
-    // Listener Container Factory for OrderDTO
-    @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, OrderDTO> orderKafkaListenerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, OrderDTO> factory =
-                new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(orderConsumerFactory());
-        return factory;
-    }
-}
\ No newline at end of file
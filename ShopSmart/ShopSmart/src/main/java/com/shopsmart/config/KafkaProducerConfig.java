@@ -1,34 +0,0 @@
-package com.shopsmart.config;
-
-import com.shopsmart.dto.OrderDTO;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.StringSerializer;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.kafka.core.DefaultKafkaProducerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
-
-import java.util.HashMap;
-import java.util.Map;
-
-@Configuration
-public class KafkaProducerConfig {
-
-    // ProducerFactory for OrderDTO
-    @Bean
-    public ProducerFactory<String, OrderDTO> orderProducerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, KafkaConstants.HOST);
-        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(props);
-    }
-
-    // KafkaTemplate for sending OrderDTO
-    @Bean
-    public KafkaTemplate<String, OrderDTO> orderKafkaTemplate() {
-        return new KafkaTemplate<>(orderProducerFactory());
-    }
-}
\ No newline at end of file
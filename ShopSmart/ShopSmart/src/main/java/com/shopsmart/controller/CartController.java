@@ -2,9 +2,6 @@ package com.shopsmart.controller;
 
 import com.shopsmart.dto.CartDTO;
 import com.shopsmart.dto.CartItemDTO;
-import com.shopsmart.dto.ProductDTO;
-import com.shopsmart.entity.Cart;
-import com.shopsmart.entity.CartItem;
 import com.shopsmart.service.CartService;
 import com.shopsmart.service.CustomerService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,11 +12,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/carts")
@@ -42,8 +35,8 @@ public class CartController {
     @GetMapping("/customer/{customerId}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or #customerId == @cartController.getAuthenticatedCustomerId()")
     public ResponseEntity<CartDTO> getCartByCustomerId(@PathVariable Long customerId) {
-        Cart cart = cartService.getOrCreateCart(customerId);
-        return new ResponseEntity<>(mapCartToDTO(cart), HttpStatus.OK);
+        CartDTO cart = cartService.getCartByCustomerId(customerId);
+        return new ResponseEntity<>(cart, HttpStatus.OK);
     }
 
     @PostMapping("/customer/{customerId}/items")
@@ -56,6 +49,16 @@ public class CartController {
         return new ResponseEntity<>(updatedCart, HttpStatus.OK);
     }
 
+    // Several lines at once; each item's quantity is a change (negative to take units out)
+    @PostMapping("/customer/{customerId}/items/batch")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or #customerId == @cartController.getAuthenticatedCustomerId()")
+    public ResponseEntity<CartDTO> applyCartChanges(
+            @PathVariable Long customerId,
+            @RequestBody List<CartItemDTO> changes) {
+        CartDTO updatedCart = cartService.applyCartChanges(customerId, changes);
+        return new ResponseEntity<>(updatedCart, HttpStatus.OK);
+    }
+
     @PutMapping("/customer/{customerId}/items/{productId}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or #customerId == @cartController.getAuthenticatedCustomerId()")
     public ResponseEntity<CartDTO> updateProductQuantityInCart(
@@ -88,58 +91,4 @@ public class CartController {
         CartDTO cart = cartService.getCartById(cartId);
         return new ResponseEntity<>(cart, HttpStatus.OK);
     }
-
-    // Helper method to map Cart entity to CartDTO
- // Inside your CartController.java
- // Helper method to map Cart entity to CartDTO
- private CartDTO mapCartToDTO(Cart cart) {
-     CartDTO cartDTO = new CartDTO();
-     cartDTO.setId(cart.getId());
-     cartDTO.setCustomerId(cart.getCustomer() != null ? cart.getCustomer().getId() : null);
-     cartDTO.setCreatedAt(cart.getCreatedAt());
-     cartDTO.setUpdatedAt(cart.getUpdatedAt());
-
-     // ADDED THIS LINE: Now mapping totalPrice from the entity to the DTO
-     cartDTO.setTotalPrice(cart.getTotalPrice());
-
-     cartDTO.setTotalAmount(cart.getTotalAmount());
-     cartDTO.setCouponCode(cart.getCouponCode());
-     cartDTO.setDiscountAmount(cart.getDiscountAmount());
-
-     if (cart.getCartItems() != null && !cart.getCartItems().isEmpty()) {
-         cartDTO.setCartItems(
-                 cart.getCartItems().stream().map(this::mapCartItemToDTO).collect(Collectors.toList()));
-     } else {
-         cartDTO.setCartItems(new ArrayList<>());
-     }
-     return cartDTO;
- }
-
-
-    // Helper method to map CartItem entity to CartItemDTO
-    private CartItemDTO mapCartItemToDTO(CartItem cartItem) {
-        CartItemDTO cartItemDTO = new CartItemDTO();
-        cartItemDTO.setId(cartItem.getId());
-        cartItemDTO.setProductId(cartItem.getProduct() != null ? cartItem.getProduct().getId() : null);
-        cartItemDTO.setQuantity(cartItem.getQuantity());
-        cartItemDTO.setPrice(cartItem.getPrice());
-
-        ProductDTO productDTO = new ProductDTO();
-        if (cartItem.getProduct() != null) {
-            productDTO.setId(cartItem.getProduct().getId());
-            productDTO.setName(cartItem.getProduct().getName());
-            productDTO.setPrice(cartItem.getProduct().getPrice());
-            productDTO.setImages(cartItem.getProduct().getImages());
-            productDTO.setDescription(cartItem.getProduct().getDescription());
-            productDTO.setStockQuantity(cartItem.getProduct().getStockQuantity());
-
-            if (cartItem.getProduct().getCategory() != null) {
-                productDTO.setCategoryId(cartItem.getProduct().getCategory().getId());
-                productDTO.setCategoryName(cartItem.getProduct().getCategory().getName());
-            }
-        }
-        cartItemDTO.setProductDetails(productDTO);
-
-        return cartItemDTO;
-    }
 }
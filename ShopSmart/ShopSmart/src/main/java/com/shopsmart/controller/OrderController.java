@@ -1,6 +1,7 @@
 package com.shopsmart.controller;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,19 +11,22 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import com.shopsmart.config.KafkaConstants;
 import com.shopsmart.config.SecurityConstants;
 import com.shopsmart.dto.OrderDTO;
+import com.shopsmart.dto.OrderPlacementStatusDTO;
 import com.shopsmart.dto.UserDTO;
 import com.shopsmart.exception.ResourceNotFoundException;
 import com.shopsmart.service.CustomerService;
+import com.shopsmart.service.OrderDeadLetterService;
+import com.shopsmart.service.OrderPlacementService;
+import com.shopsmart.service.OrderProducerService;
 import com.shopsmart.service.OrderService;
 import com.shopsmart.service.UserService;
 
@@ -41,7 +45,13 @@ public class OrderController {
     private UserService userService;
 
     @Autowired
-    private KafkaTemplate<String, OrderDTO> orderKafkaTemplate;
+    private OrderProducerService orderProducerService;
+
+    @Autowired
+    private OrderPlacementService orderPlacementService;
+
+    @Autowired
+    private OrderDeadLetterService orderDeadLetterService;
 
     /**
      * Helper: Get authenticated customer ID
@@ -111,7 +121,7 @@ public class OrderController {
             }
 
             // ✅ Publish order event to Kafka
-            orderKafkaTemplate.send(KafkaConstants.TOPIC_ORDERS, createdOrder);
+            orderProducerService.sendOrderEvent(createdOrder);
 
             // ✅ Proper JSON response with orderId
             response.put("success", true);
@@ -129,6 +139,73 @@ public class OrderController {
         }
     }
 
+    /**
+     * Queue an order from cart (Customer only) -> 202 with a tracking id; the Kafka consumer places it.
+     * Resending with the same Idempotency-Key returns the first request's status instead of a second order.
+     */
+    @PostMapping("/from-cart/{customerId}/async")
+    @PreAuthorize("hasAuthority('" + SecurityConstants.ROLE_CUSTOMER + "') and #customerId == @orderController.getAuthenticatedCustomerId()")
+    public ResponseEntity<OrderPlacementStatusDTO> submitOrderFromCart(
+            @PathVariable Long customerId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        OrderPlacementStatusDTO placement = orderPlacementService.submit(customerId, idempotencyKey);
+        URI statusUri = UriComponentsBuilder.fromPath("/api/orders/placements/{trackingId}")
+                .buildAndExpand(placement.getTrackingId())
+                .encode()
+                .toUri();
+        return ResponseEntity.accepted().location(statusUri).body(placement);
+    }
+
+    /**
+     * Status of a queued order (Admin or Owner): PENDING, COMPLETED with the order id, or FAILED with the reason
+     */
+    @GetMapping("/placements/{trackingId}")
+    @PreAuthorize("hasAuthority('" + SecurityConstants.ROLE_ADMIN + "') or (@orderController.getAuthenticatedCustomerId() == @orderController.getCustomerIdByTrackingId(#trackingId))")
+    public ResponseEntity<OrderPlacementStatusDTO> getOrderPlacementStatus(@PathVariable String trackingId) {
+        return ResponseEntity.ok(orderPlacementService.getStatus(trackingId));
+    }
+
+    /**
+     * Helper: Get customerId from a queued order
+     */
+    public Long getCustomerIdByTrackingId(String trackingId) {
+        return orderPlacementService.getStatus(trackingId).getCustomerId();
+    }
+
+    /**
+     * Order messages parked on the dead-letter topic and not replayed yet (Admin only)
+     */
+    @GetMapping("/dead-letters")
+    @PreAuthorize("hasAuthority('" + SecurityConstants.ROLE_ADMIN + "')")
+    public ResponseEntity<List<Map<String, Object>>> getDeadLetters(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(orderDeadLetterService.peek(checkDeadLetterLimit(limit)));
+    }
+
+    /**
+     * Send up to {limit} dead-lettered order messages back through the order topic (Admin only)
+     */
+    @PostMapping("/dead-letters/replay")
+    @PreAuthorize("hasAuthority('" + SecurityConstants.ROLE_ADMIN + "')")
+    public ResponseEntity<Map<String, Object>> replayDeadLetters(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(orderDeadLetterService.replay(checkDeadLetterLimit(limit)));
+    }
+
+    /**
+     * Order producer counters and Kafka client metrics: send rate, batch size, compression, bytes out (Admin only)
+     */
+    @GetMapping("/producer-stats")
+    @PreAuthorize("hasAuthority('" + SecurityConstants.ROLE_ADMIN + "')")
+    public ResponseEntity<Map<String, Object>> getProducerStats() {
+        return ResponseEntity.ok(orderProducerService.getStats());
+    }
+
+    private static int checkDeadLetterLimit(int limit) {
+        if (limit < 1 || limit > 1000) {
+            throw new IllegalArgumentException("limit must be between 1 and 1000.");
+        }
+        return limit;
+    }
+
     /**
      * Delete order (Admin only)
      */
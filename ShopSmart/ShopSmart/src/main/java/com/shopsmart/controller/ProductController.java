@@ -3,7 +3,11 @@ package com.shopsmart.controller;
 
 import com.shopsmart.dto.BulkUploadResultDTO;
 import com.shopsmart.dto.ProductDTO;
+import com.shopsmart.dto.ProductPageDTO;
+import com.shopsmart.service.HotInventoryService;
+import com.shopsmart.service.ProductCacheService;
 import com.shopsmart.service.ProductService;
+import com.shopsmart.service.StockReservationService;
 import com.shopsmart.util.CsvHelper;
 
 import jakarta.validation.Valid;
@@ -17,7 +21,9 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -27,12 +33,73 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private HotInventoryService hotInventoryService;
+
     @GetMapping
     public ResponseEntity<List<ProductDTO>> getAllProducts() {
         List<ProductDTO> products = productService.getAllProducts();
         return new ResponseEntity<>(products, HttpStatus.OK);
     }
 
+    // Cursor mode: GET /api/products?limit=20&after=<lastSeenId>&categoryId=&minPrice=&maxPrice=&inStock=
+    @GetMapping(params = "limit")
+    public ResponseEntity<ProductPageDTO> getProductsPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam Integer limit,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean inStock) {
+        ProductPageDTO page = productService.getProductsPage(after, limit, categoryId, minPrice, maxPrice, inStock);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return new ResponseEntity<>(productCacheService.getStats(), HttpStatus.OK);
+    }
+
+    // Stock minus active cart reservations; uncached, unlike the product itself
+    @GetMapping("/availability")
+    public ResponseEntity<Map<Long, Long>> getAvailability(@RequestParam List<Long> ids) {
+        return new ResponseEntity<>(stockReservationService.getAvailable(ids), HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<Map<String, Long>> getAvailability(@PathVariable Long id) {
+        return new ResponseEntity<>(Map.of("productId", id, "available", stockReservationService.getAvailable(id)),
+                HttpStatus.OK);
+    }
+
+    // Hot-SKU mode for flash sales: cart holds come from an in-memory pool instead of the product row
+    @GetMapping("/hot")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getHotProducts() {
+        return new ResponseEntity<>(hotInventoryService.getStatus(), HttpStatus.OK);
+    }
+
+    @PutMapping("/{id}/hot")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Void> enableHotMode(@PathVariable Long id) {
+        hotInventoryService.enable(id);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @DeleteMapping("/{id}/hot")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Void> disableHotMode(@PathVariable Long id) {
+        hotInventoryService.disable(id);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
         ProductDTO product = productService.getProductById(id);
@@ -1,26 +1,85 @@
 package com.shopsmart.controller;
 
 import com.shopsmart.document.ProductDocument;
+import com.shopsmart.dto.ProductSearchResultDTO;
+import com.shopsmart.service.ProductIndexingService;
 import com.shopsmart.service.ProductSearchService;
+import com.shopsmart.service.ProductSuggestService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/search")
 public class SearchController {
 
     private final ProductSearchService productSearchService;
+    private final ProductIndexingService productIndexingService;
+    private final ProductSuggestService productSuggestService;
 
-    public SearchController(ProductSearchService productSearchService) {
+    public SearchController(ProductSearchService productSearchService, ProductIndexingService productIndexingService,
+                            ProductSuggestService productSuggestService) {
         this.productSearchService = productSearchService;
+        this.productIndexingService = productIndexingService;
+        this.productSuggestService = productSuggestService;
     }
 
     @GetMapping("/products")
     public List<ProductDocument> searchProducts(@RequestParam(name = "q") String query) {
         return productSearchService.searchProducts(query);
     }
-}
\ No newline at end of file
+
+    @GetMapping
+    public ProductSearchResultDTO search(@RequestParam(name = "q", required = false) String query,
+                                         @RequestParam(required = false) Long categoryId,
+                                         @RequestParam(required = false) BigDecimal minPrice,
+                                         @RequestParam(required = false) BigDecimal maxPrice,
+                                         @RequestParam(required = false) Boolean inStock,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(required = false) Integer limit) {
+        return productSearchService.search(query, categoryId, minPrice, maxPrice, inStock, after, limit);
+    }
+
+    @GetMapping("/suggest")
+    public List<String> suggest(@RequestParam(name = "q") String prefix,
+                                @RequestParam(required = false) Integer limit) {
+        return productSuggestService.suggest(prefix, limit);
+    }
+
+    @GetMapping("/health")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getSearchHealth() {
+        return new ResponseEntity<>(productSearchService.getHealth(), HttpStatus.OK);
+    }
+
+    @PostMapping("/reindex")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> startReindex(@RequestParam(defaultValue = "false") boolean force) {
+        boolean started = productIndexingService.startReindex(force);
+        return new ResponseEntity<>(productIndexingService.getReindexProgress(),
+                started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT);
+    }
+
+    @PostMapping("/reindex/rebuild")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> startRebuild() {
+        boolean started = productIndexingService.startRebuild();
+        return new ResponseEntity<>(productIndexingService.getReindexProgress(),
+                started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT);
+    }
+
+    @GetMapping("/reindex/status")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getReindexStatus() {
+        return new ResponseEntity<>(productIndexingService.getReindexProgress(), HttpStatus.OK);
+    }
+}
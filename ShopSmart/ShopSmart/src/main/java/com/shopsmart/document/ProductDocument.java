@@ -1,16 +1,17 @@
 package com.shopsmart.document;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.CompletionField;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
-import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
 
 import java.math.BigDecimal;
 import java.util.List;
 
-@Document(indexName = "products")
-@Setting(shards = 1, replicas = 0)
+// "products" is an alias over products_v{n}; ProductIndexingService creates the versioned indices
+@Document(indexName = "products", createIndex = false)
 public class ProductDocument {
 
     @Id
@@ -37,6 +38,10 @@ public class ProductDocument {
     @Field(type = FieldType.Keyword, name = "tags")
     private List<String> tags;
 
+    // Typeahead inputs: product name and category name
+    @CompletionField(maxInputLength = 100)
+    private Completion suggest;
+
     // Constructors, Getters, and Setters
     public ProductDocument() {}
 
@@ -116,6 +121,14 @@ public class ProductDocument {
         this.tags = tags;
     }
 
+    public Completion getSuggest() {
+        return suggest;
+    }
+
+    public void setSuggest(Completion suggest) {
+        this.suggest = suggest;
+    }
+
     @Override
     public String toString() {
         return "ProductDocument{" +
@@ -5,6 +5,8 @@ public class BulkUploadResultDTO {
     private int addedCount;
     private int skippedCount;
     private String message;
+    private long elapsedMillis;
+    private double rowsPerSecond;
 
     public BulkUploadResultDTO() {
         super();
@@ -48,6 +50,22 @@ public class BulkUploadResultDTO {
 	public void setMessage(String message) {
 		this.message = message;
 	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public double getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	public void setRowsPerSecond(double rowsPerSecond) {
+		this.rowsPerSecond = rowsPerSecond;
+	}
     
 
 
@@ -20,6 +20,9 @@ public class OrderDTO {
 	private String couponCode;
     private BigDecimal discountAmount;
 
+    // Set only on placement commands sent to Kafka; the consumer dedupes on it
+    private String idempotencyKey;
+
     public OrderDTO() {
     	super();
     }
@@ -114,6 +117,16 @@ public class OrderDTO {
 	public void setDiscountAmount(BigDecimal discountAmount) {
 		this.discountAmount = discountAmount;
 	}
+
+
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+
+	public void setIdempotencyKey(String idempotencyKey) {
+		this.idempotencyKey = idempotencyKey;
+	}
     
     
     
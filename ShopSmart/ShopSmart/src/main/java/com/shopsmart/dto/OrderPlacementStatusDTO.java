@@ -0,0 +1,84 @@
+package com.shopsmart.dto;
+
+import java.time.Instant;
+
+public class OrderPlacementStatusDTO {
+
+    private String trackingId;
+    private Long customerId;
+    private String status;
+    private Long orderId;
+    private String error;
+    private Instant createdAt;
+    private Instant completedAt;
+
+    public OrderPlacementStatusDTO() {
+    }
+
+    public OrderPlacementStatusDTO(String trackingId, Long customerId, String status, Long orderId, String error,
+                                   Instant createdAt, Instant completedAt) {
+        this.trackingId = trackingId;
+        this.customerId = customerId;
+        this.status = status;
+        this.orderId = orderId;
+        this.error = error;
+        this.createdAt = createdAt;
+        this.completedAt = completedAt;
+    }
+
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    public void setTrackingId(String trackingId) {
+        this.trackingId = trackingId;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+}
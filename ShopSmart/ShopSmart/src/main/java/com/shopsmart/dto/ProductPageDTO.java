@@ -0,0 +1,58 @@
+package com.shopsmart.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (cursor) paginated product listing.
+ * Pass {@code nextCursor} back as {@code after} to fetch the following page.
+ */
+public class ProductPageDTO {
+
+    private List<ProductDTO> content;
+    private Long nextCursor;
+    private boolean hasMore;
+    private int limit;
+
+    public ProductPageDTO() {
+        super();
+    }
+
+    public ProductPageDTO(List<ProductDTO> content, Long nextCursor, boolean hasMore, int limit) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.limit = limit;
+    }
+
+    public List<ProductDTO> getContent() {
+        return content;
+    }
+
+    public void setContent(List<ProductDTO> content) {
+        this.content = content;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,89 @@
+package com.shopsmart.dto;
+
+import java.util.List;
+
+/**
+ * One page of ranked product search results, hydrated to complete products, with facet
+ * counts for the whole match set.
+ * Pass {@code nextCursor} back as {@code after} to fetch the following page.
+ */
+public class ProductSearchResultDTO {
+
+    private List<ProductDTO> content;
+    private long totalHits;
+    private String nextCursor;
+    private boolean hasMore;
+    private int limit;
+    private List<SearchFacetBucketDTO> categoryFacets;
+    private List<SearchFacetBucketDTO> priceFacets;
+    // True when served by the local fallback index because Elasticsearch was unavailable
+    private boolean degraded;
+
+    public ProductSearchResultDTO() {
+        super();
+    }
+
+    public List<ProductDTO> getContent() {
+        return content;
+    }
+
+    public void setContent(List<ProductDTO> content) {
+        this.content = content;
+    }
+
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    public void setTotalHits(long totalHits) {
+        this.totalHits = totalHits;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public List<SearchFacetBucketDTO> getCategoryFacets() {
+        return categoryFacets;
+    }
+
+    public void setCategoryFacets(List<SearchFacetBucketDTO> categoryFacets) {
+        this.categoryFacets = categoryFacets;
+    }
+
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    public void setDegraded(boolean degraded) {
+        this.degraded = degraded;
+    }
+
+    public List<SearchFacetBucketDTO> getPriceFacets() {
+        return priceFacets;
+    }
+
+    public void setPriceFacets(List<SearchFacetBucketDTO> priceFacets) {
+        this.priceFacets = priceFacets;
+    }
+}
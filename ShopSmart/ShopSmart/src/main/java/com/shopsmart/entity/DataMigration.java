@@ -0,0 +1,44 @@
+package com.shopsmart.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * A one-time data migration that has run against this database. Services insert the row in the
+ * same transaction as the migration itself (INSERT IGNORE), so it runs exactly once even when
+ * several instances start together.
+ */
+@Entity
+@Table(name = "data_migration")
+public class DataMigration {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "applied_at", nullable = false)
+    private Instant appliedAt;
+
+    public DataMigration() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Instant getAppliedAt() {
+        return appliedAt;
+    }
+
+    public void setAppliedAt(Instant appliedAt) {
+        this.appliedAt = appliedAt;
+    }
+}
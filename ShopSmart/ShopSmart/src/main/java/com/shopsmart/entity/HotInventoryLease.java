@@ -0,0 +1,97 @@
+package com.shopsmart.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Units of a hot product's stock taken off the product row into one instance's in-memory pool.
+ * {@code quantity} is the pool size as of journal sequence {@code flushedSeq}; the instance's
+ * journal holds the allocations since then. Maintained by HotInventoryService (plain SQL).
+ */
+@Entity
+@IdClass(HotInventoryLease.Key.class)
+@Table(name = "hot_inventory_lease")
+public class HotInventoryLease {
+
+    @Id
+    @Column(name = "instance_id", nullable = false, length = 100)
+    private String instanceId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long quantity;
+
+    @Column(name = "flushed_seq", nullable = false)
+    private Long flushedSeq;
+
+    public HotInventoryLease() {
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public Long getFlushedSeq() {
+        return flushedSeq;
+    }
+
+    public void setFlushedSeq(Long flushedSeq) {
+        this.flushedSeq = flushedSeq;
+    }
+
+    public static class Key implements Serializable {
+
+        private String instanceId;
+        private Long productId;
+
+        public Key() {
+        }
+
+        public Key(String instanceId, Long productId) {
+            this.instanceId = instanceId;
+            this.productId = productId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(instanceId, key.instanceId) && Objects.equals(productId, key.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(instanceId, productId);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -26,7 +27,8 @@ import jakarta.persistence.Table;
 public class Order {
 
 	@Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_id_gen")
+    @SequenceGenerator(name = "order_id_gen", sequenceName = "customer_order_seq", allocationSize = 50)
     @Column(name = "order_id")
     private Long id;
 
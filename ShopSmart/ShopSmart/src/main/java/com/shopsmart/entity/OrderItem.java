@@ -10,6 +10,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient; // Keep if getItemTotal is still needed/used
 
@@ -18,7 +19,8 @@ import jakarta.persistence.Transient; // Keep if getItemTotal is still needed/us
 public class OrderItem {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_id_gen")
+	@SequenceGenerator(name = "order_item_id_gen", sequenceName = "order_item_seq", allocationSize = 50)
 	@Column(name = "order_item_id")
 	private Long id;
 
@@ -7,6 +7,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import java.math.BigDecimal;
@@ -18,7 +19,8 @@ import java.util.Objects; // NEW: Import Objects for equals/hashCode
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_id_gen")
+    @SequenceGenerator(name = "payment_id_gen", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 50)
@@ -0,0 +1,142 @@
+package com.shopsmart.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * One order placement command, keyed by its idempotency key. Created when the command is
+ * accepted; the consumer locks it, places the order and records the outcome in the same
+ * transaction, so a redelivered command finds it already settled.
+ */
+@Entity
+@Table(name = "processed_order_command", indexes = {
+        @Index(name = "idx_order_command_customer", columnList = "customer_id, created_at")
+})
+public class ProcessedOrderCommand {
+
+    @Id
+    @Column(name = "command_key", length = 100)
+    private String commandKey;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public enum Status {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
+    public ProcessedOrderCommand() {
+    }
+
+    public ProcessedOrderCommand(String commandKey, Long customerId) {
+        this.commandKey = commandKey;
+        this.customerId = customerId;
+        this.status = Status.PENDING;
+        this.createdAt = Instant.now();
+    }
+
+    public String getCommandKey() {
+        return commandKey;
+    }
+
+    public void setCommandKey(String commandKey) {
+        this.commandKey = commandKey;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProcessedOrderCommand that = (ProcessedOrderCommand) o;
+        return Objects.equals(commandKey, that.commandKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(commandKey);
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessedOrderCommand{" +
+                "commandKey='" + commandKey + '\'' +
+                ", customerId=" + customerId +
+                ", status=" + status +
+                ", orderId=" + orderId +
+                '}';
+    }
+}
@@ -4,23 +4,36 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Objects; // NEW: Import Objects for equals/hashCode
 
+import org.hibernate.annotations.BatchSize;
+
+import com.shopsmart.listener.ProductEventsListener;
+
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 @Entity
-@Table(name ="product")
+@EntityListeners(ProductEventsListener.class)
+@Table(name ="product", indexes = {
+        // Supports keyset pages filtered by category: WHERE category_id = ? AND product_id > ? ORDER BY product_id
+        @Index(name = "idx_product_category_id", columnList = "category_id, product_id")
+})
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_id_gen")
+    @SequenceGenerator(name = "product_id_gen", sequenceName = "product_seq", allocationSize = 50)
     @Column(name = "product_id")
     private Long id;
 
@@ -30,7 +43,9 @@ public class Product {
     @Column(name = "product_description", columnDefinition = "TEXT")
     private String description;
 
+    // Paged reads cannot join-fetch a collection, so images for a page load in one IN query
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "product_images",joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "image_url")
     private List<String> images;
@@ -45,6 +60,10 @@ public class Product {
     @Column(name = "stock_quantity", nullable = false)
     private Long stockQuantity;
 
+    // Category as last read from or written to the database; set by ProductEventsListener
+    @Transient
+    private Long persistedCategoryId;
+
     public Product() {
         super();
     }
@@ -116,6 +135,14 @@ public class Product {
         this.stockQuantity = stockQuantity;
     }
 
+    public Long getPersistedCategoryId() {
+        return persistedCategoryId;
+    }
+
+    public void setPersistedCategoryId(Long persistedCategoryId) {
+        this.persistedCategoryId = persistedCategoryId;
+    }
+
     // NEW: Override equals() and hashCode() for proper JPA entity behavior
     @Override
     public boolean equals(Object o) {
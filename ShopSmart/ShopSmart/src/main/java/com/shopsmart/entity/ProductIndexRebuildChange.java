@@ -0,0 +1,31 @@
+package com.shopsmart.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A product whose index write was mirrored into the index under construction by a blue/green
+ * rebuild, on any instance. The rebuild re-syncs these from MySQL around the alias swap and then
+ * clears the table. Maintained by ProductIndexingService (plain SQL).
+ */
+@Entity
+@Table(name = "product_index_rebuild_change")
+public class ProductIndexRebuildChange {
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    public ProductIndexRebuildChange() {
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+}
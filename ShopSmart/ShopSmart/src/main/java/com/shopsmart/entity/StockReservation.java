@@ -0,0 +1,116 @@
+package com.shopsmart.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Stock held by a cart until {@code expiresAt}. One row per cart and product; the product row
+ * itself is only written when an order commits the reservation. Read and written through
+ * StockReservationService (plain SQL); the entity is here for the schema.
+ */
+@Entity
+@IdClass(StockReservation.Key.class)
+@Table(name = "stock_reservation", indexes = {
+        // Covers the "active reservations for a product" sum without touching the rows
+        @Index(name = "idx_reservation_product_expiry", columnList = "product_id, expires_at, quantity"),
+        @Index(name = "idx_reservation_expiry", columnList = "expires_at")
+})
+public class StockReservation {
+
+    @Id
+    @Column(name = "cart_id", nullable = false)
+    private Long cartId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // Hot-SKU holds, and cart lines from before reservations: already taken off the product row,
+    // so checkout must not decrement again and expiry must give the units back
+    @Column(nullable = false)
+    private boolean deducted;
+
+    public StockReservation() {
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    public void setCartId(Long cartId) {
+        this.cartId = cartId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isDeducted() {
+        return deducted;
+    }
+
+    public void setDeducted(boolean deducted) {
+        this.deducted = deducted;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long cartId;
+        private Long productId;
+
+        public Key() {
+        }
+
+        public Key(Long cartId, Long productId) {
+            this.cartId = cartId;
+            this.productId = productId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(cartId, key.cartId) && Objects.equals(productId, key.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cartId, productId);
+        }
+    }
+}
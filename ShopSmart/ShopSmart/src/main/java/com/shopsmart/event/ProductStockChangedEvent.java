@@ -0,0 +1,20 @@
+package com.shopsmart.event;
+
+/**
+ * Published by InventoryService after a stock update that bypassed the entity (and therefore
+ * ProductUpdatedEvent). Carries the stock before and after, as seen in the same transaction.
+ */
+public class ProductStockChangedEvent {
+    private final Long productId;
+    private final long previousStockQuantity;
+    private final long stockQuantity;
+    public ProductStockChangedEvent(Long productId, long previousStockQuantity, long stockQuantity) {
+        this.productId = productId;
+        this.previousStockQuantity = previousStockQuantity;
+        this.stockQuantity = stockQuantity;
+    }
+    public Long getProductId() { return productId; }
+    public long getPreviousStockQuantity() { return previousStockQuantity; }
+    public long getStockQuantity() { return stockQuantity; }
+    public boolean isAvailabilityChanged() { return (previousStockQuantity > 0) != (stockQuantity > 0); }
+}
@@ -4,6 +4,12 @@ import com.shopsmart.entity.Product;
 
 public class ProductUpdatedEvent {
     private final Product product;
-    public ProductUpdatedEvent(Product product) { this.product = product; }
+    private final Long previousCategoryId;
+    public ProductUpdatedEvent(Product product, Long previousCategoryId) {
+        this.product = product;
+        this.previousCategoryId = previousCategoryId;
+    }
     public Product getProduct() { return product; }
+    /** Category the product had before this update, or null when it was not loaded through JPA. */
+    public Long getPreviousCategoryId() { return previousCategoryId; }
 }
@@ -5,6 +5,7 @@ import com.shopsmart.event.ProductCreatedEvent;
 import com.shopsmart.event.ProductDeletedEvent;
 import com.shopsmart.event.ProductUpdatedEvent;
 
+import jakarta.persistence.PostLoad;
 import jakarta.persistence.PostPersist;
 import jakarta.persistence.PostUpdate;
 import jakarta.persistence.PostRemove;
@@ -22,18 +23,30 @@ public class ProductEventsListener {
         this.publisher = publisher;
     }
 
+    @PostLoad
+    public void onPostLoad(Product product) {
+        product.setPersistedCategoryId(categoryIdOf(product));
+    }
+
     @PostPersist
     public void onPostPersist(Product product) {
+        product.setPersistedCategoryId(categoryIdOf(product));
         publisher.publishEvent(new ProductCreatedEvent(product));
     }
 
     @PostUpdate
     public void onPostUpdate(Product product) {
-        publisher.publishEvent(new ProductUpdatedEvent(product));
+        Long previousCategoryId = product.getPersistedCategoryId();
+        product.setPersistedCategoryId(categoryIdOf(product));
+        publisher.publishEvent(new ProductUpdatedEvent(product, previousCategoryId));
     }
 
     @PostRemove
     public void onPostRemove(Product product) {
         publisher.publishEvent(new ProductDeletedEvent(product.getId()));
     }
+
+    private static Long categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
 }
\ No newline at end of file
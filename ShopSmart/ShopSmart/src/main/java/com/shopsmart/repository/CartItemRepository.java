@@ -3,6 +3,9 @@ package com.shopsmart.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.shopsmart.entity.Cart;
@@ -15,4 +18,8 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 	Optional<CartItem> findByCartAndProduct(Cart cart, Product product);
 
 	void deleteByCartAndProduct(Cart cart, Product product);
+
+	@Modifying
+	@Query("DELETE FROM CartItem i WHERE i.cart.id = :cartId")
+	int deleteByCartId(@Param("cartId") Long cartId);
 }
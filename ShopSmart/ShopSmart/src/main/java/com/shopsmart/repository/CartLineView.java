@@ -0,0 +1,14 @@
+package com.shopsmart.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the read-only cart view in {@link CartRepository}: the cart header, repeated on every
+ * line, and one line. An empty cart comes back as a single row whose item fields are null.
+ */
+public record CartLineView(Long cartId, Long customerId, LocalDateTime createdAt, LocalDateTime updatedAt,
+                           BigDecimal totalPrice, BigDecimal totalAmount, String couponCode,
+                           BigDecimal discountAmount, Long itemId, Long productId, Long quantity,
+                           BigDecimal price) {
+}
@@ -1,8 +1,11 @@
 package com.shopsmart.repository;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.shopsmart.entity.Cart;
@@ -15,5 +18,14 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
 
     Optional<Cart> findByCustomerId(Long customerId);
 
+    // Read-only cart view in one query, no entities: one row per item
+    @Query("SELECT new com.shopsmart.repository.CartLineView(c.id, c.customer.id, c.createdAt, c.updatedAt, "
+            + "c.totalPrice, c.totalAmount, c.couponCode, c.discountAmount, i.id, i.product.id, i.quantity, i.price) "
+            + "FROM Cart c LEFT JOIN c.cartItems i WHERE c.customer.id = :customerId ORDER BY i.id")
+    List<CartLineView> findViewByCustomerId(@Param("customerId") Long customerId);
 
+    @Query("SELECT new com.shopsmart.repository.CartLineView(c.id, c.customer.id, c.createdAt, c.updatedAt, "
+            + "c.totalPrice, c.totalAmount, c.couponCode, c.discountAmount, i.id, i.product.id, i.quantity, i.price) "
+            + "FROM Cart c LEFT JOIN c.cartItems i WHERE c.id = :cartId ORDER BY i.id")
+    List<CartLineView> findViewById(@Param("cartId") Long cartId);
 }
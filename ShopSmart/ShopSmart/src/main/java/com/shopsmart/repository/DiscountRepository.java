@@ -4,6 +4,9 @@
 import java.util.Optional;
 	
 	import org.springframework.data.jpa.repository.JpaRepository;
+	import org.springframework.data.jpa.repository.Modifying;
+	import org.springframework.data.jpa.repository.Query;
+	import org.springframework.data.repository.query.Param;
 	import org.springframework.stereotype.Repository;
 	
 	import com.shopsmart.entity.Discount;
@@ -14,6 +17,16 @@ import java.util.Optional;
 		Optional<Discount> findByCode(String code);
 
 		List<Discount> findByActiveTrue();
+
+		// Counts one use unless the usage limit has been reached; returns 0 in that case
+		@Modifying
+		@Query("UPDATE Discount d SET d.usedCount = COALESCE(d.usedCount, 0) + 1 WHERE d.code = :code"
+				+ " AND (d.usageLimit IS NULL OR COALESCE(d.usedCount, 0) < d.usageLimit)")
+		int incrementUsage(@Param("code") String code);
+
+		@Modifying
+		@Query("UPDATE Discount d SET d.usedCount = d.usedCount - 1 WHERE d.code = :code AND d.usedCount > 0")
+		int decrementUsage(@Param("code") String code);
 	
 		
 	
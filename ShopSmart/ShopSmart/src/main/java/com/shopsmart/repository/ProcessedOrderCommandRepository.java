@@ -0,0 +1,22 @@
+package com.shopsmart.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.shopsmart.entity.ProcessedOrderCommand;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface ProcessedOrderCommandRepository extends JpaRepository<ProcessedOrderCommand, String> {
+
+    // Held until the placing transaction ends, so a concurrent redelivery waits and then sees the outcome
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM ProcessedOrderCommand c WHERE c.commandKey = :commandKey")
+    Optional<ProcessedOrderCommand> findForUpdate(@Param("commandKey") String commandKey);
+}
@@ -0,0 +1,26 @@
+package com.shopsmart.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.shopsmart.entity.ProductIndexOutbox;
+
+@Repository
+public interface ProductIndexOutboxRepository extends JpaRepository<ProductIndexOutbox, Long> {
+
+    // Oldest entries that are due, in commit order
+    @Query("SELECT o FROM ProductIndexOutbox o WHERE o.nextAttemptAt <= :now ORDER BY o.id ASC")
+    List<ProductIndexOutbox> findDue(@Param("now") Instant now, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ProductIndexOutbox o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
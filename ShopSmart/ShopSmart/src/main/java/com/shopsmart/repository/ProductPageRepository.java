@@ -0,0 +1,24 @@
+package com.shopsmart.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+
+import com.shopsmart.entity.Product;
+
+/**
+ * Keyset product pages with optional filters, built per call so the statement only carries the
+ * filters that were given. Part of {@link ProductRepository}.
+ */
+public interface ProductPageRepository {
+
+    /**
+     * Up to {@code pageable.getPageSize()} products with an id greater than {@code afterId}, in id
+     * order, with their category fetched. Null filters and {@code inStock = false} are left out of
+     * the WHERE clause entirely, instead of being bound as {@code ? IS NULL OR ...}, which MySQL
+     * does not fold away for bound parameters.
+     */
+    List<Product> findPageAfter(Long afterId, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                boolean inStock, Pageable pageable);
+}
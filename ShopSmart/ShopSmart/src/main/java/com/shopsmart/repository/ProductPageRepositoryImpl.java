@@ -0,0 +1,53 @@
+package com.shopsmart.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+
+import com.shopsmart.entity.Product;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+class ProductPageRepositoryImpl implements ProductPageRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Product> findPageAfter(Long afterId, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                       boolean inStock, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Product> query = cb.createQuery(Product.class);
+        Root<Product> product = query.from(Product.class);
+        // Category in the same statement; images are batch-loaded, see Product.images
+        product.fetch("category", JoinType.LEFT);
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.greaterThan(product.get("id"), afterId));
+        if (categoryId != null) {
+            where.add(cb.equal(product.get("category").get("id"), categoryId));
+        }
+        if (minPrice != null) {
+            where.add(cb.greaterThanOrEqualTo(product.get("price"), minPrice));
+        }
+        if (maxPrice != null) {
+            where.add(cb.lessThanOrEqualTo(product.get("price"), maxPrice));
+        }
+        if (inStock) {
+            where.add(cb.greaterThan(product.get("stockQuantity"), 0L));
+        }
+
+        query.select(product).where(where.toArray(new Predicate[0])).orderBy(cb.asc(product.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+}
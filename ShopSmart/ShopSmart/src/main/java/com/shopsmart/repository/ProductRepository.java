@@ -1,17 +1,22 @@
 package com.shopsmart.repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.shopsmart.entity.Category;
 import com.shopsmart.entity.Product;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductPageRepository {
 
     // Core CRUD Operations (provided by JpaRepository, but explicitly listed for clarity)
     Optional<Product> findById(Long id);
@@ -30,4 +35,37 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     // Find a product by name (case-insensitive) and category ID
     Optional<Product> findByNameIgnoreCaseAndCategoryId(String name, Long categoryId);
+
+    // Bulk duplicate check for imports: returns [categoryId, lower(name)] pairs that already exist
+    @Query("SELECT p.category.id, LOWER(p.name) FROM Product p"
+            + " WHERE p.category.id IN :categoryIds AND LOWER(p.name) IN :lowerNames")
+    List<Object[]> findExistingCategoryAndLowerName(@Param("categoryIds") Collection<Long> categoryIds,
+                                                    @Param("lowerNames") Collection<String> lowerNames);
+
+    // Read paths for list endpoints: category and images are fetched in the same statement
+    // (one collection only, so no cartesian product), instead of 1 + N lazy loads.
+    @EntityGraph(attributePaths = {"category", "images"})
+    Optional<Product> findWithDetailsById(Long id);
+
+    @EntityGraph(attributePaths = {"category", "images"})
+    List<Product> findWithDetailsBy();
+
+    @EntityGraph(attributePaths = {"category"})
+    List<Product> findWithCategoryByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = {"category", "images"})
+    List<Product> findWithDetailsByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = {"category", "images"})
+    List<Product> findWithDetailsByCategory(Category category);
+
+    @EntityGraph(attributePaths = {"category", "images"})
+    List<Product> findWithDetailsByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
+
+    @EntityGraph(attributePaths = {"category", "images"})
+    List<Product> findWithDetailsByStockQuantityGreaterThan(Long stockQuantity);
+
+    // Typeahead terms without loading entities: [id, name, category name]
+    @Query("SELECT p.id, p.name, c.name FROM Product p LEFT JOIN p.category c WHERE p.id > :afterId ORDER BY p.id ASC")
+    List<Object[]> findSuggestTermsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
\ No newline at end of file
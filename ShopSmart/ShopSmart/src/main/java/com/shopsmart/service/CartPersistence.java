@@ -0,0 +1,238 @@
+package com.shopsmart.service;
+
+import com.shopsmart.dto.CartDTO;
+import com.shopsmart.dto.CartItemDTO;
+import com.shopsmart.entity.Cart;
+import com.shopsmart.entity.CartItem;
+import com.shopsmart.entity.Customer;
+import com.shopsmart.entity.Product;
+import com.shopsmart.exception.ResourceNotFoundException;
+import com.shopsmart.repository.CartLineView;
+import com.shopsmart.repository.CartRepository;
+import com.shopsmart.repository.CustomerRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Moves carts between the {@code carts}/{@code cart_items} tables and the CartDTO snapshots the
+ * cart stores hold. Snapshots carry lines without product details; a line that has not been
+ * written yet has no id.
+ */
+@Component
+public class CartPersistence {
+
+    private final CartRepository cartRepository;
+    private final CustomerRepository customerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public CartPersistence(CartRepository cartRepository, CustomerRepository customerRepository,
+                           JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.cartRepository = cartRepository;
+        this.customerRepository = customerRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    public Optional<CartDTO> load(Long customerId) {
+        return fromView(cartRepository.findViewByCustomerId(customerId));
+    }
+
+    public Optional<Long> findCustomerId(Long cartId) {
+        List<CartLineView> rows = cartRepository.findViewById(cartId);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0).customerId());
+    }
+
+    /**
+     * Locks the customer's cart row until the transaction ends, so changes to one cart written
+     * straight to MySQL queue up instead of overwriting each other. Returns false if there is no cart.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean lock(Long customerId) {
+        return !jdbcTemplate.queryForList("SELECT id FROM carts WHERE customer_id = ? FOR UPDATE", Long.class, customerId)
+                .isEmpty();
+    }
+
+    /**
+     * Inserts an empty cart row; the stock holds and items of a cart all hang off its id, so this
+     * is the one cart write that is never deferred.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public CartDTO create(Long customerId) {
+        Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer", "Id", customerId));
+        Cart cart = new Cart();
+        cart.setCustomer(customer);
+        cart.setCreatedAt(LocalDateTime.now());
+        cart.setUpdatedAt(LocalDateTime.now());
+        cart.setTotalAmount(BigDecimal.ZERO);
+        cart.setTotalPrice(BigDecimal.ZERO);
+        cart.setDiscountAmount(BigDecimal.ZERO);
+        cart.setCouponCode(null);
+        // Flushed now: the cart's totals are later written with plain SQL in this transaction
+        Cart saved = cartRepository.saveAndFlush(cart);
+
+        CartDTO state = new CartDTO();
+        state.setId(saved.getId());
+        state.setCustomerId(customerId);
+        state.setCreatedAt(saved.getCreatedAt());
+        state.setUpdatedAt(saved.getUpdatedAt());
+        state.setTotalPrice(BigDecimal.ZERO);
+        state.setTotalAmount(BigDecimal.ZERO);
+        state.setDiscountAmount(BigDecimal.ZERO);
+        state.setCartItems(new ArrayList<>());
+        return state;
+    }
+
+    /**
+     * Makes the rows match the snapshot: cart totals and coupon in one update, changed lines
+     * updated, missing ones deleted, new ones inserted (their ids are set on the snapshot).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void write(CartDTO state) {
+        writeAll(List.of(state));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void writeAll(Collection<CartDTO> states) {
+        if (states.isEmpty()) {
+            return;
+        }
+        List<Object[]> cartUpdates = new ArrayList<>();
+        List<Object[]> lineUpdates = new ArrayList<>();
+        List<Object[]> lineDeletes = new ArrayList<>();
+        List<CartItemDTO> inserted = new ArrayList<>();
+        List<CartItem> insertedItems = new ArrayList<>();
+        Map<Long, Map<Long, Object[]>> storedLines = storedLines(states);
+
+        for (CartDTO state : states) {
+            cartUpdates.add(new Object[] { state.getTotalPrice(), state.getTotalAmount(), state.getCouponCode(),
+                    state.getDiscountAmount(), LocalDateTime.now(), state.getId() });
+
+            Map<Long, Object[]> stored = new HashMap<>(storedLines.getOrDefault(state.getId(), Map.of()));
+            for (CartItemDTO line : state.getCartItems()) {
+                Object[] row = stored.remove(line.getProductId());
+                if (row == null) {
+                    CartItem item = new CartItem();
+                    item.setCart(entityManager.getReference(Cart.class, state.getId()));
+                    item.setProduct(entityManager.getReference(Product.class, line.getProductId()));
+                    item.setQuantity(line.getQuantity());
+                    item.setPrice(line.getPrice());
+                    entityManager.persist(item);
+                    inserted.add(line);
+                    insertedItems.add(item);
+                } else {
+                    line.setId((Long) row[0]);
+                    if (!line.getQuantity().equals(row[1]) || line.getPrice().compareTo((BigDecimal) row[2]) != 0) {
+                        lineUpdates.add(new Object[] { line.getQuantity(), line.getPrice(), line.getId() });
+                    }
+                }
+            }
+            stored.values().forEach(row -> lineDeletes.add(new Object[] { row[0] }));
+        }
+
+        jdbcTemplate.batchUpdate("UPDATE carts SET total_price = ?, total_amount = ?, coupon_code = ?,"
+                + " discount_amount = ?, updated_at = ? WHERE id = ?", cartUpdates);
+        if (!lineUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE cart_items SET quantity = ?, price = ? WHERE id = ?", lineUpdates);
+        }
+        if (!lineDeletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE id = ?", lineDeletes);
+        }
+        // Flushed here so code reading Cart entities later in this transaction sees the new lines
+        entityManager.flush();
+        for (int i = 0; i < inserted.size(); i++) {
+            inserted.get(i).setId(insertedItems.get(i).getId());
+        }
+    }
+
+    // productId -> [itemId, quantity, price] per cart, as currently stored
+    private Map<Long, Map<Long, Object[]>> storedLines(Collection<CartDTO> states) {
+        List<Object> ids = new ArrayList<>();
+        states.forEach(state -> ids.add(state.getId()));
+        Map<Long, Map<Long, Object[]>> lines = new HashMap<>();
+        jdbcTemplate.query("SELECT cart_id, product_id, id, quantity, price FROM cart_items WHERE cart_id IN ("
+                        + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")",
+                rs -> {
+                    lines.computeIfAbsent(rs.getLong(1), k -> new HashMap<>())
+                            .put(rs.getLong(2), new Object[] { rs.getLong(3), rs.getLong(4), rs.getBigDecimal(5) });
+                },
+                ids.toArray());
+        return lines;
+    }
+
+    // Rows from CartRepository.findView*: the cart header repeated on every item row
+    private static Optional<CartDTO> fromView(List<CartLineView> rows) {
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        CartLineView header = rows.get(0);
+        CartDTO state = new CartDTO();
+        state.setId(header.cartId());
+        state.setCustomerId(header.customerId());
+        state.setCreatedAt(header.createdAt());
+        state.setUpdatedAt(header.updatedAt());
+        state.setTotalAmount(header.totalAmount());
+        state.setCouponCode(header.couponCode());
+        state.setDiscountAmount(header.discountAmount());
+
+        List<CartItemDTO> lines = new ArrayList<>();
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CartLineView row : rows) {
+            if (row.itemId() == null) {
+                continue;
+            }
+            CartItemDTO line = line(row.itemId(), row.productId(), row.quantity(), row.price());
+            lines.add(line);
+            subtotal = subtotal.add(line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())));
+        }
+        // Carts saved before totals were maintained incrementally have no stored subtotal
+        state.setTotalPrice(header.totalPrice() != null ? header.totalPrice() : subtotal.setScale(2, RoundingMode.HALF_UP));
+        state.setCartItems(lines);
+        return Optional.of(state);
+    }
+
+    static CartItemDTO line(Long id, Long productId, Long quantity, BigDecimal price) {
+        CartItemDTO line = new CartItemDTO();
+        line.setId(id);
+        line.setProductId(productId);
+        line.setQuantity(quantity);
+        line.setPrice(price);
+        return line;
+    }
+
+    /** Copy of a snapshot without product details; stores never hand out or keep shared instances. */
+    public static CartDTO copyOf(CartDTO state) {
+        CartDTO copy = new CartDTO();
+        copy.setId(state.getId());
+        copy.setCustomerId(state.getCustomerId());
+        copy.setCreatedAt(state.getCreatedAt());
+        copy.setUpdatedAt(state.getUpdatedAt());
+        copy.setTotalPrice(state.getTotalPrice());
+        copy.setTotalAmount(state.getTotalAmount());
+        copy.setCouponCode(state.getCouponCode());
+        copy.setDiscountAmount(state.getDiscountAmount());
+        List<CartItemDTO> lines = new ArrayList<>();
+        if (state.getCartItems() != null) {
+            for (CartItemDTO line : state.getCartItems()) {
+                lines.add(line(line.getId(), line.getProductId(), line.getQuantity(), line.getPrice()));
+            }
+        }
+        copy.setCartItems(lines);
+        return copy;
+    }
+}
@@ -1,16 +1,17 @@
 package com.shopsmart.service;
 
+import java.util.List;
+
 import com.shopsmart.dto.CartDTO;
-import com.shopsmart.entity.Cart;;
+import com.shopsmart.dto.CartItemDTO;
 
 
 public interface CartService {
-	Cart getOrCreateCart(Long customerId); 
-
     CartDTO getCartByCustomerId(Long customerId); 
     CartDTO addProductToCart(Long customerId, Long productId, Long quantity);
     CartDTO updateProductQuantityInCart(Long customerId, Long productId, Long newQuantity);
     CartDTO removeProductFromCart(Long customerId, Long productId);
+    CartDTO applyCartChanges(Long customerId, List<CartItemDTO> changes);
     void clearCart(Long customerId);
     CartDTO getCartById(Long cartId);
 
@@ -0,0 +1,48 @@
+package com.shopsmart.service;
+
+import com.shopsmart.dto.CartDTO;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Where live cart state is kept. CartServiceImpl reads and changes carts only through this, as
+ * CartDTO snapshots without product details. Picked with {@code shopsmart.cart.store.type}:
+ *
+ * - {@code jpa} (default): MySQL is the store; every change is written in the caller's transaction.
+ * - {@code memory}: carts live in this instance and are written back in the background, before
+ *   checkout and when they go idle. Needs customers routed to one instance.
+ * - {@code redis}: the same write-behind, with the carts in Redis, shared by all instances.
+ *
+ * Stock holds are never part of the cart state: they are written to {@code stock_reservation} in
+ * the caller's transaction whatever the store, so a write-back lost in a crash loses line changes
+ * (their holds expire), never stock.
+ *
+ * Only logged-in customers have carts. Anonymous carts are out of scope for every store: a cart
+ * is keyed on its customer and backed by a {@code carts} row owned by one ({@code customer_id}
+ * is NOT NULL and unique), stock holds reference that row, and every {@code /api/carts} route
+ * requires a customer token. Guest carts would need a guest identity issued without login, a
+ * nullable owner, a limit on the stock unauthenticated callers can hold, and a merge into the
+ * customer's cart (and holds) on login.
+ */
+public interface CartStore {
+
+    /** The customer's cart as last changed, or empty if they have none. Never writes. */
+    Optional<CartDTO> find(Long customerId);
+
+    /**
+     * Runs {@code change} on the customer's cart, creating the cart row first if they have none.
+     * Other changes to the same cart wait until the surrounding transaction completes. The
+     * snapshot passed in is the caller's to modify; as it stands when {@code change} returns, it
+     * becomes the cart's state if the transaction commits.
+     */
+    <T> T update(Long customerId, Function<CartDTO, T> change);
+
+    /**
+     * For code working on the Cart entity (checkout, account deletion): writes the cart back to
+     * MySQL, then runs {@code action} with changes to the cart shut out. Whatever {@code action}
+     * leaves in the cart rows is the cart's state afterwards.
+     */
+    <T> T withPersistedCart(Long customerId, Supplier<T> action);
+}
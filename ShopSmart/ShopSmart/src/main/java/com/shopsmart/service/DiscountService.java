@@ -2,8 +2,10 @@ package com.shopsmart.service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 import com.shopsmart.dto.DiscountDTO;
+import com.shopsmart.entity.Discount;
 
 public interface DiscountService {
 
@@ -15,5 +17,9 @@ public interface DiscountService {
     void deleteDiscount(Long id);
 
     boolean isValidDiscount(String code, BigDecimal currentAmount);
+    boolean isValidDiscount(Discount discount, BigDecimal currentAmount);
+
+    // Looked up at most once per web request; cart and checkout paths resolve the same code repeatedly
+    Optional<Discount> resolveDiscount(String code);
 	List<DiscountDTO> getAvailableCouponsForCustomer(Long customerId);
 }
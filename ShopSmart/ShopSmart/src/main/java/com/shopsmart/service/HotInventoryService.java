@@ -0,0 +1,589 @@
+package com.shopsmart.service;
+
+import com.shopsmart.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in in-memory stock for flash-sale ("hot") products, so carts do not all queue on one
+ * product row.
+ *
+ * A hot product's stock is leased off the product row in chunks into a pool of striped counters
+ * that carts allocate from with CAS. The flush tops pools up before they run dry; a cart that
+ * still finds its pool empty leases inline, or waits {@code lease-wait-ms} for the lease in
+ * progress. Every caller here holds a connection for its transaction and the lease needs another,
+ * so waiting longer could hold every connection in the pool and stall the lease indefinitely.
+ * Every allocation and release is appended to a local journal (group-committed with fsync) before
+ * the caller goes on; a scheduled flush writes the net change per product to its
+ * {@code hot_inventory_lease} row in one batch and starts a new journal file. After a crash, the
+ * lease rows plus the unflushed journal give each pool's exact remainder, which startup returns to
+ * the product rows. Anything lost between a commit and its journal entry errs towards
+ * underselling, never overselling.
+ *
+ * Holds taken from a pool are stored as {@code deducted} reservations; see StockReservationService.
+ */
+@Service
+public class HotInventoryService {
+
+    private static final String JOURNAL_PREFIX = "hot-inventory-";
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final String instanceId;
+    private final int stripeCount;
+    private final long leaseSize;
+    private final long leaseWaitMillis;
+    private final Path journalDir;
+    private final List<Long> configuredProductIds;
+
+    private final Map<Long, Pool> pools = new ConcurrentHashMap<>();
+
+    // Journal state, guarded by journalLock; syncLock is always taken before journalLock
+    private final Object journalLock = new Object();
+    private final Object syncLock = new Object();
+    private FileChannel journal;
+    private long nextSeq = 1;
+    private long flushedSeq;
+    private long writtenBytes;
+    private volatile long syncedBytes;
+    private final Map<Long, Long> unflushed = new HashMap<>();
+
+    public HotInventoryService(JdbcTemplate jdbcTemplate, InventoryService inventoryService,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${shopsmart.inventory.hot.instance-id:${HOSTNAME:local}}") String instanceId,
+                               @Value("${shopsmart.inventory.hot.stripes:16}") int stripeCount,
+                               @Value("${shopsmart.inventory.hot.lease-size:100}") long leaseSize,
+                               @Value("${shopsmart.inventory.hot.lease-wait-ms:200}") long leaseWaitMillis,
+                               @Value("${shopsmart.inventory.hot.journal-dir:./data/hot-inventory}") String journalDir,
+                               @Value("${shopsmart.inventory.hot.product-ids:}") List<Long> configuredProductIds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryService = inventoryService;
+        // Leases, flushes and give-backs commit on their own, never inside a cart's transaction
+        // (a rolled-back cart must not undo a lease the pool already holds)
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.instanceId = instanceId;
+        this.stripeCount = stripeCount;
+        this.leaseSize = leaseSize;
+        this.leaseWaitMillis = leaseWaitMillis;
+        this.journalDir = Paths.get(journalDir);
+        this.configuredProductIds = configuredProductIds;
+    }
+
+    /**
+     * Returns whatever a previous run left leased, then enables the configured products.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        try {
+            recover();
+            for (Long productId : configuredProductIds) {
+                enable(productId);
+            }
+        } catch (Exception e) {
+            System.err.println("Hot inventory recovery failed, hot mode stays off: " + e.getMessage());
+        }
+    }
+
+    public boolean isHot(Long productId) {
+        return pools.containsKey(productId);
+    }
+
+    public void enable(Long productId) {
+        if (inventoryService.getStock(List.of(productId)).isEmpty()) {
+            throw new ResourceNotFoundException("Product", "Id", productId);
+        }
+        synchronized (journalLock) {
+            if (journal == null) {
+                throw new IllegalStateException("Hot inventory journal is not open");
+            }
+        }
+        Pool pool = pools.computeIfAbsent(productId, id -> new Pool(stripeCount));
+        // Filled now, so the first carts do not all queue on the lease
+        lease(productId, pool, leaseSize, leaseWaitMillis);
+    }
+
+    /**
+     * Leaves hot mode: flushes, then returns the pool to the product row. Holds already taken
+     * stay deducted and go back when released, committed or expired.
+     */
+    public void disable(Long productId) {
+        Pool pool = pools.remove(productId);
+        if (pool == null) {
+            return;
+        }
+        pool.leaseLock.lock();
+        try {
+            pool.closed = true;
+        } finally {
+            pool.leaseLock.unlock();
+        }
+        flush();
+        long remaining = pool.drain();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (remaining > 0) {
+                inventoryService.increment(productId, remaining);
+            }
+            jdbcTemplate.update("DELETE FROM hot_inventory_lease WHERE instance_id = ? AND product_id = ?",
+                    instanceId, productId);
+        });
+    }
+
+    /**
+     * Takes {@code quantity} units from the product's pool, leasing another chunk from the product
+     * row if the pool runs short. Must run in a transaction: if it rolls back, the units go back.
+     * Throws IllegalStateException if another lease of the product kept it waiting too long.
+     */
+    public boolean allocate(Long productId, long quantity) {
+        Pool pool = pools.get(productId);
+        if (pool == null) {
+            throw new IllegalStateException("Product " + productId + " is not in hot mode");
+        }
+        if (!pool.take(quantity)) {
+            if (!lease(productId, pool, Math.max(quantity, leaseSize), leaseWaitMillis)) {
+                throw new IllegalStateException("Stock for product " + productId + " is being refilled, please retry.");
+            }
+            if (!pool.take(quantity)) {
+                return false;
+            }
+        }
+        try {
+            journal(productId, -quantity);
+        } catch (RuntimeException e) {
+            pool.put(quantity);
+            throw e;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    free(productId, quantity);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Gives units back to the pool once the surrounding transaction has committed (the hold rows
+     * saying they are taken must be gone first).
+     */
+    public void freeAfterCommit(Long productId, long quantity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            free(productId, quantity);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                free(productId, quantity);
+            }
+        });
+    }
+
+    public long getPooled(Long productId) {
+        Pool pool = pools.get(productId);
+        return pool != null ? pool.size() : 0L;
+    }
+
+    public List<Map<String, Object>> getStatus() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        Map<Long, Long> pending;
+        synchronized (journalLock) {
+            pending = new HashMap<>(unflushed);
+        }
+        pools.forEach((productId, pool) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("productId", productId);
+            entry.put("pooled", pool.size());
+            entry.put("unflushedDelta", pending.getOrDefault(productId, 0L));
+            status.add(entry);
+        });
+        return status;
+    }
+
+    /**
+     * Write-behind: applies the journal's net change per product to the lease rows in one
+     * transaction and rotates the journal. On failure the changes stay pending for the next run.
+     * First tops up pools that are down to half a lease, from this thread, which holds no
+     * connection while it waits.
+     */
+    @Scheduled(fixedDelayString = "${shopsmart.inventory.hot.flush-ms:200}")
+    public void flush() {
+        refill();
+        Map<Long, Long> deltas;
+        long seq;
+        synchronized (syncLock) {
+            synchronized (journalLock) {
+                if (journal == null || nextSeq - 1 == flushedSeq) {
+                    return;
+                }
+                seq = nextSeq - 1;
+                deltas = new HashMap<>(unflushed);
+                unflushed.clear();
+                try {
+                    openJournal(nextSeq);
+                } catch (IOException e) {
+                    unflushed.putAll(deltas);
+                    System.err.println("Could not rotate the hot inventory journal: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> updates = new ArrayList<>();
+                deltas.forEach((productId, delta) -> updates.add(new Object[] { delta, instanceId, productId }));
+                jdbcTemplate.batchUpdate("UPDATE hot_inventory_lease SET quantity = quantity + ?"
+                        + " WHERE instance_id = ? AND product_id = ?", updates);
+                jdbcTemplate.update("UPDATE hot_inventory_lease SET flushed_seq = ? WHERE instance_id = ?",
+                        seq, instanceId);
+            });
+            synchronized (journalLock) {
+                flushedSeq = seq;
+            }
+            deleteJournalsBefore(seq + 1);
+        } catch (Exception e) {
+            synchronized (journalLock) {
+                deltas.forEach((productId, delta) -> unflushed.merge(productId, delta, Long::sum));
+            }
+            System.err.println("Hot inventory flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Long productId : new ArrayList<>(pools.keySet())) {
+            try {
+                disable(productId);
+            } catch (Exception e) {
+                // Left to the lease row and journal; the next startup returns it
+                System.err.println("Could not return hot inventory for product " + productId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void refill() {
+        pools.forEach((productId, pool) -> {
+            if (pool.size() < leaseSize / 2) {
+                try {
+                    lease(productId, pool, leaseSize, 0L);
+                } catch (Exception e) {
+                    System.err.println("Could not refill hot inventory for product " + productId + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Leases up to {@code wanted} more units unless the pool already has that many. Returns false
+     * if another lease held the product for longer than {@code waitMillis}.
+     */
+    private boolean lease(Long productId, Pool pool, long wanted, long waitMillis) {
+        try {
+            if (!pool.leaseLock.tryLock(waitMillis, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            if (pool.closed || pool.size() >= wanted) {
+                return true;
+            }
+            Long taken = transactionTemplate.execute(status -> {
+                Long stock = inventoryService.lockStock(List.of(productId)).get(productId);
+                if (stock == null) {
+                    return 0L;
+                }
+                Long reserved = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM stock_reservation"
+                                + " WHERE product_id = ? AND deducted = 0 AND expires_at > ?",
+                        Long.class, productId, Timestamp.from(Instant.now()));
+                long amount = Math.min(wanted, stock - (reserved != null ? reserved : 0L));
+                if (amount <= 0) {
+                    return 0L;
+                }
+                inventoryService.decrementLocked(Map.of(productId, amount), Map.of(productId, stock));
+                long seq;
+                synchronized (journalLock) {
+                    seq = flushedSeq;
+                }
+                jdbcTemplate.update("INSERT INTO hot_inventory_lease (instance_id, product_id, quantity, flushed_seq)"
+                                + " VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE quantity = quantity + ?",
+                        instanceId, productId, amount, seq, amount);
+                return amount;
+            });
+            if (taken != null && taken > 0) {
+                pool.put(taken);
+            }
+            return true;
+        } finally {
+            pool.leaseLock.unlock();
+        }
+    }
+
+    private void free(Long productId, long quantity) {
+        Pool pool = pools.get(productId);
+        if (pool == null || pool.closed) {
+            // No longer hot here: straight back to the product row
+            transactionTemplate.executeWithoutResult(status -> inventoryService.increment(productId, quantity));
+            return;
+        }
+        journal(productId, quantity);
+        pool.put(quantity);
+        if (pool.closed) {
+            // Raced with disable(): whatever landed after its drain goes to the product row
+            long stranded = pool.drain();
+            if (stranded > 0) {
+                transactionTemplate.executeWithoutResult(status -> inventoryService.increment(productId, stranded));
+            }
+        }
+    }
+
+    private void journal(Long productId, long delta) {
+        long position;
+        synchronized (journalLock) {
+            long seq = nextSeq;
+            byte[] line = (seq + " " + productId + " " + delta + "\n").getBytes(StandardCharsets.US_ASCII);
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the hot inventory journal", e);
+            }
+            nextSeq++;
+            writtenBytes += line.length;
+            position = writtenBytes;
+            unflushed.merge(productId, delta, Long::sum);
+        }
+        sync(position);
+    }
+
+    /**
+     * Group commit: one fsync covers every entry written before it, so concurrent callers
+     * mostly find their entry already synced.
+     */
+    private void sync(long position) {
+        if (syncedBytes >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedBytes >= position) {
+                return;
+            }
+            long target;
+            FileChannel channel;
+            synchronized (journalLock) {
+                target = writtenBytes;
+                channel = journal;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not sync the hot inventory journal", e);
+            }
+            syncedBytes = target;
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(journalDir);
+        Map<Long, long[]> leases = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, quantity, flushed_seq FROM hot_inventory_lease WHERE instance_id = ?",
+                rs -> {
+                    leases.put(rs.getLong(1), new long[] { rs.getLong(2), rs.getLong(3) });
+                },
+                instanceId);
+
+        long maxSeq = 0;
+        List<Path> files = journalFiles();
+        for (Path file : files) {
+            for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length != 3) {
+                    continue; // torn last write
+                }
+                long seq = Long.parseLong(parts[0]);
+                long productId = Long.parseLong(parts[1]);
+                maxSeq = Math.max(maxSeq, seq);
+                long[] lease = leases.get(productId);
+                if (lease != null && seq > lease[1]) {
+                    lease[0] += Long.parseLong(parts[2]);
+                }
+            }
+        }
+
+        if (!leases.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, Long> remaining = new HashMap<>();
+                leases.forEach((productId, lease) -> {
+                    if (lease[0] > 0) {
+                        remaining.put(productId, lease[0]);
+                    }
+                });
+                inventoryService.incrementAll(remaining);
+                jdbcTemplate.update("DELETE FROM hot_inventory_lease WHERE instance_id = ?", instanceId);
+            });
+            System.out.println("Returned hot inventory leases of a previous run for products " + leases.keySet());
+        }
+        synchronized (syncLock) {
+            synchronized (journalLock) {
+                nextSeq = maxSeq + 1;
+                flushedSeq = maxSeq;
+                openJournal(nextSeq);
+            }
+        }
+        deleteJournalsBefore(nextSeq);
+    }
+
+    // Caller holds syncLock and journalLock
+    private void openJournal(long startSeq) throws IOException {
+        FileChannel next = FileChannel.open(journalDir.resolve(JOURNAL_PREFIX + startSeq + JOURNAL_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (journal != null) {
+            journal.force(false);
+            journal.close();
+        }
+        syncedBytes = writtenBytes;
+        journal = next;
+    }
+
+    private void deleteJournalsBefore(long seq) {
+        try {
+            for (Path file : journalFiles()) {
+                if (startSeq(file) < seq) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not delete flushed hot inventory journals: " + e.getMessage());
+        }
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(startSeq(a), startSeq(b)))
+                    .toList();
+        }
+    }
+
+    private static long startSeq(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length()));
+    }
+
+    /**
+     * Striped counter: each thread starts at its own stripe, so allocations on one product spread
+     * over several cache lines instead of all CASing the same one.
+     */
+    private static final class Pool {
+
+        private final AtomicLong[] stripes;
+        private final ReentrantLock leaseLock = new ReentrantLock();
+        private volatile boolean closed;
+
+        private Pool(int stripeCount) {
+            stripes = new AtomicLong[Math.max(1, stripeCount)];
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new AtomicLong();
+            }
+        }
+
+        private boolean take(long quantity) {
+            if (closed) {
+                return false;
+            }
+            int start = home();
+            long needed = quantity;
+            long[] taken = new long[stripes.length];
+            for (int i = 0; i < stripes.length && needed > 0; i++) {
+                int stripe = (start + i) % stripes.length;
+                while (true) {
+                    long current = stripes[stripe].get();
+                    if (current <= 0) {
+                        break;
+                    }
+                    long amount = Math.min(current, needed);
+                    if (stripes[stripe].compareAndSet(current, current - amount)) {
+                        taken[stripe] += amount;
+                        needed -= amount;
+                        break;
+                    }
+                }
+            }
+            if (needed > 0) {
+                for (int i = 0; i < stripes.length; i++) {
+                    if (taken[i] > 0) {
+                        stripes[i].addAndGet(taken[i]);
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+
+        private void put(long quantity) {
+            stripes[home()].addAndGet(quantity);
+        }
+
+        private long size() {
+            long size = 0;
+            for (AtomicLong stripe : stripes) {
+                size += stripe.get();
+            }
+            return size;
+        }
+
+        private long drain() {
+            long drained = 0;
+            for (AtomicLong stripe : stripes) {
+                drained += stripe.getAndSet(0);
+            }
+            return drained;
+        }
+
+        private int home() {
+            return (int) (Thread.currentThread().getId() % stripes.length);
+        }
+    }
+}
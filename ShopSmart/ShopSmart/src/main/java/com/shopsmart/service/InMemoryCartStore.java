@@ -0,0 +1,284 @@
+package com.shopsmart.service;
+
+import com.shopsmart.dto.CartDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Live carts held in this instance, split into shards by customer id, each with its own map and
+ * dirty set so the background flush and eviction walk one shard at a time.
+ *
+ * A change takes the cart's lock and keeps it until the caller's transaction completes; the new
+ * state is installed and marked dirty only on commit. Dirty carts are written back in batches
+ * every {@code flush-ms}, before checkout and before an idle cart is dropped. Only the cart row
+ * itself is inserted synchronously, on a customer's first change, because stock holds reference it.
+ */
+@Service
+@ConditionalOnProperty(name = "shopsmart.cart.store.type", havingValue = "memory")
+public class InMemoryCartStore implements CartStore {
+
+    private static final class Entry {
+        final ReentrantLock lock = new ReentrantLock();
+        // null once loaded means the customer has no cart
+        volatile CartDTO state;
+        volatile boolean loaded;
+        boolean removed;
+        volatile boolean dirty;
+        volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    private static final class Shard {
+        final Map<Long, Entry> carts = new ConcurrentHashMap<>();
+        final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    }
+
+    private final CartPersistence cartPersistence;
+    private final TransactionTemplate transactionTemplate;
+    private final Shard[] shards;
+    private final long idleMillis;
+    private final int flushBatchSize;
+    private final long lockTimeoutMillis;
+
+    public InMemoryCartStore(CartPersistence cartPersistence, TransactionTemplate transactionTemplate,
+                             @Value("${shopsmart.cart.store.shards:16}") int shards,
+                             @Value("${shopsmart.cart.store.idle-minutes:30}") long idleMinutes,
+                             @Value("${shopsmart.cart.store.flush-batch-size:200}") int flushBatchSize,
+                             @Value("${shopsmart.cart.store.lock-timeout-ms:2000}") long lockTimeoutMillis) {
+        this.cartPersistence = cartPersistence;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = new Shard[Math.max(shards, 1)];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard();
+        }
+        this.idleMillis = TimeUnit.MINUTES.toMillis(idleMinutes);
+        this.flushBatchSize = flushBatchSize;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    @Override
+    public Optional<CartDTO> find(Long customerId) {
+        Entry entry = shard(customerId).carts.get(customerId);
+        if (entry == null || !entry.loaded) {
+            entry = lock(customerId);
+            try {
+                load(entry, customerId);
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        CartDTO state = entry.state;
+        return state != null ? Optional.of(CartPersistence.copyOf(state)) : Optional.empty();
+    }
+
+    @Override
+    public <T> T update(Long customerId, Function<CartDTO, T> change) {
+        requireTransaction();
+        Entry entry = lock(customerId);
+        boolean handedOver = false;
+        try {
+            load(entry, customerId);
+            CartDTO state = entry.state != null ? CartPersistence.copyOf(entry.state) : cartPersistence.create(customerId);
+            T result = change.apply(state);
+            CartDTO pending = CartPersistence.copyOf(state);
+            Shard shard = shard(customerId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        entry.state = pending;
+                        entry.dirty = true;
+                        shard.dirty.add(customerId);
+                    }
+                    entry.lastAccess = System.currentTimeMillis();
+                    entry.lock.unlock();
+                }
+            });
+            handedOver = true;
+            return result;
+        } finally {
+            if (!handedOver) {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public <T> T withPersistedCart(Long customerId, Supplier<T> action) {
+        requireTransaction();
+        Entry entry = lock(customerId);
+        boolean handedOver = false;
+        try {
+            if (entry.dirty && entry.state != null) {
+                cartPersistence.write(entry.state);
+            }
+            T result = action.get();
+            Shard shard = shard(customerId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        // The action may have changed the rows; reload on next use
+                        entry.loaded = false;
+                        entry.state = null;
+                        entry.dirty = false;
+                        shard.dirty.remove(customerId);
+                    }
+                    entry.lock.unlock();
+                }
+            });
+            handedOver = true;
+            return result;
+        } finally {
+            if (!handedOver) {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes dirty carts back in batches of {@code flush-batch-size} per transaction, then drops
+     * carts idle for longer than {@code idle-minutes}. Carts locked by a change in flight are
+     * skipped and picked up by the next run.
+     */
+    @Scheduled(fixedDelayString = "${shopsmart.cart.store.flush-ms:1000}")
+    public void flushAndEvict() {
+        try {
+            long idleBefore = System.currentTimeMillis() - idleMillis;
+            int written = 0;
+            int evicted = 0;
+            for (Shard shard : shards) {
+                written += flush(shard, 0L);
+                Iterator<Map.Entry<Long, Entry>> it = shard.carts.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Long, Entry> e = it.next();
+                    Entry entry = e.getValue();
+                    if (entry.lastAccess >= idleBefore || entry.dirty || !entry.lock.tryLock()) {
+                        continue;
+                    }
+                    try {
+                        if (!entry.dirty) {
+                            entry.removed = true;
+                            it.remove();
+                            evicted++;
+                        }
+                    } finally {
+                        entry.lock.unlock();
+                    }
+                }
+            }
+            if (written > 0 || evicted > 0) {
+                System.out.println("Cart store: wrote back " + written + " carts, evicted " + evicted + " idle carts.");
+            }
+        } catch (Exception e) {
+            System.err.println("Cart store write-back failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        int written = 0;
+        for (Shard shard : shards) {
+            try {
+                written += flush(shard, lockTimeoutMillis);
+            } catch (Exception e) {
+                System.err.println("Cart store write-back on shutdown failed: " + e.getMessage());
+            }
+        }
+        System.out.println("Cart store: wrote back " + written + " carts on shutdown.");
+    }
+
+    private int flush(Shard shard, long waitMillis) {
+        int written = 0;
+        List<Long> ids = new ArrayList<>(shard.dirty);
+        for (int from = 0; from < ids.size(); from += flushBatchSize) {
+            List<Entry> locked = new ArrayList<>();
+            List<Long> lockedIds = new ArrayList<>();
+            try {
+                for (Long customerId : ids.subList(from, Math.min(from + flushBatchSize, ids.size()))) {
+                    Entry entry = shard.carts.get(customerId);
+                    if (entry == null || !tryLock(entry, waitMillis)) {
+                        continue;
+                    }
+                    if (entry.dirty && entry.state != null) {
+                        locked.add(entry);
+                        lockedIds.add(customerId);
+                    } else {
+                        entry.lock.unlock();
+                    }
+                }
+                if (locked.isEmpty()) {
+                    continue;
+                }
+                List<CartDTO> states = new ArrayList<>();
+                locked.forEach(entry -> states.add(entry.state));
+                transactionTemplate.executeWithoutResult(status -> cartPersistence.writeAll(states));
+                locked.forEach(entry -> entry.dirty = false);
+                lockedIds.forEach(shard.dirty::remove);
+                written += locked.size();
+            } finally {
+                locked.forEach(entry -> entry.lock.unlock());
+            }
+        }
+        return written;
+    }
+
+    private void load(Entry entry, Long customerId) {
+        if (!entry.loaded) {
+            entry.state = cartPersistence.load(customerId).orElse(null);
+            entry.loaded = true;
+        }
+    }
+
+    // Locks the customer's live entry, retrying if eviction removed the one found
+    private Entry lock(Long customerId) {
+        Shard shard = shard(customerId);
+        while (true) {
+            Entry entry = shard.carts.computeIfAbsent(customerId, id -> new Entry());
+            if (!tryLock(entry, lockTimeoutMillis)) {
+                throw new IllegalStateException("Cart for customer " + customerId + " is busy, please retry.");
+            }
+            if (!entry.removed) {
+                return entry;
+            }
+            entry.lock.unlock();
+        }
+    }
+
+    private static boolean tryLock(Entry entry, long waitMillis) {
+        try {
+            return waitMillis > 0 ? entry.lock.tryLock(waitMillis, TimeUnit.MILLISECONDS) : entry.lock.tryLock();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Shard shard(Long customerId) {
+        return shards[(int) Math.floorMod(customerId, (long) shards.length)];
+    }
+
+    private static void requireTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Cart changes must run inside a transaction.");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.shopsmart.service;
+
+import com.shopsmart.event.ProductStockChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Stock changes as single conditional statements, instead of read-modify-save on the entity.
+ *
+ * {@code UPDATE ... SET stock = stock - ? WHERE id = ? AND stock >= ?} cannot oversell and cannot
+ * lose a concurrent update. Decrements go through {@link #lockStock} then {@link #decrementLocked},
+ * so callers (StockReservationService) can check the locked stock against their holds first;
+ * every variant updates the whole set in one statement.
+ *
+ * These updates bypass the entity listeners, so each change is announced with a
+ * {@link ProductStockChangedEvent}, and crossing zero queues a search index upsert for the
+ * in-stock filter.
+ */
+@Service
+public class InventoryService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductIndexOutboxService productIndexOutboxService;
+
+    public InventoryService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                            ProductIndexOutboxService productIndexOutboxService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.productIndexOutboxService = productIndexOutboxService;
+    }
+
+    /**
+     * Locks the product rows (in id order, so concurrent checkouts cannot deadlock) and returns
+     * their stock. Missing products are absent from the result.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Long> lockStock(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Long> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, stock_quantity FROM product WHERE product_id IN ("
+                        + placeholders(productIds.size()) + ") ORDER BY product_id FOR UPDATE",
+                rs -> {
+                    stock.put(rs.getLong(1), rs.getLong(2));
+                },
+                productIds.toArray());
+        return stock;
+    }
+
+    /**
+     * Applies decrements already validated against {@code lockedStock}, as returned by
+     * {@link #lockStock} in this transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void decrementLocked(Map<Long, Long> quantities, Map<Long, Long> lockedStock) {
+        SortedMap<Long, Long> positive = positive(quantities);
+        if (positive.isEmpty()) {
+            return;
+        }
+        String cases = caseExpression(positive.size());
+        String sql = "UPDATE product SET stock_quantity = stock_quantity - " + cases
+                + " WHERE product_id IN (" + placeholders(positive.size()) + ")"
+                + " AND stock_quantity >= " + cases;
+        List<Object> params = new ArrayList<>();
+        addCaseParams(params, positive);
+        params.addAll(positive.keySet());
+        addCaseParams(params, positive);
+        // The rows are locked, so this cannot fall short; the condition stays as a safety net
+        if (jdbcTemplate.update(sql, params.toArray()) != positive.size()) {
+            throw new IllegalStateException("Stock changed under a row lock for products " + positive.keySet());
+        }
+
+        Map<Long, Long> deltas = new HashMap<>();
+        Map<Long, Long> after = new HashMap<>();
+        positive.forEach((id, quantity) -> {
+            deltas.put(id, -quantity);
+            after.put(id, lockedStock.get(id) - quantity);
+        });
+        announce(deltas, after);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void increment(Long productId, long quantity) {
+        incrementAll(Map.of(productId, quantity));
+    }
+
+    /**
+     * Returns stock for every product in one statement (cart removal, order cancellation).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void incrementAll(Map<Long, Long> quantities) {
+        SortedMap<Long, Long> positive = positive(quantities);
+        if (positive.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE product SET stock_quantity = stock_quantity + " + caseExpression(positive.size())
+                + " WHERE product_id IN (" + placeholders(positive.size()) + ")";
+        List<Object> params = new ArrayList<>();
+        addCaseParams(params, positive);
+        params.addAll(positive.keySet());
+        jdbcTemplate.update(sql, params.toArray());
+        announce(positive, getStock(positive.keySet()));
+    }
+
+    public long getStock(Long productId) {
+        return getStock(List.of(productId)).getOrDefault(productId, 0L);
+    }
+
+    public Map<Long, Long> getStock(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Long> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, stock_quantity FROM product WHERE product_id IN ("
+                        + placeholders(productIds.size()) + ")",
+                rs -> {
+                    stock.put(rs.getLong(1), rs.getLong(2));
+                },
+                productIds.toArray());
+        return stock;
+    }
+
+    /**
+     * Publishes the new stock (read while this transaction holds the row locks, so exact);
+     * products that crossed zero are queued for reindexing.
+     */
+    private void announce(Map<Long, Long> deltas, Map<Long, Long> stock) {
+        List<Long> crossedZero = new ArrayList<>();
+        stock.forEach((productId, quantity) -> {
+            long before = quantity - deltas.get(productId);
+            if ((before > 0) != (quantity > 0)) {
+                crossedZero.add(productId);
+            }
+            eventPublisher.publishEvent(new ProductStockChangedEvent(productId, before, quantity));
+        });
+        if (!crossedZero.isEmpty()) {
+            productIndexOutboxService.enqueueUpserts(crossedZero);
+        }
+    }
+
+    private static SortedMap<Long, Long> positive(Map<Long, Long> quantities) {
+        // Sorted so concurrent multi-product updates take row locks in the same order
+        return quantities.entrySet().stream()
+                .filter(entry -> entry.getValue() != null && entry.getValue() > 0)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, Long::sum, TreeMap::new));
+    }
+
+    private static String caseExpression(int size) {
+        StringBuilder sql = new StringBuilder("CASE product_id");
+        for (int i = 0; i < size; i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        return sql.append(" END").toString();
+    }
+
+    private static void addCaseParams(List<Object> params, Map<Long, Long> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            params.add(productId);
+            params.add(quantity);
+        });
+    }
+
+    private static String placeholders(int size) {
+        return String.join(", ", Collections.nCopies(size, "?"));
+    }
+}
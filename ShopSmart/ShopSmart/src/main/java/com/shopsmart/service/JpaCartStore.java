@@ -0,0 +1,49 @@
+package com.shopsmart.service;
+
+import com.shopsmart.dto.CartDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Carts kept only in MySQL: reads go to the projection query, changes lock the cart row and are
+ * written before the caller's transaction commits.
+ */
+@Service
+@ConditionalOnProperty(name = "shopsmart.cart.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+
+    private final CartPersistence cartPersistence;
+
+    public JpaCartStore(CartPersistence cartPersistence) {
+        this.cartPersistence = cartPersistence;
+    }
+
+    @Override
+    public Optional<CartDTO> find(Long customerId) {
+        return cartPersistence.load(customerId);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> T update(Long customerId, Function<CartDTO, T> change) {
+        CartDTO state = cartPersistence.lock(customerId)
+                ? cartPersistence.load(customerId).orElseThrow()
+                : cartPersistence.create(customerId);
+        T result = change.apply(state);
+        cartPersistence.write(state);
+        return result;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> T withPersistedCart(Long customerId, Supplier<T> action) {
+        cartPersistence.lock(customerId);
+        return action.get();
+    }
+}
@@ -0,0 +1,302 @@
+package com.shopsmart.service;
+
+import com.shopsmart.document.ProductDocument;
+import com.shopsmart.entity.Product;
+import com.shopsmart.event.ProductCreatedEvent;
+import com.shopsmart.event.ProductDeletedEvent;
+import com.shopsmart.event.ProductStockChangedEvent;
+import com.shopsmart.event.ProductUpdatedEvent;
+import com.shopsmart.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-JVM inverted index over product name, description and category name, used as the
+ * degraded-mode search backend while Elasticsearch is unavailable (see SearchCircuitBreaker).
+ *
+ * Loaded from MySQL at startup and kept current from the product change events. Holds the
+ * searchable text, its term weights and the fields needed for filters and facets. Scoring is a
+ * plain idf-weighted term match with name hits counted three times.
+ */
+@Service
+public class LocalProductSearchIndex {
+
+    private static final float NAME_BOOST = 3.0f;
+
+    public record Hit(Long id, double score, String name, String description, Long categoryId,
+                      String categoryName, BigDecimal price, long stockQuantity) {
+    }
+
+    private record Entry(String name, String description, Long categoryId, String categoryName,
+                         BigDecimal price, long stockQuantity, Map<String, Float> termWeights) {
+    }
+
+    private final ProductRepository productRepository;
+
+    @Value("${shopsmart.search.local-index.load-page-size:1000}")
+    private int loadPageSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    // term -> product ids containing it
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private volatile boolean loaded;
+
+    public LocalProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::load, "local-search-index-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductCreated(ProductCreatedEvent event) {
+        index(event.getProduct());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductUpdated(ProductUpdatedEvent event) {
+        index(event.getProduct());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductDeleted(ProductDeletedEvent event) {
+        remove(event.getProductId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductStockChanged(ProductStockChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(event.getProductId());
+            if (entry != null) {
+                entries.put(event.getProductId(), new Entry(entry.name(), entry.description(), entry.categoryId(),
+                        entry.categoryName(), entry.price(), event.getStockQuantity(), entry.termWeights()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All products matching any query term (or every product for a blank query) that pass the
+     * filters, best score first, ties broken by id.
+     */
+    public List<Hit> search(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, boolean inStock) {
+        List<String> terms = tokenize(query);
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = new HashMap<>();
+            if (terms.isEmpty()) {
+                entries.keySet().forEach(id -> scores.put(id, 1.0));
+            } else {
+                int total = Math.max(1, entries.size());
+                for (String term : new HashSet<>(terms)) {
+                    Set<Long> ids = postings.get(term);
+                    if (ids == null) {
+                        continue;
+                    }
+                    double idf = Math.log(1.0 + (double) total / ids.size());
+                    for (Long id : ids) {
+                        scores.merge(id, entries.get(id).termWeights().get(term) * idf, Double::sum);
+                    }
+                }
+            }
+            scores.forEach((id, score) -> {
+                Entry entry = entries.get(id);
+                if (matches(entry, categoryId, minPrice, maxPrice, inStock)) {
+                    hits.add(new Hit(id, score, entry.name(), entry.description(), entry.categoryId(),
+                            entry.categoryName(), entry.price(), entry.stockQuantity()));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort((a, b) -> a.score() != b.score() ? Double.compare(b.score(), a.score()) : a.id().compareTo(b.id()));
+        return hits;
+    }
+
+    /**
+     * Degraded-mode equivalent of the name/description repository search.
+     */
+    public List<ProductDocument> searchDocuments(String query) {
+        List<ProductDocument> documents = new ArrayList<>();
+        for (Hit hit : search(query, null, null, null, false)) {
+            ProductDocument document = new ProductDocument();
+            document.setId(hit.id());
+            document.setName(hit.name());
+            document.setDescription(hit.description());
+            document.setCategoryId(hit.categoryId());
+            document.setCategoryName(hit.categoryName());
+            document.setPrice(hit.price());
+            document.setStockQuantity((int) Math.min(hit.stockQuantity(), Integer.MAX_VALUE));
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    public void index(Product product) {
+        index(product, false);
+    }
+
+    private void index(Product product, boolean onlyIfAbsent) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        String categoryName = product.getCategory() != null ? product.getCategory().getName() : null;
+        long stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0L;
+
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(product.getId());
+            if (onlyIfAbsent && previous != null) {
+                return;
+            }
+            Map<String, Float> termWeights;
+            if (previous != null && Objects.equals(previous.name(), product.getName())
+                    && Objects.equals(previous.description(), product.getDescription())
+                    && Objects.equals(previous.categoryName(), categoryName)) {
+                // Stock/price-only update, the common case: no re-tokenizing
+                termWeights = previous.termWeights();
+            } else {
+                if (previous != null) {
+                    unpost(product.getId(), previous);
+                }
+                termWeights = weigh(product.getName(), product.getDescription(), categoryName);
+                for (String term : termWeights.keySet()) {
+                    postings.computeIfAbsent(term, t -> new HashSet<>()).add(product.getId());
+                }
+            }
+            entries.put(product.getId(), new Entry(product.getName(), product.getDescription(), categoryId,
+                    categoryName, product.getPrice(), stock, termWeights));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.remove(productId);
+            if (previous != null) {
+                unpost(productId, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        try {
+            long afterId = 0L;
+            while (true) {
+                List<Product> page = productRepository.findPageAfter(afterId, null, null, null, false,
+                        PageRequest.of(0, loadPageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Product product : page) {
+                    // An event that arrived during the load is newer than this row
+                    index(product, true);
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            loaded = true;
+            System.out.println("Local search index loaded with " + size() + " products.");
+        } catch (Exception e) {
+            System.err.println("Could not load the local search index: " + e.getMessage());
+        }
+    }
+
+    private void unpost(Long productId, Entry entry) {
+        for (String term : entry.termWeights().keySet()) {
+            Set<Long> ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private boolean matches(Entry entry, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, boolean inStock) {
+        if (categoryId != null && !categoryId.equals(entry.categoryId())) {
+            return false;
+        }
+        if (minPrice != null && (entry.price() == null || entry.price().compareTo(minPrice) < 0)) {
+            return false;
+        }
+        if (maxPrice != null && (entry.price() == null || entry.price().compareTo(maxPrice) > 0)) {
+            return false;
+        }
+        return !inStock || entry.stockQuantity() > 0;
+    }
+
+    private static Map<String, Float> weigh(String name, String description, String categoryName) {
+        Map<String, Float> weights = new HashMap<>();
+        for (String term : tokenize(name)) {
+            weights.merge(term, NAME_BOOST, Float::sum);
+        }
+        for (String term : tokenize(description)) {
+            weights.merge(term, 1.0f, Float::sum);
+        }
+        for (String term : tokenize(categoryName)) {
+            weights.merge(term, 1.0f, Float::sum);
+        }
+        return weights;
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > 1) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+}
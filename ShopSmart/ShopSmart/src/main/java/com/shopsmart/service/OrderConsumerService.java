@@ -1,37 +1,121 @@
 package com.shopsmart.service;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
 
 import com.shopsmart.config.KafkaConstants;
 import com.shopsmart.dto.OrderDTO;
-import com.shopsmart.exception.ResourceNotFoundException;
 
+/**
+ * Listeners for order messages. {@code shop-smart-orders} is read in batches, records one by one
+ * in partition order. A record that fails is moved to {@code shop-smart-orders-retry} and the batch
+ * goes on, so one bad message does not hold up the other customers on its partition. From there
+ * it is retried through backoff topics with growing delays and finally parked on the DLT, where
+ * admins can inspect and replay it (OrderDeadLetterService).
+ */
 @Service
 public class OrderConsumerService {
 
+    private static final LogAccessor LOG = new LogAccessor(LogFactory.getLog(OrderConsumerService.class));
+
     @Autowired
-    private OrderService orderService;
+    private OrderPlacementService orderPlacementService;
 
-    @KafkaListener(topics = KafkaConstants.TOPIC_ORDERS, groupId = KafkaConstants.GROUP_ORDERS)
-    public void consumeOrderMessage(OrderDTO orderDTO) {
-        try {
-            Long customerId = orderDTO.getCustomerId();
+    @Autowired
+    private OrderProducerService orderProducerService;
 
-            if (customerId == null) {
-                throw new IllegalArgumentException("Customer ID is missing in Kafka message.");
+    @KafkaListener(topics = KafkaConstants.TOPIC_ORDERS, groupId = KafkaConstants.GROUP_ORDERS)
+    public void consumeOrderMessages(List<ConsumerRecord<String, OrderDTO>> records) {
+        for (ConsumerRecord<String, OrderDTO> record : records) {
+            if (record.value() == null) {
+                DeserializationException unreadable = SerializationUtils.getExceptionFromHeader(record,
+                        SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG);
+                if (unreadable == null) {
+                    // Empty message, there is no command to place
+                    System.err.println("Skipping empty order message at " + record.topic() + "-"
+                            + record.partition() + "@" + record.offset());
+                    continue;
+                }
+                // Redelivering it cannot help; the error handler parks its raw bytes on the DLT
+                System.err.println("Order message at " + record.topic() + "-" + record.partition() + "@"
+                        + record.offset() + " is unreadable, moving it to " + KafkaConstants.TOPIC_ORDERS_DLT);
+                throw new BatchListenerFailedException("Order message at " + record.topic() + "-"
+                        + record.partition() + "@" + record.offset() + " is unreadable", unreadable, record);
             }
+            try {
+                // Placement is idempotent per command; business failures are recorded, not thrown
+                orderPlacementService.consume(record.value(), record.partition(), record.offset());
+            } catch (RuntimeException e) {
+                System.err.println("Order message at " + record.topic() + "-" + record.partition() + "@"
+                        + record.offset() + " failed, moving it to " + KafkaConstants.TOPIC_ORDERS_RETRY + ": " + e.getMessage());
+                moveToRetry(record, e);
+            }
+        }
+    }
 
-            // Call business logic to create order from customer cart
-            OrderDTO createdOrder = orderService.createOrderFromCart(customerId);
+    /**
+     * Retries of failed order messages. Each failure sends the record on to the next backoff topic,
+     * whose consumer holds only that partition until the record is due; after the last attempt
+     * the record goes to the DLT.
+     */
+    @RetryableTopic(
+            attempts = "${shopsmart.kafka.orders.retry-topic.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${shopsmart.kafka.orders.retry-topic.delay-ms:2000}",
+                    multiplierExpression = "${shopsmart.kafka.orders.retry-topic.multiplier:3}",
+                    maxDelayExpression = "${shopsmart.kafka.orders.retry-topic.max-delay-ms:60000}"),
+            kafkaTemplate = "orderKafkaTemplate",
+            listenerContainerFactory = "orderRetryListenerFactory",
+            retryTopicSuffix = "-backoff",
+            dltTopicSuffix = "-dlt",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            numPartitions = "${shopsmart.kafka.orders.partitions:3}",
+            replicationFactor = "1")
+    @KafkaListener(topics = KafkaConstants.TOPIC_ORDERS_RETRY, groupId = KafkaConstants.GROUP_ORDERS_RETRY,
+            containerFactory = "orderRetryListenerFactory")
+    public void retryOrderMessage(ConsumerRecord<String, OrderDTO> record) {
+        if (record.value() != null) {
+            orderPlacementService.consume(record.value(), record.partition(), record.offset());
+        }
+    }
 
-            System.out.println("✅ Order created successfully: " + createdOrder.getId());
-        } catch (ResourceNotFoundException e) {
-            System.err.println("Error: " + e.getMessage());
+    // The command stays PENDING until an admin replays the record
+    @DltHandler
+    public void deadOrderMessage(ConsumerRecord<String, OrderDTO> record) {
+        OrderDTO message = record.value();
+        System.err.println("❌ Order message " + (message != null ? message.getIdempotencyKey() : "(unreadable)")
+                + " gave up after retries, parked at " + record.topic() + "-" + record.partition() + "@"
+                + record.offset() + ": " + OrderDeadLetterService.header(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+    }
+
+    private void moveToRetry(ConsumerRecord<String, OrderDTO> record, RuntimeException cause) {
+        OrderDTO message = record.value();
+        // Its coordinates change on the retry topic; keep the key the command is deduped on
+        message.setIdempotencyKey(orderPlacementService.commandKey(message, record.partition(), record.offset()));
+        try {
+            orderProducerService.send(KafkaConstants.TOPIC_ORDERS_RETRY, message).get(10, TimeUnit.SECONDS);
         } catch (Exception e) {
-            System.err.println("Failed to process order message: " + orderDTO);
-            e.printStackTrace();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // Could not hand it off; retry in place (blocking), then the error handler sends it to the DLT
+            throw new BatchListenerFailedException("Order message at " + record.topic() + "-"
+                    + record.partition() + "@" + record.offset() + " failed", cause, record);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+package com.shopsmart.service;
+
+import com.shopsmart.config.KafkaConstants;
+import com.shopsmart.dto.OrderDTO;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Admin access to order messages parked on the DLT. Records are never removed from the topic;
+ * the replay position is the committed offset of the {@code shop-smart-orders-dlt-replay} group,
+ * so {@link #peek} shows what the next {@link #replay} would send. Replayed records go back to
+ * {@code shop-smart-orders} with their idempotency key, so replaying one twice places nothing twice.
+ */
+@Service
+public class OrderDeadLetterService {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, OrderDTO> orderConsumerFactory;
+    private final OrderProducerService orderProducerService;
+
+    public OrderDeadLetterService(ConsumerFactory<String, OrderDTO> orderConsumerFactory,
+                                  OrderProducerService orderProducerService) {
+        this.orderConsumerFactory = orderConsumerFactory;
+        this.orderProducerService = orderProducerService;
+    }
+
+    /**
+     * Up to {@code limit} records not replayed yet, oldest first per partition.
+     */
+    public List<Map<String, Object>> peek(int limit) {
+        try (Consumer<String, OrderDTO> consumer = open()) {
+            return read(consumer, limit).stream().map(OrderDeadLetterService::describe).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Sends up to {@code limit} records back to the order topic, then moves the replay position
+     * past them. Unreadable records cannot be replayed and are only stepped over. If a send fails
+     * the position is left alone, and the next replay sends the whole range again.
+     */
+    public synchronized Map<String, Object> replay(int limit) {
+        try (Consumer<String, OrderDTO> consumer = open()) {
+            List<ConsumerRecord<String, OrderDTO>> records = read(consumer, limit);
+            List<CompletableFuture<?>> sends = new ArrayList<>();
+            Map<TopicPartition, OffsetAndMetadata> next = new HashMap<>();
+            int skipped = 0;
+            for (ConsumerRecord<String, OrderDTO> record : records) {
+                if (record.value() != null) {
+                    sends.add(orderProducerService.send(KafkaConstants.TOPIC_ORDERS, record.value()));
+                } else {
+                    skipped++;
+                }
+                next.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+            }
+            try {
+                CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Replay of dead order messages failed, nothing was marked replayed: "
+                        + e.getMessage(), e);
+            }
+            if (!next.isEmpty()) {
+                consumer.commitSync(next);
+            }
+            System.out.println("Replayed " + sends.size() + " dead order messages, skipped " + skipped + " unreadable.");
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("replayed", sends.size());
+            result.put("skippedUnreadable", skipped);
+            return result;
+        }
+    }
+
+    private Consumer<String, OrderDTO> open() {
+        Properties overrides = new Properties();
+        // Only replay() moves the position, explicitly
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        Consumer<String, OrderDTO> consumer =
+                orderConsumerFactory.createConsumer(KafkaConstants.GROUP_ORDERS_DLT_REPLAY, null, "-admin", overrides);
+        try {
+            List<PartitionInfo> partitions = consumer.partitionsFor(KafkaConstants.TOPIC_ORDERS_DLT);
+            if (partitions == null || partitions.isEmpty()) {
+                return consumer;
+            }
+            Set<TopicPartition> assigned = partitions.stream()
+                    .map(p -> new TopicPartition(p.topic(), p.partition()))
+                    .collect(Collectors.toSet());
+            consumer.assign(assigned);
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(assigned);
+            for (TopicPartition partition : assigned) {
+                OffsetAndMetadata position = committed.get(partition);
+                if (position != null) {
+                    consumer.seek(partition, position.offset());
+                } else {
+                    consumer.seekToBeginning(List.of(partition));
+                }
+            }
+            return consumer;
+        } catch (RuntimeException e) {
+            consumer.close();
+            throw e;
+        }
+    }
+
+    // Polls until the limit is reached or a poll comes back empty
+    private static List<ConsumerRecord<String, OrderDTO>> read(Consumer<String, OrderDTO> consumer, int limit) {
+        List<ConsumerRecord<String, OrderDTO>> records = new ArrayList<>();
+        if (consumer.assignment().isEmpty()) {
+            return records;
+        }
+        while (records.size() < limit) {
+            int before = records.size();
+            for (ConsumerRecord<String, OrderDTO> record : consumer.poll(POLL_TIMEOUT)) {
+                if (records.size() == limit) {
+                    break;
+                }
+                records.add(record);
+            }
+            if (records.size() == before) {
+                break;
+            }
+        }
+        return records;
+    }
+
+    private static Map<String, Object> describe(ConsumerRecord<String, OrderDTO> record) {
+        OrderDTO message = record.value();
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("partition", record.partition());
+        entry.put("offset", record.offset());
+        entry.put("key", record.key());
+        entry.put("timestamp", Instant.ofEpochMilli(record.timestamp()));
+        entry.put("readable", message != null);
+        entry.put("trackingId", message != null ? message.getIdempotencyKey() : null);
+        entry.put("customerId", message != null ? message.getCustomerId() : null);
+        entry.put("originalTopic", header(record, KafkaHeaders.DLT_ORIGINAL_TOPIC));
+        entry.put("error", header(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+        return entry;
+    }
+
+    static String header(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null && header.value() != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
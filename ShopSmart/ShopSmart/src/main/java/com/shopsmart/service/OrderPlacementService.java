@@ -0,0 +1,170 @@
+package com.shopsmart.service;
+
+import com.shopsmart.config.KafkaConstants;
+import com.shopsmart.dto.OrderDTO;
+import com.shopsmart.dto.OrderPlacementStatusDTO;
+import com.shopsmart.entity.ProcessedOrderCommand;
+import com.shopsmart.entity.ProcessedOrderCommand.Status;
+import com.shopsmart.exception.ResourceNotFoundException;
+import com.shopsmart.repository.ProcessedOrderCommandRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Asynchronous checkout. {@link #submit} records a PENDING command under the caller's idempotency
+ * key and publishes it to {@code shop-smart-orders}, keyed by customer id so one customer's
+ * commands stay in order on one partition. The consumer calls {@link #process}, which locks the
+ * command row, places the order and marks it COMPLETED in one transaction; a redelivered or
+ * resubmitted command finds the row settled and does nothing.
+ */
+@Service
+public class OrderPlacementService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final ProcessedOrderCommandRepository commandRepository;
+    private final OrderService orderService;
+    private final OrderProducerService orderProducerService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderPlacementService(ProcessedOrderCommandRepository commandRepository, OrderService orderService,
+                                 OrderProducerService orderProducerService,
+                                 JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.commandRepository = commandRepository;
+        this.orderService = orderService;
+        this.orderProducerService = orderProducerService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Accepts a checkout for later placement. Submitting the same key again returns the status of
+     * the first submission instead of queueing a second order. Without a key one is generated, and
+     * the command is then only protected against redelivery, not against a client retrying.
+     */
+    public OrderPlacementStatusDTO submit(Long customerId, String idempotencyKey) {
+        String key = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? idempotencyKey.trim() : UUID.randomUUID().toString();
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be at most " + MAX_KEY_LENGTH + " characters.");
+        }
+        if (!insertIfAbsent(key, customerId)) {
+            return toStatus(ownedBy(commandRepository.findById(key)
+                    .orElseThrow(() -> new ResourceNotFoundException("Order placement", "trackingId", key)), customerId));
+        }
+
+        OrderDTO command = new OrderDTO();
+        command.setCustomerId(customerId);
+        command.setIdempotencyKey(key);
+        try {
+            orderProducerService.send(KafkaConstants.TOPIC_ORDERS, command)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            markFailed(key, "Could not queue the order, please try again.");
+                        }
+                    });
+        } catch (RuntimeException e) {
+            // Nothing was published, so the PENDING row would otherwise never settle
+            markFailed(key, "Could not queue the order, please try again.");
+            throw e;
+        }
+        return getStatus(key);
+    }
+
+    /**
+     * Entry point for consumers of {@code shop-smart-orders}. Messages carrying an order id are
+     * "order created" notices from the synchronous checkout, not commands. A command without an
+     * idempotency key (older producers) is deduped on its topic coordinates, which stay the same
+     * across redeliveries.
+     */
+    public void consume(OrderDTO message, int partition, long offset) {
+        if (message.getIdempotencyKey() == null && message.getId() != null) {
+            System.out.println("Order " + message.getId() + " was placed synchronously, nothing to do.");
+            return;
+        }
+        if (message.getCustomerId() == null) {
+            System.err.println("Customer ID is missing in order message at " + KafkaConstants.TOPIC_ORDERS + "-"
+                    + partition + "@" + offset + ", skipping.");
+            return;
+        }
+        process(commandKey(message, partition, offset), message.getCustomerId());
+    }
+
+    /**
+     * The key a message is deduped on. Set it on a message before moving it to another topic, where
+     * its coordinates are new, so the retries still settle the original command.
+     */
+    public String commandKey(OrderDTO message, int partition, long offset) {
+        return message.getIdempotencyKey() != null
+                ? message.getIdempotencyKey()
+                : KafkaConstants.TOPIC_ORDERS + "-" + partition + "@" + offset;
+    }
+
+    /**
+     * Places the order for a command at most once. Business failures (empty cart, no stock) are
+     * recorded as FAILED; anything else is rethrown so the message is delivered again.
+     */
+    public void process(String key, Long customerId) {
+        insertIfAbsent(key, customerId);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                ProcessedOrderCommand command = commandRepository.findForUpdate(key)
+                        .orElseThrow(() -> new ResourceNotFoundException("Order placement", "trackingId", key));
+                if (command.getStatus() != Status.PENDING) {
+                    System.out.println("Order placement " + key + " already " + command.getStatus() + ", skipping.");
+                    return;
+                }
+                if (!command.getCustomerId().equals(customerId)) {
+                    // A reused key must not settle someone else's command
+                    System.err.println("Order placement " + key + " belongs to customer " + command.getCustomerId()
+                            + ", not " + customerId + ", skipping.");
+                    return;
+                }
+                OrderDTO order = orderService.createOrderFromCart(customerId);
+                command.setStatus(Status.COMPLETED);
+                command.setOrderId(order.getId());
+                command.setCompletedAt(Instant.now());
+                System.out.println("✅ Order " + order.getId() + " placed for command " + key);
+            });
+        } catch (IllegalArgumentException | ResourceNotFoundException e) {
+            markFailed(key, e.getMessage());
+            System.err.println("Order placement " + key + " failed: " + e.getMessage());
+        }
+    }
+
+    public OrderPlacementStatusDTO getStatus(String trackingId) {
+        return toStatus(commandRepository.findById(trackingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order placement", "trackingId", trackingId)));
+    }
+
+    // INSERT IGNORE: exactly one of several concurrent submissions of a key creates the row
+    private boolean insertIfAbsent(String key, Long customerId) {
+        return jdbcTemplate.update("INSERT IGNORE INTO processed_order_command (command_key, customer_id, status, created_at)"
+                + " VALUES (?, ?, ?, ?)", key, customerId, Status.PENDING.name(), Timestamp.from(Instant.now())) == 1;
+    }
+
+    private void markFailed(String key, String error) {
+        String message = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        jdbcTemplate.update("UPDATE processed_order_command SET status = ?, error = ?, completed_at = ?"
+                + " WHERE command_key = ? AND status = ?",
+                Status.FAILED.name(), message, Timestamp.from(Instant.now()), key, Status.PENDING.name());
+    }
+
+    private static ProcessedOrderCommand ownedBy(ProcessedOrderCommand command, Long customerId) {
+        if (!command.getCustomerId().equals(customerId)) {
+            throw new IllegalArgumentException("Idempotency key " + command.getCommandKey() + " belongs to another customer.");
+        }
+        return command;
+    }
+
+    private static OrderPlacementStatusDTO toStatus(ProcessedOrderCommand command) {
+        return new OrderPlacementStatusDTO(command.getCommandKey(), command.getCustomerId(), command.getStatus().name(),
+                command.getOrderId(), command.getError(), command.getCreatedAt(), command.getCompletedAt());
+    }
+}
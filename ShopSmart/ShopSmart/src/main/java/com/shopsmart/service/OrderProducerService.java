@@ -1,21 +1,91 @@
 package com.shopsmart.service;
 
 import com.shopsmart.config.KafkaConstants;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import com.shopsmart.dto.OrderDTO;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Every order message goes out through here. Messages are keyed by customer id, so one customer's
+ * messages share a partition and stay in order while different customers spread over partitions.
+ * Sends never block the caller: the outcome is counted (and failures logged) in the send callback,
+ * and callers that need it can chain on the returned future.
+ */
 @Service
 public class OrderProducerService {
 
+    // Producer metrics worth watching when tuning linger, batch size and compression
+    private static final Set<String> PRODUCER_METRICS = Set.of(
+            "record-send-rate", "record-send-total", "record-error-total", "record-retry-total",
+            "batch-size-avg", "records-per-request-avg", "compression-rate-avg",
+            "outgoing-byte-rate", "outgoing-byte-total", "request-latency-avg", "buffer-available-bytes");
+
     private final KafkaTemplate<String, OrderDTO> kafkaTemplate;
 
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private volatile String lastError;
+
     public OrderProducerService(KafkaTemplate<String, OrderDTO> kafkaTemplate) {
         this.kafkaTemplate = kafkaTemplate;
     }
 
     public void sendOrderEvent(OrderDTO orderDTO) {
-        kafkaTemplate.send(KafkaConstants.TOPIC_ORDERS, orderDTO);
-        System.out.println("Sent order event to Kafka: " + orderDTO);
+        send(KafkaConstants.TOPIC_ORDERS, orderDTO);
+    }
+
+    public CompletableFuture<SendResult<String, OrderDTO>> send(String topic, OrderDTO message) {
+        String key = message.getCustomerId() != null ? message.getCustomerId().toString() : null;
+        inFlight.incrementAndGet();
+        CompletableFuture<SendResult<String, OrderDTO>> future;
+        try {
+            future = kafkaTemplate.send(topic, key, message);
+        } catch (RuntimeException e) {
+            // Serialization errors and a full buffer are thrown here rather than through the future
+            inFlight.decrementAndGet();
+            recordFailure(topic, key, e);
+            throw e;
+        }
+        return future.whenComplete((result, ex) -> {
+            inFlight.decrementAndGet();
+            if (ex == null) {
+                sentCount.incrementAndGet();
+            } else {
+                recordFailure(topic, key, ex);
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sent", sentCount.get());
+        stats.put("failed", failedCount.get());
+        stats.put("inFlight", inFlight.get());
+        stats.put("lastError", lastError);
+        Map<String, Object> producer = new LinkedHashMap<>();
+        for (Map.Entry<MetricName, ? extends Metric> metric : kafkaTemplate.metrics().entrySet()) {
+            MetricName name = metric.getKey();
+            if ("producer-metrics".equals(name.group()) && PRODUCER_METRICS.contains(name.name())) {
+                producer.put(name.name(), metric.getValue().metricValue());
+            }
+        }
+        stats.put("producer", producer);
+        return stats;
+    }
+
+    private void recordFailure(String topic, String key, Throwable ex) {
+        failedCount.incrementAndGet();
+        lastError = ex.getMessage();
+        System.err.println("❌ Could not send order message to " + topic + " (key " + key + "): " + ex.getMessage());
     }
 }
@@ -0,0 +1,148 @@
+package com.shopsmart.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shopsmart.dto.ProductDTO;
+import com.shopsmart.entity.Product;
+import com.shopsmart.event.ProductCreatedEvent;
+import com.shopsmart.event.ProductDeletedEvent;
+import com.shopsmart.event.ProductStockChangedEvent;
+import com.shopsmart.event.ProductUpdatedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache for catalog reads, keyed by product id and by category id.
+ * Entries expire after a fixed TTL and are evicted early by the product change events.
+ */
+@Service
+public class ProductCacheService {
+
+    private final Cache<Long, ProductDTO> productsById;
+    private final Cache<Long, List<ProductDTO>> productsByCategory;
+
+    public ProductCacheService(@Value("${shopsmart.cache.products.max-size:10000}") long maxSize,
+                               @Value("${shopsmart.cache.products.category-max-size:500}") long categoryMaxSize,
+                               @Value("${shopsmart.cache.products.ttl-seconds:300}") long ttlSeconds) {
+        this.productsById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.productsByCategory = Caffeine.newBuilder()
+                .maximumSize(categoryMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached product, or runs the loader once on a miss. Loader exceptions are not cached.
+     */
+    public ProductDTO getProduct(Long productId, Function<Long, ProductDTO> loader) {
+        return productsById.get(productId, loader);
+    }
+
+    /**
+     * Bulk variant of {@link #getProduct}: the loader is called once with only the missing ids.
+     * Ids the loader does not return are simply absent from the result.
+     */
+    public Map<Long, ProductDTO> getProducts(Collection<Long> productIds,
+                                             Function<Set<? extends Long>, Map<Long, ProductDTO>> loader) {
+        return productsById.getAll(productIds, loader);
+    }
+
+    public List<ProductDTO> getProductsByCategory(Long categoryId, Function<Long, List<ProductDTO>> loader) {
+        return productsByCategory.get(categoryId, loader);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductCreated(ProductCreatedEvent event) {
+        evictCategoryOf(event.getProduct());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductUpdated(ProductUpdatedEvent event) {
+        Product product = event.getProduct();
+        evictProduct(product.getId());
+        evictCategoryOf(product);
+        // The product may have moved category, so the list it left is stale too, whether or not
+        // the product itself was cached
+        if (event.getPreviousCategoryId() != null) {
+            productsByCategory.invalidate(event.getPreviousCategoryId());
+        } else {
+            // Previous category unknown: fall back to dropping every category list
+            productsByCategory.invalidateAll();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductDeleted(ProductDeletedEvent event) {
+        if (!evictProduct(event.getProductId())) {
+            // Category unknown: fall back to dropping every category list
+            productsByCategory.invalidateAll();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductStockChanged(ProductStockChangedEvent event) {
+        evictProduct(event.getProductId());
+    }
+
+    /**
+     * Hit/miss/eviction counters for sizing the cache in production.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("productsById", toMap(productsById.stats(), productsById.estimatedSize()));
+        stats.put("productsByCategory", toMap(productsByCategory.stats(), productsByCategory.estimatedSize()));
+        return stats;
+    }
+
+    /**
+     * Evicts a product entry and the category list it belonged to.
+     * Returns false when the product was not cached, so its category is unknown.
+     */
+    private boolean evictProduct(Long productId) {
+        if (productId == null) {
+            return false;
+        }
+        ProductDTO cached = productsById.asMap().remove(productId);
+        if (cached == null) {
+            return false;
+        }
+        if (cached.getCategoryId() != null) {
+            productsByCategory.invalidate(cached.getCategoryId());
+        }
+        return true;
+    }
+
+    private void evictCategoryOf(Product product) {
+        if (product != null && product.getCategory() != null && product.getCategory().getId() != null) {
+            productsByCategory.invalidate(product.getCategory().getId());
+        }
+    }
+
+    private Map<String, Object> toMap(CacheStats cacheStats, long size) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", size);
+        map.put("hitCount", cacheStats.hitCount());
+        map.put("missCount", cacheStats.missCount());
+        map.put("hitRate", cacheStats.hitRate());
+        map.put("evictionCount", cacheStats.evictionCount());
+        map.put("loadFailureCount", cacheStats.loadFailureCount());
+        map.put("averageLoadPenaltyNanos", cacheStats.averageLoadPenalty());
+        return map;
+    }
+}
@@ -0,0 +1,176 @@
+package com.shopsmart.service;
+
+import com.shopsmart.document.ProductDocument;
+import com.shopsmart.entity.Product;
+import com.shopsmart.entity.ProductIndexOutbox;
+import com.shopsmart.entity.ProductIndexOutbox.Operation;
+import com.shopsmart.repository.ProductDocumentRepository;
+import com.shopsmart.repository.ProductIndexOutboxRepository;
+import com.shopsmart.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for the product search index.
+ *
+ * Write paths call {@link #enqueueUpsert}/{@link #enqueueDelete} inside their own transaction,
+ * so the outbox row commits or rolls back with the product change and Elasticsearch is never
+ * on the request path. A scheduled dispatcher drains due rows in bulk, coalescing repeated
+ * changes to the same product, and reschedules a failed batch with exponential backoff.
+ */
+@Service
+public class ProductIndexOutboxService {
+
+    private final ProductIndexOutboxRepository outboxRepository;
+    private final ProductRepository productRepository;
+    private final ProductDocumentRepository productDocumentRepository;
+    private final ProductIndexingService productIndexingService;
+    private final TransactionTemplate transactionTemplate;
+    private final SearchCircuitBreaker searchCircuitBreaker;
+    private final SearchResultCacheService searchResultCacheService;
+
+    @Value("${shopsmart.search.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${shopsmart.search.outbox.backoff-base-ms:1000}")
+    private long backoffBaseMs;
+
+    @Value("${shopsmart.search.outbox.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    public ProductIndexOutboxService(ProductIndexOutboxRepository outboxRepository,
+                                     ProductRepository productRepository,
+                                     ProductDocumentRepository productDocumentRepository,
+                                     ProductIndexingService productIndexingService,
+                                     TransactionTemplate transactionTemplate,
+                                     SearchCircuitBreaker searchCircuitBreaker,
+                                     SearchResultCacheService searchResultCacheService) {
+        this.outboxRepository = outboxRepository;
+        this.productRepository = productRepository;
+        this.productDocumentRepository = productDocumentRepository;
+        this.productIndexingService = productIndexingService;
+        this.transactionTemplate = transactionTemplate;
+        this.searchCircuitBreaker = searchCircuitBreaker;
+        this.searchResultCacheService = searchResultCacheService;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueUpsert(Long productId) {
+        outboxRepository.save(new ProductIndexOutbox(productId, Operation.UPSERT));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueUpserts(Collection<Long> productIds) {
+        outboxRepository.saveAll(productIds.stream()
+                .map(id -> new ProductIndexOutbox(id, Operation.UPSERT))
+                .collect(Collectors.toList()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueDelete(Long productId) {
+        outboxRepository.save(new ProductIndexOutbox(productId, Operation.DELETE));
+    }
+
+    /**
+     * Drains due outbox rows until none are left. The fixed delay between runs is the linger:
+     * changes arriving within it are shipped together in one bulk request.
+     */
+    @Scheduled(fixedDelayString = "${shopsmart.search.outbox.linger-ms:1000}")
+    public void dispatch() {
+        // While Elasticsearch is known to be down, writes stay queued and replay once it recovers
+        if (searchCircuitBreaker.isOpen()) {
+            return;
+        }
+        int drained;
+        do {
+            drained = dispatchBatch();
+        } while (drained >= batchSize);
+    }
+
+    /**
+     * Ships one batch to Elasticsearch. Returns the number of outbox rows consumed,
+     * or 0 when nothing was due or the batch failed and was rescheduled.
+     */
+    int dispatchBatch() {
+        List<ProductIndexOutbox> due = outboxRepository.findDue(Instant.now(), PageRequest.of(0, batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        // Coalesce: only the latest operation per product matters
+        Map<Long, Operation> latest = new LinkedHashMap<>();
+        for (ProductIndexOutbox entry : due) {
+            latest.put(entry.getProductId(), entry.getOperation());
+        }
+
+        List<Long> upsertIds = new ArrayList<>();
+        List<Long> deleteIds = new ArrayList<>();
+        latest.forEach((productId, operation) -> {
+            if (operation == Operation.UPSERT) {
+                upsertIds.add(productId);
+            } else {
+                deleteIds.add(productId);
+            }
+        });
+
+        List<Long> entryIds = due.stream().map(ProductIndexOutbox::getId).collect(Collectors.toList());
+        List<Product> products = List.of();
+        try {
+            if (!upsertIds.isEmpty()) {
+                products = productRepository.findWithCategoryByIdIn(upsertIds);
+                List<ProductDocument> documents = products.stream()
+                        .map(productIndexingService::toProductDocument)
+                        .collect(Collectors.toList());
+                if (!documents.isEmpty()) {
+                    productDocumentRepository.saveAll(documents);
+                    productIndexingService.mirrorToPendingIndex(documents);
+                }
+                // An upsert for a row that no longer exists means it was deleted in the meantime
+                Set<Long> found = products.stream().map(Product::getId).collect(Collectors.toSet());
+                upsertIds.stream().filter(id -> !found.contains(id)).forEach(deleteIds::add);
+            }
+            if (!deleteIds.isEmpty()) {
+                productDocumentRepository.deleteAllById(deleteIds);
+                productIndexingService.mirrorDeletesToPendingIndex(deleteIds);
+            }
+        } catch (Exception e) {
+            System.err.println("Search index dispatch failed for " + due.size() + " outbox entries: " + e.getMessage());
+            searchCircuitBreaker.recordFailure(e.getMessage());
+            reschedule(entryIds, e.getMessage());
+            return 0;
+        }
+        searchCircuitBreaker.recordSuccess();
+        // Only now would a search miss see the change; invalidating at DB commit re-cached stale pages
+        searchResultCacheService.onIndexed(products, deleteIds);
+
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteByIdIn(entryIds));
+        return due.size();
+    }
+
+    private void reschedule(List<Long> entryIds, String error) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Instant now = Instant.now();
+            for (ProductIndexOutbox entry : outboxRepository.findAllById(entryIds)) {
+                int attempts = entry.getAttempts() + 1;
+                long delay = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempts - 1, 20));
+                entry.setAttempts(attempts);
+                entry.setNextAttemptAt(now.plusMillis(delay));
+                entry.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+            }
+        });
+    }
+}
@@ -2,34 +2,103 @@ package com.shopsmart.service;
 
 import com.shopsmart.document.ProductDocument;
 import com.shopsmart.entity.Product;
-import com.shopsmart.event.ProductCreatedEvent;
-import com.shopsmart.event.ProductDeletedEvent;
-import com.shopsmart.event.ProductUpdatedEvent;
 import com.shopsmart.repository.ProductDocumentRepository;
 import com.shopsmart.repository.ProductRepository;
-import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexInformation;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.AliasData;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.event.TransactionPhase;
-import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * Owns the product search index lifecycle. {@code products} is a read/write alias over a
+ * versioned physical index {@code products_v{n}}; a rebuild loads a fresh version in the
+ * background while live writes are mirrored into it, then swaps the alias atomically.
+ *
+ * The index under construction is published as the {@code products_pending} alias, so the outbox
+ * dispatcher on every instance mirrors into it, and records what it mirrored in
+ * {@code product_index_rebuild_change} for the rebuild to re-sync.
+ */
 @Service
 public class ProductIndexingService {
 
+    public static final String PRODUCTS_ALIAS = "products";
+    public static final String PENDING_ALIAS = PRODUCTS_ALIAS + "_pending";
+    private static final String VERSION_PREFIX = PRODUCTS_ALIAS + "_v";
+
+    public enum ReindexState {
+        IDLE, RUNNING, SKIPPED, COMPLETED, FAILED
+    }
+
     private final ProductRepository productRepository;
     private final ProductDocumentRepository productDocumentRepository;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${shopsmart.search.index.shards:1}")
+    private int shards;
+
+    @Value("${shopsmart.search.index.replicas:0}")
+    private int replicas;
+
+    @Value("${shopsmart.search.reindex.page-size:1000}")
+    private int pageSize;
+
+    @Value("${shopsmart.search.reindex.parallelism:2}")
+    private int parallelism;
+
+    @Value("${shopsmart.search.reindex.on-startup:true}")
+    private boolean reindexOnStartup;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong indexedCount = new AtomicLong();
+    private volatile long totalCount;
+    private volatile ReindexState state = ReindexState.IDLE;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String lastError;
+    private volatile String targetIndex;
 
-    public ProductIndexingService(ProductRepository productRepository, ProductDocumentRepository productDocumentRepository) {
+    public ProductIndexingService(ProductRepository productRepository, ProductDocumentRepository productDocumentRepository,
+                                  ElasticsearchOperations elasticsearchOperations, JdbcTemplate jdbcTemplate) {
         this.productRepository = productRepository;
         this.productDocumentRepository = productDocumentRepository;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     /**
      * Maps a JPA Product entity to an Elasticsearch ProductDocument.
      */
-    private ProductDocument toProductDocument(Product product) {
+    public ProductDocument toProductDocument(Product product) {
         if (product == null) {
             return null;
         }
@@ -38,57 +107,383 @@ public class ProductIndexingService {
         document.setName(product.getName());
         document.setDescription(product.getDescription());
         document.setPrice(product.getPrice());
+        if (product.getStockQuantity() != null) {
+            document.setStockQuantity((int) Math.min(product.getStockQuantity(), Integer.MAX_VALUE));
+        }
         if (product.getCategory() != null) {
+            document.setCategoryId(product.getCategory().getId());
             document.setCategoryName(product.getCategory().getName());
         }
+        List<String> suggestInputs = new ArrayList<>();
+        if (product.getName() != null) {
+            suggestInputs.add(product.getName());
+        }
+        if (document.getCategoryName() != null) {
+            suggestInputs.add(document.getCategoryName());
+        }
+        document.setSuggest(new Completion(suggestInputs.toArray(new String[0])));
         return document;
     }
 
     /**
-     * Initial data indexing on application startup.
+     * Startup reindex, run in the background once the application is ready so readiness
+     * probes and traffic are not blocked by it. Skipped when the index is already current.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reindexOnStartup() {
+        try {
+            ensureAlias();
+        } catch (Exception e) {
+            System.err.println("Could not prepare the products index: " + e.getMessage());
+            return;
+        }
+        if (reindexOnStartup) {
+            startReindex(false);
+        }
+    }
+
+    /**
+     * Starts a background in-place reindex unless a job is already running.
+     * Returns false if a job was already in progress.
+     */
+    public boolean startReindex(boolean force) {
+        return startJob("product-reindex", () -> runReindex(force));
+    }
+
+    /**
+     * Starts a blue/green rebuild into a new versioned index unless a job is already running.
+     * Returns false if a job was already in progress.
+     */
+    public boolean startRebuild() {
+        return startJob("product-index-rebuild", this::runRebuild);
+    }
+
+    /**
+     * Mirrors live index writes into the index under construction, if any, so documents
+     * changed during a rebuild are not lost at the swap. Must be called after the documents
+     * were read from MySQL: a change committed once the rebuild started is then either mirrored
+     * or read by the bulk load.
+     */
+    public void mirrorToPendingIndex(List<ProductDocument> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        String pending = pendingIndex();
+        if (pending == null) {
+            return;
+        }
+        // Recorded first, so a re-sync that misses the write itself still covers the product
+        recordChanges(documents.stream().map(ProductDocument::getId).collect(Collectors.toList()));
+        elasticsearchOperations.save(documents, IndexCoordinates.of(pending));
+    }
+
+    public void mirrorDeletesToPendingIndex(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        String pending = pendingIndex();
+        if (pending == null) {
+            return;
+        }
+        recordChanges(productIds);
+        for (Long productId : productIds) {
+            elasticsearchOperations.delete(String.valueOf(productId), IndexCoordinates.of(pending));
+        }
+    }
+
+    /**
+     * The concrete index behind {@code products_pending}, or null when no rebuild is running.
+     * Writes go to the concrete name: through the alias, a write landing just after the swap
+     * removed it would create a stray {@code products_pending} index instead.
      */
-    @PostConstruct
-    public void indexAllProducts() {
-        System.out.println("Indexing all products into Elasticsearch...");
-        List<Product> allProducts = productRepository.findAll();
-        List<ProductDocument> documents = allProducts.stream()
-            .map(this::toProductDocument)
-            .collect(Collectors.toList());
-        productDocumentRepository.saveAll(documents);
-        System.out.println("Product indexing complete. Total indexed: " + documents.size());
+    private String pendingIndex() {
+        IndexOperations pendingOps = elasticsearchOperations.indexOps(IndexCoordinates.of(PENDING_ALIAS));
+        if (!pendingOps.exists()) {
+            return null;
+        }
+        Set<String> indices = pendingOps.getAliases(PENDING_ALIAS).keySet();
+        return indices.isEmpty() ? null : indices.iterator().next();
+    }
+
+    private void recordChanges(Collection<Long> productIds) {
+        jdbcTemplate.batchUpdate("INSERT IGNORE INTO product_index_rebuild_change (product_id) VALUES (?)",
+                productIds.stream().map(id -> new Object[] { id }).collect(Collectors.toList()));
     }
 
     /**
-     * Listens for a ProductCreatedEvent and indexes the new product.
+     * Makes sure {@code products} resolves to a versioned index. A fresh cluster gets
+     * {@code products_v1}; a legacy concrete {@code products} index is left in place
+     * until the first rebuild replaces it.
      */
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    public void handleProductCreated(ProductCreatedEvent event) {
-        indexProduct(event.getProduct());
+    public void ensureAlias() {
+        IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(PRODUCTS_ALIAS));
+        if (aliasOps.exists()) {
+            return;
+        }
+        String firstIndex = VERSION_PREFIX + 1;
+        createVersionedIndex(firstIndex);
+        aliasOps.alias(new AliasActions(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(firstIndex)
+                .withAliases(PRODUCTS_ALIAS)
+                .build())));
+    }
+
+    private boolean startJob(String name, Runnable job) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                job.run();
+            } finally {
+                running.set(false);
+            }
+        }, name);
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public Map<String, Object> getReindexProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("state", state);
+        progress.put("indexed", indexedCount.get());
+        progress.put("total", totalCount);
+        progress.put("startedAt", startedAt);
+        progress.put("finishedAt", finishedAt);
+        progress.put("lastError", lastError);
+        progress.put("targetIndex", targetIndex);
+        return progress;
+    }
+
+    private void runReindex(boolean force) {
+        beginJob(PRODUCTS_ALIAS);
+        try {
+            totalCount = productRepository.count();
+            if (!force && productDocumentRepository.count() == totalCount) {
+                System.out.println("Product index is current (" + totalCount + " documents), skipping reindex.");
+                state = ReindexState.SKIPPED;
+                return;
+            }
+            System.out.println("Reindexing " + totalCount + " products into Elasticsearch...");
+            bulkLoad(IndexCoordinates.of(PRODUCTS_ALIAS));
+            state = ReindexState.COMPLETED;
+            System.out.println("Product indexing complete. Total indexed: " + indexedCount.get());
+        } catch (Exception e) {
+            failJob(e);
+        } finally {
+            finishedAt = Instant.now();
+        }
     }
 
     /**
-     * Listens for a ProductUpdatedEvent and updates the product in the index.
+     * Blue/green rebuild: create products_v{n+1} and point {@code products_pending} at it so
+     * every instance mirrors live writes into it, bulk-load it from MySQL, re-sync the products
+     * changed meanwhile, then move both aliases in one atomic request and drop the previous index.
      */
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    public void handleProductUpdated(ProductUpdatedEvent event) {
-        indexProduct(event.getProduct());
+    private void runRebuild() {
+        IndexOperations pendingOps = elasticsearchOperations.indexOps(IndexCoordinates.of(PENDING_ALIAS));
+        try {
+            IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(PRODUCTS_ALIAS));
+            Map<String, Set<AliasData>> current = aliasOps.exists() ? aliasOps.getAliases(PRODUCTS_ALIAS) : Map.of();
+            // Empty while `products` is still a legacy concrete index
+            boolean legacyConcreteIndex = aliasOps.exists() && current.isEmpty();
+
+            // Versions left behind by failed rebuilds count too, so the new index never already exists
+            int nextVersion = 1;
+            for (IndexInformation information : elasticsearchOperations.indexOps(IndexCoordinates.of(VERSION_PREFIX + "*"))
+                    .getInformation()) {
+                String indexName = information.getName();
+                if (indexName.startsWith(VERSION_PREFIX)) {
+                    try {
+                        nextVersion = Math.max(nextVersion, Integer.parseInt(indexName.substring(VERSION_PREFIX.length())) + 1);
+                    } catch (NumberFormatException ignored) {
+                        // not one of ours
+                    }
+                }
+            }
+            String newIndex = VERSION_PREFIX + nextVersion;
+            beginJob(newIndex);
+
+            createVersionedIndex(newIndex);
+            IndexCoordinates newCoordinates = IndexCoordinates.of(newIndex);
+            jdbcTemplate.update("DELETE FROM product_index_rebuild_change");
+            List<AliasAction> publish = new ArrayList<>();
+            // A rebuild that died before its swap may have left the alias on its own index
+            removePendingAlias(pendingOps, publish);
+            publish.add(new AliasAction.Add(AliasActionParameters.builder()
+                    .withIndices(newIndex)
+                    .withAliases(PENDING_ALIAS)
+                    .build()));
+            pendingOps.alias(new AliasActions(publish.toArray(new AliasAction[0])));
+
+            totalCount = productRepository.count();
+            System.out.println("Rebuilding product index into " + newIndex + " (" + totalCount + " products)...");
+            bulkLoad(newCoordinates);
+            resyncChanged(newCoordinates);
+            elasticsearchOperations.indexOps(newCoordinates).refresh();
+
+            List<AliasAction> actions = new ArrayList<>();
+            actions.add(new AliasAction.Add(AliasActionParameters.builder()
+                    .withIndices(newIndex)
+                    .withAliases(PRODUCTS_ALIAS)
+                    .build()));
+            removePendingAlias(pendingOps, actions);
+            if (legacyConcreteIndex) {
+                // An alias cannot share a name with an index; drop it in the same atomic request
+                actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                        .withIndices(PRODUCTS_ALIAS)
+                        .build()));
+            } else {
+                for (String oldIndex : current.keySet()) {
+                    actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                            .withIndices(oldIndex)
+                            .withAliases(PRODUCTS_ALIAS)
+                            .build()));
+                }
+            }
+            aliasOps.alias(new AliasActions(actions.toArray(new AliasAction[0])));
+            // The re-sync may have written an older read of a row over a newer mirrored write from
+            // another instance; from here on every write goes through `products`, so one more pass settles it
+            resyncChanged(newCoordinates);
+            jdbcTemplate.update("DELETE FROM product_index_rebuild_change");
+
+            if (!legacyConcreteIndex) {
+                for (String oldIndex : current.keySet()) {
+                    elasticsearchOperations.indexOps(IndexCoordinates.of(oldIndex)).delete();
+                }
+            }
+            state = ReindexState.COMPLETED;
+            System.out.println("Product index rebuild complete. " + PRODUCTS_ALIAS + " -> " + newIndex);
+        } catch (Exception e) {
+            // Leave the half-built index in place for inspection; the alias still serves the old one
+            try {
+                List<AliasAction> actions = new ArrayList<>();
+                removePendingAlias(pendingOps, actions);
+                if (!actions.isEmpty()) {
+                    pendingOps.alias(new AliasActions(actions.toArray(new AliasAction[0])));
+                }
+            } catch (Exception cleanup) {
+                System.err.println("Could not remove the " + PENDING_ALIAS + " alias: " + cleanup.getMessage());
+            }
+            failJob(e);
+        } finally {
+            finishedAt = Instant.now();
+        }
+    }
+
+    private static void removePendingAlias(IndexOperations pendingOps, List<AliasAction> actions) {
+        if (!pendingOps.exists()) {
+            return;
+        }
+        for (String index : pendingOps.getAliases(PENDING_ALIAS).keySet()) {
+            actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                    .withIndices(index)
+                    .withAliases(PENDING_ALIAS)
+                    .build()));
+        }
     }
 
     /**
-     * Listens for a ProductDeletedEvent and removes the product from the index.
+     * A bulk-loaded page may have been read before a change that was mirrored ahead of it, and
+     * would then overwrite the newer document. Rewrites every product mirrored so far, by any
+     * instance, from its current row, or deletes it if the row is gone.
      */
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    public void handleProductDeleted(ProductDeletedEvent event) {
-        productDocumentRepository.deleteById(event.getProductId());
+    private void resyncChanged(IndexCoordinates index) {
+        List<Long> productIds = jdbcTemplate.queryForList(
+                "SELECT product_id FROM product_index_rebuild_change ORDER BY product_id", Long.class);
+        for (int from = 0; from < productIds.size(); from += pageSize) {
+            List<Long> slice = productIds.subList(from, Math.min(from + pageSize, productIds.size()));
+            List<Product> products = productRepository.findWithCategoryByIdIn(slice);
+            if (!products.isEmpty()) {
+                elasticsearchOperations.save(products.stream()
+                        .map(this::toProductDocument)
+                        .collect(Collectors.toList()), index);
+            }
+            Set<Long> found = products.stream().map(Product::getId).collect(Collectors.toSet());
+            for (Long productId : slice) {
+                if (!found.contains(productId)) {
+                    elasticsearchOperations.delete(String.valueOf(productId), index);
+                }
+            }
+        }
+        if (!productIds.isEmpty()) {
+            System.out.println("Re-synced " + productIds.size() + " products changed during the rebuild.");
+        }
+    }
+
+    private void createVersionedIndex(String indexName) {
+        IndexOperations indexOps = elasticsearchOperations.indexOps(IndexCoordinates.of(indexName));
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("index.number_of_shards", shards);
+        settings.put("index.number_of_replicas", replicas);
+        Document mapping = indexOps.createMapping(ProductDocument.class);
+        indexOps.create(settings, mapping);
+    }
+
+    private void beginJob(String target) {
+        state = ReindexState.RUNNING;
+        targetIndex = target;
+        startedAt = Instant.now();
+        finishedAt = null;
+        lastError = null;
+        indexedCount.set(0);
+    }
+
+    private void failJob(Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        lastError = e.getMessage();
+        state = ReindexState.FAILED;
+        System.err.println("Product index job failed after " + indexedCount.get() + " documents: " + e.getMessage());
     }
 
     /**
-     * Helper method to save/update a product in Elasticsearch.
+     * Streams products in keyset pages and bulk-indexes each page into the given index,
+     * with at most {@code parallelism} bulk requests in flight.
      */
-    private void indexProduct(Product product) {
-        ProductDocument document = toProductDocument(product);
-        if (document != null) {
-            productDocumentRepository.save(document);
+    private void bulkLoad(IndexCoordinates index) throws Exception {
+        ExecutorService bulkExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            // Reading the next page waits for a free slot
+            Semaphore inFlight = new Semaphore(Math.max(1, parallelism));
+            List<Future<?>> pending = new ArrayList<>();
+            long afterId = 0L;
+            while (true) {
+                List<Product> page = productRepository.findPageAfter(afterId, null, null, null, false,
+                        PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+                List<ProductDocument> documents = page.stream()
+                        .map(this::toProductDocument)
+                        .collect(Collectors.toList());
+
+                inFlight.acquire();
+                pending.add(bulkExecutor.submit(() -> {
+                    try {
+                        elasticsearchOperations.save(documents, index);
+                        indexedCount.addAndGet(documents.size());
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+                // Surface a failed bulk request now rather than after the last page
+                for (Iterator<Future<?>> it = pending.iterator(); it.hasNext(); ) {
+                    Future<?> future = it.next();
+                    if (future.isDone()) {
+                        future.get();
+                        it.remove();
+                    }
+                }
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } finally {
+            bulkExecutor.shutdown();
         }
     }
-}
\ No newline at end of file
+}
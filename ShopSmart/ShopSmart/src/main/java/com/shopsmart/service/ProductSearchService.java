@@ -1,8 +1,17 @@
 package com.shopsmart.service;
 
 import com.shopsmart.document.ProductDocument;
+import com.shopsmart.dto.ProductSearchResultDTO;
+
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 public interface ProductSearchService {
     List<ProductDocument> searchProducts(String query);
-}
\ No newline at end of file
+
+    ProductSearchResultDTO search(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                  Boolean inStock, String after, Integer limit);
+
+    Map<String, Object> getHealth();
+}
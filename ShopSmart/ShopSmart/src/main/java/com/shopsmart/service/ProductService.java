@@ -2,6 +2,8 @@ package com.shopsmart.service;
 
 import com.shopsmart.dto.BulkUploadResultDTO;
 import com.shopsmart.dto.ProductDTO;
+import com.shopsmart.dto.ProductPageDTO;
+import java.math.BigDecimal;
 import java.util.List;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -10,12 +12,14 @@ public interface ProductService {
     // Core CRUD Operations
     ProductDTO getProductById(Long id); 
     List<ProductDTO> getAllProducts();
+    ProductPageDTO getProductsPage(Long after, Integer limit, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock);
     ProductDTO createProduct(ProductDTO productDTO);
     ProductDTO updateProduct(Long id, ProductDTO productDTO); 
     void deleteProduct(Long id); 
 
     // Category and Filter Operations
     List<ProductDTO> getProductsByCategoryId(Long categoryId);
+    List<ProductDTO> getProductsByIds(List<Long> ids);
     List<ProductDTO> getProductsByPriceRange(double minPrice, double maxPrice);
     List<ProductDTO> getProductsInStock();
 
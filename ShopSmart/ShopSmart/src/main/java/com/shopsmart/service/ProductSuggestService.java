@@ -0,0 +1,190 @@
+package com.shopsmart.service;
+
+import co.elastic.clients.elasticsearch.core.search.Suggester;
+import com.shopsmart.document.ProductDocument;
+import com.shopsmart.entity.Product;
+import com.shopsmart.event.ProductCreatedEvent;
+import com.shopsmart.event.ProductDeletedEvent;
+import com.shopsmart.event.ProductUpdatedEvent;
+import com.shopsmart.repository.ProductRepository;
+import com.shopsmart.util.PrefixTrie;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.suggest.response.Suggest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Typeahead suggestions for product and category names.
+ *
+ * Keystrokes are answered from an in-memory {@link PrefixTrie}. Elasticsearch's completion
+ * suggester is only consulted when the trie has no prefix match (a typo, or the trie is still
+ * loading), through the search circuit breaker, so the trie answer stands if Elasticsearch is
+ * unavailable. Product change events update the term set; the trie is rebuilt from it on a
+ * short schedule and swapped in.
+ */
+@Service
+public class ProductSuggestService {
+
+    private static final String SUGGESTION_NAME = "product-suggest";
+
+    private final ProductRepository productRepository;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final SearchCircuitBreaker searchCircuitBreaker;
+
+    @Value("${shopsmart.search.suggest.max-results:10}")
+    private int maxResults;
+
+    @Value("${shopsmart.search.suggest.load-page-size:5000}")
+    private int loadPageSize;
+
+    // productId -> { product name, category name }
+    private final Map<Long, String[]> termsByProduct = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private volatile PrefixTrie trie = PrefixTrie.empty();
+    private volatile boolean loaded;
+
+    public ProductSuggestService(ProductRepository productRepository, ElasticsearchOperations elasticsearchOperations,
+                                 SearchCircuitBreaker searchCircuitBreaker) {
+        this.productRepository = productRepository;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.searchCircuitBreaker = searchCircuitBreaker;
+    }
+
+    public List<String> suggest(String prefix, Integer limit) {
+        int size = (limit == null || limit <= 0) ? maxResults : Math.min(limit, maxResults);
+        if (PrefixTrie.normalize(prefix).isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> local = trie.complete(prefix, size);
+        if (!local.isEmpty()) {
+            return local;
+        }
+        return searchCircuitBreaker.execute(() -> suggestFromIndex(prefix, size), () -> local);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::load, "suggest-trie-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Scheduled(fixedDelayString = "${shopsmart.search.suggest.rebuild-ms:5000}")
+    public void rebuildIfChanged() {
+        if (loaded && dirty.compareAndSet(true, false)) {
+            rebuild();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductCreated(ProductCreatedEvent event) {
+        putTerms(event.getProduct());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductUpdated(ProductUpdatedEvent event) {
+        putTerms(event.getProduct());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductDeleted(ProductDeletedEvent event) {
+        if (event.getProductId() != null && termsByProduct.remove(event.getProductId()) != null) {
+            dirty.set(true);
+        }
+    }
+
+    private void putTerms(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        String[] terms = { product.getName(), product.getCategory() != null ? product.getCategory().getName() : null };
+        String[] previous = termsByProduct.put(product.getId(), terms);
+        // Stock and price updates fire this too; only a name change needs a rebuild
+        if (previous == null || !Arrays.equals(previous, terms)) {
+            dirty.set(true);
+        }
+    }
+
+    private void load() {
+        try {
+            long afterId = 0L;
+            while (true) {
+                List<Object[]> rows = productRepository.findSuggestTermsAfter(afterId, PageRequest.of(0, loadPageSize));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : rows) {
+                    // putIfAbsent: an event that arrived during the load is newer than this row
+                    termsByProduct.putIfAbsent((Long) row[0], new String[] { (String) row[1], (String) row[2] });
+                }
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+            rebuild();
+            loaded = true;
+            System.out.println("Suggest trie loaded with " + trie.size() + " terms.");
+        } catch (Exception e) {
+            System.err.println("Could not load the suggest trie: " + e.getMessage());
+        }
+    }
+
+    private void rebuild() {
+        // Weight = number of products carrying the term; first spelling seen is the one shown
+        Map<String, String> displayByKey = new HashMap<>();
+        Map<String, Integer> weights = new HashMap<>();
+        for (String[] terms : termsByProduct.values()) {
+            for (String term : terms) {
+                String key = PrefixTrie.normalize(term);
+                if (key.isEmpty()) {
+                    continue;
+                }
+                String display = displayByKey.computeIfAbsent(key, k -> term.trim());
+                weights.merge(display, 1, Integer::sum);
+            }
+        }
+        trie = PrefixTrie.build(weights, maxResults);
+    }
+
+    private List<String> suggestFromIndex(String prefix, int size) {
+        NativeQuery query = NativeQuery.builder()
+                .withSuggester(Suggester.of(s -> s.suggesters(SUGGESTION_NAME, f -> f
+                        .prefix(prefix)
+                        .completion(c -> c
+                                .field("suggest")
+                                .size(size)
+                                .skipDuplicates(true)
+                                .fuzzy(z -> z.fuzziness("AUTO"))))))
+                .withMaxResults(0)
+                .build();
+        SearchHits<ProductDocument> hits = elasticsearchOperations.search(query, ProductDocument.class);
+
+        Set<String> suggestions = new LinkedHashSet<>();
+        Suggest suggest = hits.getSuggest();
+        if (suggest != null && suggest.getSuggestion(SUGGESTION_NAME) != null) {
+            for (Suggest.Suggestion.Entry<? extends Suggest.Suggestion.Entry.Option> entry
+                    : suggest.getSuggestion(SUGGESTION_NAME).getEntries()) {
+                for (Suggest.Suggestion.Entry.Option option : entry.getOptions()) {
+                    suggestions.add(option.getText());
+                }
+            }
+        }
+        return new ArrayList<>(suggestions).subList(0, Math.min(size, suggestions.size()));
+    }
+}
@@ -0,0 +1,276 @@
+package com.shopsmart.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopsmart.dto.CartDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Live carts in Redis (or anything speaking its protocol), so every instance sees the same cart.
+ * Same write-behind scheme as InMemoryCartStore, with the pieces kept in Redis:
+ *
+ * - {@code cart:{customerId}}: the snapshot as JSON ({@code none} if the customer has no cart),
+ *   expiring after {@code idle-minutes} without use, which is the idle eviction;
+ * - {@code cart:dirty}: customers whose cart changed since it was last written back;
+ * - {@code cart:lock:{customerId}}: a token held from a change until its transaction completes.
+ *
+ * The flusher writes dirty carts long before they can expire; a dirty cart can only expire
+ * unwritten if write-back has been failing for {@code idle-minutes}.
+ */
+@Service
+@ConditionalOnProperty(name = "shopsmart.cart.store.type", havingValue = "redis")
+public class RedisCartStore implements CartStore {
+
+    private static final String NONE = "none";
+    private static final String DIRTY_KEY = "cart:dirty";
+    private static final DefaultRedisScript<Long> UNLOCK = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final CartPersistence cartPersistence;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration idleTimeout;
+    private final int flushBatchSize;
+    private final long lockTimeoutMillis;
+    // Long enough to outlive any cart transaction, short enough that a crashed holder frees it soon
+    private final Duration lockLease = Duration.ofSeconds(30);
+
+    public RedisCartStore(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                          CartPersistence cartPersistence, TransactionTemplate transactionTemplate,
+                          @Value("${shopsmart.cart.store.idle-minutes:30}") long idleMinutes,
+                          @Value("${shopsmart.cart.store.flush-batch-size:200}") int flushBatchSize,
+                          @Value("${shopsmart.cart.store.lock-timeout-ms:2000}") long lockTimeoutMillis) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.cartPersistence = cartPersistence;
+        this.transactionTemplate = transactionTemplate;
+        this.idleTimeout = Duration.ofMinutes(idleMinutes);
+        this.flushBatchSize = flushBatchSize;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    @Override
+    public Optional<CartDTO> find(Long customerId) {
+        String json = redisTemplate.opsForValue().getAndExpire(cartKey(customerId), idleTimeout);
+        if (json == null) {
+            // Fill the miss only under the cart's lock, so a checkout clearing the rows meanwhile
+            // cannot be papered over with what was read before it; if busy, just read through
+            String token = lock(customerId, 0L);
+            if (token == null) {
+                return cartPersistence.load(customerId);
+            }
+            try {
+                CartDTO loaded = cartPersistence.load(customerId).orElse(null);
+                redisTemplate.opsForValue().setIfAbsent(cartKey(customerId), toJson(loaded), idleTimeout);
+                return Optional.ofNullable(loaded);
+            } finally {
+                unlock(customerId, token);
+            }
+        }
+        return Optional.ofNullable(fromJson(json));
+    }
+
+    @Override
+    public <T> T update(Long customerId, Function<CartDTO, T> change) {
+        requireTransaction();
+        String token = lock(customerId, lockTimeoutMillis);
+        boolean handedOver = false;
+        try {
+            CartDTO current = read(customerId);
+            CartDTO state = current != null ? current : cartPersistence.create(customerId);
+            T result = change.apply(state);
+            String pending = toJson(state);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            redisTemplate.opsForValue().set(cartKey(customerId), pending, idleTimeout);
+                            redisTemplate.opsForSet().add(DIRTY_KEY, customerId.toString());
+                        }
+                    } finally {
+                        unlock(customerId, token);
+                    }
+                }
+            });
+            handedOver = true;
+            return result;
+        } finally {
+            if (!handedOver) {
+                unlock(customerId, token);
+            }
+        }
+    }
+
+    @Override
+    public <T> T withPersistedCart(Long customerId, Supplier<T> action) {
+        requireTransaction();
+        String token = lock(customerId, lockTimeoutMillis);
+        boolean handedOver = false;
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(DIRTY_KEY, customerId.toString()))) {
+                CartDTO state = read(customerId);
+                if (state != null) {
+                    cartPersistence.write(state);
+                }
+            }
+            T result = action.get();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            // The action may have changed the rows; reload on next use
+                            redisTemplate.delete(cartKey(customerId));
+                            redisTemplate.opsForSet().remove(DIRTY_KEY, customerId.toString());
+                        }
+                    } finally {
+                        unlock(customerId, token);
+                    }
+                }
+            });
+            handedOver = true;
+            return result;
+        } finally {
+            if (!handedOver) {
+                unlock(customerId, token);
+            }
+        }
+    }
+
+    /**
+     * Writes dirty carts back, up to {@code flush-batch-size} per transaction. Carts locked by a
+     * change in flight (here or on another instance) are left for the next run.
+     */
+    @Scheduled(fixedDelayString = "${shopsmart.cart.store.flush-ms:1000}")
+    public void flush() {
+        try {
+            Set<String> dirty = redisTemplate.opsForSet().distinctRandomMembers(DIRTY_KEY, flushBatchSize);
+            if (dirty == null || dirty.isEmpty()) {
+                return;
+            }
+            List<Long> locked = new ArrayList<>();
+            List<String> tokens = new ArrayList<>();
+            try {
+                List<CartDTO> states = new ArrayList<>();
+                for (String id : dirty) {
+                    Long customerId = Long.valueOf(id);
+                    String token = lock(customerId, 0L);
+                    if (token == null) {
+                        continue;
+                    }
+                    locked.add(customerId);
+                    tokens.add(token);
+                    CartDTO state = read(customerId);
+                    if (state != null) {
+                        states.add(state);
+                    }
+                }
+                if (locked.isEmpty()) {
+                    return;
+                }
+                transactionTemplate.executeWithoutResult(status -> cartPersistence.writeAll(states));
+                // Written lines now have ids
+                states.forEach(state -> redisTemplate.opsForValue().set(cartKey(state.getCustomerId()), toJson(state), idleTimeout));
+                redisTemplate.opsForSet().remove(DIRTY_KEY, locked.stream().map(String::valueOf).toArray());
+                System.out.println("Cart store: wrote back " + states.size() + " carts.");
+            } finally {
+                for (int i = 0; i < locked.size(); i++) {
+                    unlock(locked.get(i), tokens.get(i));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Cart store write-back failed: " + e.getMessage());
+        }
+    }
+
+    // Snapshot under the caller's lock; loads from MySQL if the key expired
+    private CartDTO read(Long customerId) {
+        String json = redisTemplate.opsForValue().get(cartKey(customerId));
+        return json != null ? fromJson(json) : cartPersistence.load(customerId).orElse(null);
+    }
+
+    /**
+     * Takes the cart's lock, waiting up to {@code waitMillis}. Returns the token to unlock with;
+     * null if a zero wait found it taken, an exception if a real wait timed out.
+     */
+    private String lock(Long customerId, long waitMillis) {
+        String token = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey(customerId), token, lockLease))) {
+                return token;
+            }
+            if (waitMillis == 0L) {
+                return null;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("Cart for customer " + customerId + " is busy, please retry.");
+            }
+            try {
+                Thread.sleep(10L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for the cart of customer " + customerId);
+            }
+        }
+    }
+
+    private void unlock(Long customerId, String token) {
+        redisTemplate.execute(UNLOCK, List.of(lockKey(customerId)), token);
+    }
+
+    private String toJson(CartDTO state) {
+        if (state == null) {
+            return NONE;
+        }
+        try {
+            return objectMapper.writeValueAsString(CartPersistence.copyOf(state));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize cart " + state.getId(), e);
+        }
+    }
+
+    private CartDTO fromJson(String json) {
+        if (NONE.equals(json)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, CartDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read cached cart", e);
+        }
+    }
+
+    private static String cartKey(Long customerId) {
+        return "cart:" + customerId;
+    }
+
+    private static String lockKey(Long customerId) {
+        return "cart:lock:" + customerId;
+    }
+
+    private static void requireTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Cart changes must run inside a transaction.");
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.shopsmart.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker around Elasticsearch calls.
+ *
+ * A call that throws or exceeds the latency budget counts as a failure and is answered by the
+ * fallback instead. After {@code failure-threshold} consecutive failures the breaker opens and
+ * every call goes straight to the fallback for {@code open-ms}; then one trial call is let
+ * through (half-open) and its outcome closes or re-opens the breaker.
+ */
+@Service
+public class SearchCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final long latencyBudgetMs;
+    private final int failureThreshold;
+    private final long openMs;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong fallbackCount = new AtomicLong();
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private volatile String lastError;
+
+    public SearchCircuitBreaker(@Value("${shopsmart.search.breaker.latency-budget-ms:500}") long latencyBudgetMs,
+                                @Value("${shopsmart.search.breaker.failure-threshold:5}") int failureThreshold,
+                                @Value("${shopsmart.search.breaker.open-ms:30000}") long openMs,
+                                @Value("${shopsmart.search.breaker.max-concurrent:32}") int maxConcurrent) {
+        this.latencyBudgetMs = latencyBudgetMs;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        // A full pool is treated like a slow backend: callers fall back instead of queueing
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxConcurrent), runnable -> {
+                    Thread thread = new Thread(runnable, "search-breaker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the Elasticsearch call within the latency budget, or the fallback if the breaker
+     * is open or the call fails.
+     */
+    public <T> T execute(Supplier<T> call, Supplier<T> fallback) {
+        if (!allowRequest()) {
+            fallbackCount.incrementAndGet();
+            return fallback.get();
+        }
+        Future<T> future;
+        try {
+            future = executor.submit(call::get);
+        } catch (RejectedExecutionException e) {
+            recordFailure("Search pool saturated");
+            fallbackCount.incrementAndGet();
+            return fallback.get();
+        }
+        try {
+            T result = future.get(latencyBudgetMs, TimeUnit.MILLISECONDS);
+            recordSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            recordFailure("Exceeded latency budget of " + latencyBudgetMs + " ms");
+        } catch (ExecutionException e) {
+            recordFailure(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            recordFailure("Interrupted");
+        }
+        fallbackCount.incrementAndGet();
+        return fallback.get();
+    }
+
+    /**
+     * True when a caller may try Elasticsearch now. Moves an expired open breaker to half-open.
+     */
+    public boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            synchronized (this) {
+                if (state == State.OPEN) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+            }
+        }
+        return state == State.CLOSED;
+    }
+
+    /**
+     * True while the breaker is open and its open window has not expired. Does not change state.
+     */
+    public boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt < openMs;
+    }
+
+    /**
+     * For callers that talk to Elasticsearch themselves (the index writer) but still feed the breaker.
+     */
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state != State.CLOSED) {
+            System.out.println("Elasticsearch recovered, search circuit breaker closed.");
+            state = State.CLOSED;
+        }
+    }
+
+    public void recordFailure(String error) {
+        lastError = error;
+        int failures = consecutiveFailures.incrementAndGet();
+        if (isOpen()) {
+            return;
+        }
+        // Any failure outside CLOSED (a failed trial, or an expired open window) re-opens at once
+        if (state != State.CLOSED || failures >= failureThreshold) {
+            synchronized (this) {
+                openedAt = System.currentTimeMillis();
+                state = State.OPEN;
+            }
+            System.err.println("Search circuit breaker opened after " + failures + " failures: " + error);
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("consecutiveFailures", consecutiveFailures.get());
+        status.put("openedAt", state == State.CLOSED ? null : Instant.ofEpochMilli(openedAt));
+        status.put("fallbackCount", fallbackCount.get());
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,154 @@
+package com.shopsmart.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shopsmart.dto.ProductSearchResultDTO;
+import com.shopsmart.dto.SearchFacetBucketDTO;
+import com.shopsmart.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache for search result pages, keyed on the normalized query, filters and cursor.
+ *
+ * Only the engine output is cached (hit ids, totals, facets, cursor); hits are hydrated from
+ * the product cache on every request, so price and stock are never served stale from here.
+ * Concurrent misses for the same key share one engine call. Pages served by the degraded
+ * local index are not kept.
+ *
+ * Invalidation follows the search index, not the database: the outbox dispatcher reports each
+ * batch once Elasticsearch has applied it, so a miss after invalidation reads the new state.
+ */
+@Service
+public class SearchResultCacheService {
+
+    public record Key(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                      boolean inStock, String after, int limit) {
+
+        /**
+         * "  Phone " and "phone", or 10 and 10.00, must share an entry.
+         */
+        public static Key of(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                             Boolean inStock, String after, int limit) {
+            String normalized = query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+            return new Key(normalized, categoryId,
+                    minPrice != null ? minPrice.stripTrailingZeros() : null,
+                    maxPrice != null ? maxPrice.stripTrailingZeros() : null,
+                    Boolean.TRUE.equals(inStock),
+                    (after == null || after.isBlank()) ? null : after,
+                    limit);
+        }
+    }
+
+    public record Page(ProductSearchResultDTO result, List<Long> hitIds) {
+    }
+
+    private final Cache<Key, Page> pages;
+    private final int categoryFacetSize;
+
+    // Last search-relevant state seen per product, so stock/price churn that cannot change
+    // any result does not flush the cache
+    private final Map<Long, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    private record Fingerprint(int hash, boolean inStock, Long categoryId) {
+    }
+
+    public SearchResultCacheService(@Value("${shopsmart.cache.search.max-size:2000}") long maxSize,
+                                    @Value("${shopsmart.cache.search.ttl-seconds:30}") long ttlSeconds,
+                                    @Value("${shopsmart.search.category-facet-size:20}") int categoryFacetSize) {
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.categoryFacetSize = categoryFacetSize;
+    }
+
+    /**
+     * Returns the cached page or runs the loader; concurrent callers for the same key wait for
+     * the one in-flight load instead of issuing their own.
+     */
+    public Page get(Key key, Supplier<Page> loader) {
+        Page page = pages.get(key, k -> loader.get());
+        if (page.result().isDegraded()) {
+            pages.asMap().remove(key, page);
+        }
+        return page;
+    }
+
+    /**
+     * Called by the outbox dispatcher after Elasticsearch applied a batch. Stock changes reach
+     * here as upserts too, and only matter when the product went in or out of stock.
+     */
+    public void onIndexed(Collection<Product> upserted, Collection<Long> deletedIds) {
+        upserted.forEach(this::onProductChanged);
+        if (!deletedIds.isEmpty()) {
+            deletedIds.forEach(fingerprints::remove);
+            // Category unknown for a delete; deletes are rare, so drop everything
+            pages.invalidateAll();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats cacheStats = pages.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", pages.estimatedSize());
+        stats.put("hitCount", cacheStats.hitCount());
+        stats.put("missCount", cacheStats.missCount());
+        stats.put("hitRate", cacheStats.hitRate());
+        stats.put("evictionCount", cacheStats.evictionCount());
+        return stats;
+    }
+
+    private void onProductChanged(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        long stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0L;
+        Fingerprint fingerprint = new Fingerprint(Objects.hash(product.getName(), product.getDescription(),
+                product.getPrice() != null ? product.getPrice().stripTrailingZeros() : null), stock > 0, categoryId);
+        Fingerprint previous = fingerprints.put(product.getId(), fingerprint);
+        if (fingerprint.equals(previous)) {
+            return;
+        }
+        invalidateCategory(categoryId);
+        // Moved category: pages showing it under the old one are stale too
+        if (previous != null && !Objects.equals(previous.categoryId(), categoryId)) {
+            invalidateCategory(previous.categoryId());
+        }
+    }
+
+    /**
+     * Coarse invalidation: every page filtered to the category, and every unfiltered page whose
+     * facets show the category among its matches (or whose facet list was truncated).
+     */
+    private void invalidateCategory(Long categoryId) {
+        if (categoryId == null) {
+            pages.invalidateAll();
+            return;
+        }
+        String categoryKey = String.valueOf(categoryId);
+        pages.asMap().entrySet().removeIf(entry -> {
+            Key key = entry.getKey();
+            if (key.categoryId() != null) {
+                return key.categoryId().equals(categoryId);
+            }
+            List<SearchFacetBucketDTO> facets = entry.getValue().result().getCategoryFacets();
+            return facets == null || facets.size() >= categoryFacetSize
+                    || facets.stream().anyMatch(bucket -> categoryKey.equals(bucket.getKey()));
+        });
+    }
+}
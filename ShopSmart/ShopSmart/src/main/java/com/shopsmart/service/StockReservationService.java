@@ -0,0 +1,478 @@
+package com.shopsmart.service;
+
+import com.shopsmart.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Time-bound stock holds for carts, kept in {@code stock_reservation} instead of on the product row.
+ *
+ * A cart holds stock for {@code ttl-minutes} after its last change to that line; expired holds
+ * simply stop counting and are deleted in batches by the sweeper. Available stock is
+ * {@code stock - active reservations}. The product row is only written when checkout commits a
+ * cart's reservations into a real decrement.
+ *
+ * Reserving locks the product row (no write) so two carts cannot both take the last unit; checkout
+ * takes the same lock through InventoryService, so it sees every hold made before it.
+ *
+ * Products in hot mode (HotInventoryService) skip that lock: their holds come out of an in-memory
+ * pool already taken off the product row, and are stored as {@code deducted}. Deducted holds are
+ * not subtracted again by availability or checkout, and go back to the pool (or the product row)
+ * when released or swept, expired or not.
+ *
+ * Carts filled before reservations existed took their stock straight off the product row; a
+ * one-time backfill at startup gives those lines deducted holds.
+ */
+@Service
+public class StockReservationService {
+
+    private record Hold(long quantity, boolean deducted, boolean active) {
+    }
+
+    private static final String LEGACY_HOLDS_MIGRATION = "stock-reservation-legacy-cart-holds";
+
+    private static final String UPSERT_SQL = "INSERT INTO stock_reservation (cart_id, product_id, quantity, expires_at, deducted)"
+            + " VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE quantity = ?, expires_at = ?, deducted = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryService inventoryService;
+    private final HotInventoryService hotInventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final int sweepBatchSize;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate, InventoryService inventoryService,
+                                   HotInventoryService hotInventoryService, TransactionTemplate transactionTemplate,
+                                   @Value("${shopsmart.reservation.ttl-minutes:15}") long ttlMinutes,
+                                   @Value("${shopsmart.reservation.sweep-batch-size:1000}") int sweepBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryService = inventoryService;
+        this.hotInventoryService = hotInventoryService;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    /**
+     * Sets the cart's hold on a product to {@code quantity} units and restarts its TTL. Returns
+     * false, changing nothing, if raising the hold would need more than is available. Lowering a
+     * hold always succeeds.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reserve(Long cartId, Long productId, long quantity) {
+        if (quantity <= 0) {
+            release(cartId, productId);
+            return true;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        Hold hold = lockHold(cartId, productId, now);
+        if (hotInventoryService.isHot(productId)) {
+            return reserveHot(cartId, productId, quantity, hold, now);
+        }
+
+        Long stock = inventoryService.lockStock(List.of(productId)).get(productId);
+        if (stock == null) {
+            throw new ResourceNotFoundException("Product", "Id", productId);
+        }
+        // A hold deducted while the product was hot counts as stock this cart already has
+        long deducted = hold != null && hold.deducted() ? hold.quantity() : 0L;
+        long held = hold != null && (hold.deducted() || hold.active()) ? hold.quantity() : 0L;
+        if (quantity > held) {
+            long others = reservedByOthers(List.of(productId), cartId, now).getOrDefault(productId, 0L);
+            if (stock + deducted - others < quantity) {
+                return false;
+            }
+        }
+        if (deducted > 0) {
+            inventoryService.increment(productId, deducted);
+        }
+        upsert(cartId, productId, quantity, false, now);
+        return true;
+    }
+
+    /**
+     * {@link #reserve} for several lines of one cart: the cart's holds, the product rows and other
+     * carts' holds are each read in one statement and the holds written in one batch. Returns the
+     * products whose hold could not be raised; when that is not empty nothing has been written for
+     * the cold products, but hot units may already be allocated, so the caller must roll back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Long> reserveAll(Long cartId, Map<Long, Long> quantities) {
+        if (quantities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        Map<Long, Hold> holds = lockHolds(cartId, quantities.keySet(), now);
+
+        List<Long> released = new ArrayList<>();
+        Map<Long, Long> cold = new TreeMap<>();
+        Map<Long, Long> hot = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (quantity <= 0) {
+                released.add(productId);
+            } else if (hotInventoryService.isHot(productId)) {
+                hot.put(productId, quantity);
+            } else {
+                cold.put(productId, quantity);
+            }
+        });
+
+        List<Long> failed = new ArrayList<>();
+        Map<Long, Long> toStock = new HashMap<>();
+        if (!cold.isEmpty()) {
+            Map<Long, Long> stock = inventoryService.lockStock(cold.keySet());
+            List<Long> raising = new ArrayList<>();
+            cold.forEach((productId, quantity) -> {
+                Hold hold = holds.get(productId);
+                long held = hold != null && (hold.deducted() || hold.active()) ? hold.quantity() : 0L;
+                if (quantity > held) {
+                    raising.add(productId);
+                }
+            });
+            Map<Long, Long> others = raising.isEmpty() ? Collections.emptyMap() : reservedByOthers(raising, cartId, now);
+            for (Map.Entry<Long, Long> entry : cold.entrySet()) {
+                Long productId = entry.getKey();
+                Long onHand = stock.get(productId);
+                if (onHand == null) {
+                    throw new ResourceNotFoundException("Product", "Id", productId);
+                }
+                Hold hold = holds.get(productId);
+                long deducted = hold != null && hold.deducted() ? hold.quantity() : 0L;
+                if (raising.contains(productId) && onHand + deducted - others.getOrDefault(productId, 0L) < entry.getValue()) {
+                    failed.add(productId);
+                } else if (deducted > 0) {
+                    toStock.put(productId, deducted);
+                }
+            }
+        }
+        if (!failed.isEmpty()) {
+            return failed;
+        }
+        inventoryService.incrementAll(toStock);
+
+        List<Object[]> upserts = new ArrayList<>();
+        Timestamp expiresAt = Timestamp.from(now.toInstant().plus(ttl));
+        cold.forEach((productId, quantity) -> upserts.add(upsertParams(cartId, productId, quantity, false, expiresAt)));
+        for (Map.Entry<Long, Long> entry : hot.entrySet()) {
+            Hold hold = holds.get(entry.getKey());
+            long held = hold != null && hold.deducted() ? hold.quantity() : 0L;
+            long delta = entry.getValue() - held;
+            if (delta > 0 && !hotInventoryService.allocate(entry.getKey(), delta)) {
+                failed.add(entry.getKey());
+                continue;
+            }
+            if (delta < 0) {
+                hotInventoryService.freeAfterCommit(entry.getKey(), -delta);
+            }
+            upserts.add(upsertParams(cartId, entry.getKey(), entry.getValue(), true, expiresAt));
+        }
+        if (!failed.isEmpty()) {
+            return failed;
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+        }
+
+        if (!released.isEmpty()) {
+            Map<Long, Long> deducted = new HashMap<>();
+            List<Object[]> keys = new ArrayList<>();
+            for (Long productId : released) {
+                Hold hold = holds.get(productId);
+                if (hold == null) {
+                    continue;
+                }
+                if (hold.deducted()) {
+                    deducted.put(productId, hold.quantity());
+                }
+                keys.add(new Object[] { cartId, productId });
+            }
+            if (!keys.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM stock_reservation WHERE cart_id = ? AND product_id = ?", keys);
+            }
+            giveBack(deducted);
+        }
+        return failed;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long cartId, Long productId) {
+        Map<Long, Long> deducted = lockDeductedHolds(cartId, productId);
+        jdbcTemplate.update("DELETE FROM stock_reservation WHERE cart_id = ? AND product_id = ?", cartId, productId);
+        giveBack(deducted);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseAll(Long cartId) {
+        Map<Long, Long> deducted = lockDeductedHolds(cartId, null);
+        jdbcTemplate.update("DELETE FROM stock_reservation WHERE cart_id = ?", cartId);
+        giveBack(deducted);
+    }
+
+    /**
+     * Checkout: turns the cart's holds into stock decrements, all or nothing. Deducted holds are
+     * already off the product row and are used as they are; a line whose hold expired can still go
+     * through if enough stock is free right now.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void commit(Long cartId, Map<Long, Long> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> deducted = lockDeductedHolds(cartId, null);
+        Map<Long, Long> toTake = new HashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            long missing = quantity - deducted.getOrDefault(productId, 0L);
+            if (missing > 0 && !(hotInventoryService.isHot(productId) && hotInventoryService.allocate(productId, missing))) {
+                toTake.put(productId, missing);
+            }
+        });
+        Map<Long, Long> surplus = new HashMap<>();
+        deducted.forEach((productId, held) -> {
+            long extra = held - quantities.getOrDefault(productId, 0L);
+            if (extra > 0) {
+                surplus.put(productId, extra);
+            }
+        });
+
+        if (!toTake.isEmpty()) {
+            Map<Long, Long> stock = inventoryService.lockStock(toTake.keySet());
+            Map<Long, Long> others = reservedByOthers(toTake.keySet(), cartId, Timestamp.from(Instant.now()));
+            for (Map.Entry<Long, Long> entry : toTake.entrySet()) {
+                Long onHand = stock.get(entry.getKey());
+                if (onHand == null) {
+                    throw new ResourceNotFoundException("Product", "Id", entry.getKey());
+                }
+                long available = onHand - others.getOrDefault(entry.getKey(), 0L);
+                if (available < entry.getValue()) {
+                    throw new IllegalArgumentException("Not enough stock for product id " + entry.getKey()
+                            + ". Available: " + Math.max(available, 0L));
+                }
+            }
+            inventoryService.decrementLocked(toTake, stock);
+        }
+        jdbcTemplate.update("DELETE FROM stock_reservation WHERE cart_id = ?", cartId);
+        giveBack(surplus);
+    }
+
+    /**
+     * Gives every cart line that predates reservations a deducted hold for the stock it already
+     * took, so checkout does not take it a second time and the sweeper returns it to the product
+     * row once the hold expires. Runs once per database: later on, a line without a hold is one
+     * whose hold expired, and its stock is still on the row. A failure stops startup rather than
+     * let checkout run against unconverted carts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillLegacyCartHolds() {
+        Timestamp now = Timestamp.from(Instant.now());
+        Integer backfilled = transactionTemplate.execute(status -> {
+            // Concurrent starters wait on the marker row, then find it there
+            if (jdbcTemplate.update("INSERT IGNORE INTO data_migration (name, applied_at) VALUES (?, ?)",
+                    LEGACY_HOLDS_MIGRATION, now) == 0) {
+                return null;
+            }
+            return jdbcTemplate.update("INSERT INTO stock_reservation (cart_id, product_id, quantity, expires_at, deducted)"
+                            + " SELECT i.cart_id, i.product_id, SUM(i.quantity), ?, ? FROM cart_items i"
+                            + " WHERE NOT EXISTS (SELECT 1 FROM stock_reservation r"
+                            + " WHERE r.cart_id = i.cart_id AND r.product_id = i.product_id)"
+                            + " GROUP BY i.cart_id, i.product_id",
+                    Timestamp.from(now.toInstant().plus(ttl)), true);
+        });
+        if (backfilled != null) {
+            System.out.println("Backfilled " + backfilled + " stock reservations for cart lines from before reservations.");
+        }
+    }
+
+    public long getAvailable(Long productId) {
+        return getAvailable(List.of(productId)).getOrDefault(productId, 0L);
+    }
+
+    /**
+     * Stock minus active reservations, per product, plus whatever a hot product has pooled here.
+     * One grouped query, served from the (product_id, expires_at, quantity) index; no locks.
+     */
+    public Map<Long, Long> getAvailable(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.from(Instant.now()));
+        params.addAll(productIds);
+        Map<Long, Long> available = new HashMap<>();
+        jdbcTemplate.query("SELECT p.product_id, p.stock_quantity - COALESCE(SUM(r.quantity), 0)"
+                        + " FROM product p LEFT JOIN stock_reservation r"
+                        + " ON r.product_id = p.product_id AND r.expires_at > ? AND r.deducted = 0"
+                        + " WHERE p.product_id IN (" + placeholders(productIds.size()) + ")"
+                        + " GROUP BY p.product_id, p.stock_quantity",
+                rs -> {
+                    long productId = rs.getLong(1);
+                    available.put(productId, Math.max(rs.getLong(2), 0L) + hotInventoryService.getPooled(productId));
+                },
+                params.toArray());
+        return available;
+    }
+
+    /**
+     * Deletes expired holds in batches. Expired plain holds already stopped counting, so they go
+     * in bare statements; deducted ones carry stock that has to be given back, so each batch of
+     * those is locked, deleted and returned in one transaction.
+     */
+    @Scheduled(fixedDelayString = "${shopsmart.reservation.sweep-ms:60000}")
+    public void sweepExpired() {
+        try {
+            Timestamp now = Timestamp.from(Instant.now());
+            int total = 0;
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update("DELETE FROM stock_reservation WHERE expires_at <= ? AND deducted = 0 LIMIT ?",
+                        now, sweepBatchSize);
+                total += deleted;
+            } while (deleted == sweepBatchSize);
+            do {
+                Integer swept = transactionTemplate.execute(status -> sweepDeducted(now));
+                deleted = swept != null ? swept : 0;
+                total += deleted;
+            } while (deleted == sweepBatchSize);
+            if (total > 0) {
+                System.out.println("Released " + total + " expired stock reservations.");
+            }
+        } catch (Exception e) {
+            System.err.println("Stock reservation sweep failed: " + e.getMessage());
+        }
+    }
+
+    private int sweepDeducted(Timestamp now) {
+        List<Object[]> keys = new ArrayList<>();
+        Map<Long, Long> deducted = new HashMap<>();
+        // SKIP LOCKED: a hold being checked out right now is the checkout's to settle
+        jdbcTemplate.query("SELECT cart_id, product_id, quantity FROM stock_reservation"
+                        + " WHERE expires_at <= ? AND deducted = 1 LIMIT ? FOR UPDATE SKIP LOCKED",
+                rs -> {
+                    keys.add(new Object[] { rs.getLong(1), rs.getLong(2) });
+                    deducted.merge(rs.getLong(2), rs.getLong(3), Long::sum);
+                },
+                now, sweepBatchSize);
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM stock_reservation WHERE cart_id = ? AND product_id = ?", keys);
+        giveBack(deducted);
+        return keys.size();
+    }
+
+    /**
+     * Returns deducted units: into the pool for products hot here (after commit), otherwise
+     * straight onto the product rows in this transaction.
+     */
+    private void giveBack(Map<Long, Long> deducted) {
+        Map<Long, Long> toStock = new HashMap<>();
+        deducted.forEach((productId, quantity) -> {
+            if (hotInventoryService.isHot(productId)) {
+                hotInventoryService.freeAfterCommit(productId, quantity);
+            } else {
+                toStock.put(productId, quantity);
+            }
+        });
+        inventoryService.incrementAll(toStock);
+    }
+
+    private boolean reserveHot(Long cartId, Long productId, long quantity, Hold hold, Timestamp now) {
+        // Deducted holds count even once expired: their units stay off the row until swept
+        long held = hold != null && hold.deducted() ? hold.quantity() : 0L;
+        long delta = quantity - held;
+        if (delta > 0 && !hotInventoryService.allocate(productId, delta)) {
+            return false;
+        }
+        if (delta < 0) {
+            hotInventoryService.freeAfterCommit(productId, -delta);
+        }
+        upsert(cartId, productId, quantity, true, now);
+        return true;
+    }
+
+    private Hold lockHold(Long cartId, Long productId, Timestamp now) {
+        List<Hold> holds = jdbcTemplate.query("SELECT quantity, deducted, expires_at > ? FROM stock_reservation"
+                        + " WHERE cart_id = ? AND product_id = ? FOR UPDATE",
+                (rs, rowNum) -> new Hold(rs.getLong(1), rs.getBoolean(2), rs.getBoolean(3)),
+                now, cartId, productId);
+        return holds.isEmpty() ? null : holds.get(0);
+    }
+
+    private Map<Long, Hold> lockHolds(Long cartId, Collection<Long> productIds, Timestamp now) {
+        List<Object> params = new ArrayList<>();
+        params.add(now);
+        params.add(cartId);
+        params.addAll(productIds);
+        Map<Long, Hold> holds = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, quantity, deducted, expires_at > ? FROM stock_reservation"
+                        + " WHERE cart_id = ? AND product_id IN (" + placeholders(productIds.size()) + ")"
+                        + " ORDER BY product_id FOR UPDATE",
+                rs -> {
+                    holds.put(rs.getLong(1), new Hold(rs.getLong(2), rs.getBoolean(3), rs.getBoolean(4)));
+                },
+                params.toArray());
+        return holds;
+    }
+
+    private Map<Long, Long> lockDeductedHolds(Long cartId, Long productId) {
+        List<Object> params = new ArrayList<>();
+        params.add(cartId);
+        String sql = "SELECT product_id, quantity FROM stock_reservation WHERE cart_id = ? AND deducted = 1";
+        if (productId != null) {
+            sql += " AND product_id = ?";
+            params.add(productId);
+        }
+        Map<Long, Long> deducted = new HashMap<>();
+        jdbcTemplate.query(sql + " FOR UPDATE",
+                rs -> {
+                    deducted.put(rs.getLong(1), rs.getLong(2));
+                },
+                params.toArray());
+        return deducted;
+    }
+
+    private void upsert(Long cartId, Long productId, long quantity, boolean deducted, Timestamp now) {
+        Timestamp expiresAt = Timestamp.from(now.toInstant().plus(ttl));
+        jdbcTemplate.update(UPSERT_SQL, upsertParams(cartId, productId, quantity, deducted, expiresAt));
+    }
+
+    private static Object[] upsertParams(Long cartId, Long productId, long quantity, boolean deducted, Timestamp expiresAt) {
+        return new Object[] { cartId, productId, quantity, expiresAt, deducted, quantity, expiresAt, deducted };
+    }
+
+    private Map<Long, Long> reservedByOthers(Collection<Long> productIds, Long cartId, Timestamp now) {
+        List<Object> params = new ArrayList<>(productIds);
+        params.add(now);
+        params.add(cartId);
+        Map<Long, Long> reserved = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, SUM(quantity) FROM stock_reservation"
+                        + " WHERE product_id IN (" + placeholders(productIds.size()) + ")"
+                        + " AND expires_at > ? AND deducted = 0 AND cart_id <> ? GROUP BY product_id",
+                rs -> {
+                    reserved.put(rs.getLong(1), rs.getLong(2));
+                },
+                params.toArray());
+        return reserved;
+    }
+
+    private static String placeholders(int size) {
+        return String.join(", ", Collections.nCopies(size, "?"));
+    }
+}
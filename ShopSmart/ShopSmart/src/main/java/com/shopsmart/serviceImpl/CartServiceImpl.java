@@ -4,8 +4,12 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,30 +19,29 @@ import org.springframework.transaction.annotation.Transactional;
 import com.shopsmart.dto.CartDTO;
 import com.shopsmart.dto.CartItemDTO;
 import com.shopsmart.dto.ProductDTO;
-import com.shopsmart.entity.Cart;
-import com.shopsmart.entity.CartItem;
-import com.shopsmart.entity.Customer;
 import com.shopsmart.entity.Discount;
 import com.shopsmart.entity.Discount.DiscountType;
 import com.shopsmart.entity.Product;
 import com.shopsmart.exception.ResourceNotFoundException;
-import com.shopsmart.repository.CartItemRepository;
-import com.shopsmart.repository.CartRepository;
 import com.shopsmart.repository.CustomerRepository;
-import com.shopsmart.repository.DiscountRepository;
 import com.shopsmart.repository.ProductRepository;
+import com.shopsmart.service.CartPersistence;
 import com.shopsmart.service.CartService;
+import com.shopsmart.service.CartStore;
 import com.shopsmart.service.DiscountService;
+import com.shopsmart.service.ProductService;
+import com.shopsmart.service.StockReservationService;
 
 
+// Cart state lives in the CartStore (MySQL, this instance or Redis); this class only holds the rules
 @Service
 public class CartServiceImpl implements CartService {
 
 	@Autowired
-	private CartRepository cartRepository;
+	private CartStore cartStore;
 
 	@Autowired
-	private CartItemRepository cartItemRepository;
+	private CartPersistence cartPersistence;
 
 	@Autowired
 	private CustomerRepository customerRepository;
@@ -50,84 +53,43 @@ public class CartServiceImpl implements CartService {
 	private DiscountService discountService;
 
 	@Autowired
-	private DiscountRepository discountRepository;
+	private StockReservationService stockReservationService;
 
-	@Override
-	@Transactional
-	public Cart getOrCreateCart(Long customerId) {
-		Customer customer = customerRepository.findById(customerId)
-				.orElseThrow(() -> new ResourceNotFoundException("Customer", "Id", customerId));
-
-		Optional<Cart> existingCart = cartRepository.findByCustomerId(customerId);
-
-		if (existingCart.isPresent()) {
-			Cart cart = existingCart.get();
-			recalculateCartTotal(cart);
-			return cart;
-		} else {
-			Cart newCart = new Cart();
-			newCart.setCustomer(customer);
-			newCart.setCreatedAt(LocalDateTime.now());
-			newCart.setUpdatedAt(LocalDateTime.now());
-			newCart.setTotalAmount(BigDecimal.ZERO);
-			newCart.setTotalPrice(BigDecimal.ZERO); // Ensure totalPrice is initialized
-			newCart.setDiscountAmount(BigDecimal.ZERO);
-			newCart.setCouponCode(null);
-
-			Cart savedCart = cartRepository.save(newCart);
-			return savedCart;
-		}
-	}
+	@Autowired
+	private ProductService productService;
 
 	@Override
 	@Transactional
 	public CartDTO addProductToCart(Long customerId, Long productId, Long quantity) {
-		Cart cart = getOrCreateCart(customerId);
-
 		Product product = productRepository.findById(productId)
 				.orElseThrow(() -> new ResourceNotFoundException("Product", "Id", productId));
 
-		if (product.getStockQuantity() == null || product.getStockQuantity() < quantity) {
-			throw new IllegalArgumentException("Not enough stock for product: " + product.getName() + ". Available: "
-					+ (product.getStockQuantity() != null ? product.getStockQuantity() : 0));
-		}
-
-		Optional<CartItem> existingCartItem = cartItemRepository.findByCartAndProduct(cart, product);
+		CartDTO cart = cartStore.update(customerId, state -> {
+			CartItemDTO cartItem = findLine(state, productId);
+			long alreadyInCart = cartItem != null ? cartItem.getQuantity() : 0L;
 
-		CartItem cartItem;
-		if (existingCartItem.isPresent()) {
-			cartItem = existingCartItem.get();
-			Long oldQuantity = cartItem.getQuantity();
-			Long quantityToAdd = quantity;
-			if (product.getStockQuantity() < (oldQuantity + quantityToAdd)) {
-				throw new IllegalArgumentException("Adding " + quantityToAdd + " units of " + product.getName() + " would exceed available stock. Current in cart: " + oldQuantity + ", Available: " + product.getStockQuantity());
+			// Hold stock for the cart; the product row is only decremented at checkout
+			if (!stockReservationService.reserve(state.getId(), productId, alreadyInCart + quantity)) {
+				throw new IllegalArgumentException("Not enough stock for product: " + product.getName() + ". Available: "
+						+ stockReservationService.getAvailable(productId));
 			}
-			product.setStockQuantity(product.getStockQuantity() - quantityToAdd);
-			cartItem.setQuantity(oldQuantity + quantityToAdd);
-		} else {
-			cartItem = new CartItem();
-			cartItem.setCart(cart);
-			cartItem.setProduct(product);
-			cartItem.setQuantity(quantity);
-			cartItem.setPrice(product.getPrice());
-			cart.addCartItem(cartItem);
-			product.setStockQuantity(product.getStockQuantity() - quantity);
-		}
 
-		cartItemRepository.save(cartItem);
-		productRepository.save(product);
-
-		recalculateCartTotal(cart);
-		cartRepository.save(cart);
+			if (cartItem != null) {
+				cartItem.setQuantity(cartItem.getQuantity() + quantity);
+			} else {
+				cartItem = newCartItemDTO(null, productId, quantity, product.getPrice());
+				state.getCartItems().add(cartItem);
+			}
 
-		return mapCartToDTO(cart);
+			applyLineChange(state, cartItem.getPrice(), quantity);
+			return state;
+		});
+		return withProductDetails(cart);
 	}
 
 	@Override
 	@Transactional
 	public CartDTO updateProductQuantityInCart(Long customerId, Long productId, Long newQuantity) {
-		Cart cart = getOrCreateCart(customerId);
-
 		if (newQuantity <= 0) {
 			return removeProductFromCart(customerId, productId);
 		}
@@ -135,141 +97,217 @@ public class CartServiceImpl implements CartService {
 		Product product = productRepository.findById(productId)
 				.orElseThrow(() -> new ResourceNotFoundException("Product", "Id", productId));
 
-		CartItem cartItem = cart.getCartItems().stream()
-				.filter(item -> item.getProduct().getId().equals(productId))
-				.findFirst()
-				.orElseThrow(() -> new ResourceNotFoundException("CartItem", "Product Id in Cart", productId));
-
-		Long oldQuantity = cartItem.getQuantity();
-		Long quantityChange = newQuantity - oldQuantity;
-
-		if (quantityChange > 0 && (product.getStockQuantity() == null || product.getStockQuantity() < quantityChange)) {
-			throw new IllegalArgumentException("Not enough stock for product: " + product.getName() + ". Available: "
-					+ (product.getStockQuantity() != null ? product.getStockQuantity() : 0));
-		}
-
-		product.setStockQuantity(product.getStockQuantity() - quantityChange);
-		productRepository.save(product);
+		CartDTO cart = cartStore.update(customerId, state -> {
+			CartItemDTO cartItem = findLine(state, productId);
+			if (cartItem == null) {
+				throw new ResourceNotFoundException("CartItem", "Product Id in Cart", productId);
+			}
 
-		cartItem.setQuantity(newQuantity);
-		cartItemRepository.save(cartItem);
+			if (!stockReservationService.reserve(state.getId(), productId, newQuantity)) {
+				throw new IllegalArgumentException("Not enough stock for product: " + product.getName() + ". Available: "
+						+ stockReservationService.getAvailable(productId));
+			}
 
-		recalculateCartTotal(cart);
-		cartRepository.save(cart);
+			long quantityChange = newQuantity - cartItem.getQuantity();
+			cartItem.setQuantity(newQuantity);
 
-		return mapCartToDTO(cart);
+			applyLineChange(state, cartItem.getPrice(), quantityChange);
+			return state;
+		});
+		return withProductDetails(cart);
 	}
 
 	@Override
 	@Transactional
 	public CartDTO removeProductFromCart(Long customerId, Long productId) {
-		Cart cart = getOrCreateCart(customerId);
+		CartDTO cart = cartStore.update(customerId, state -> {
+			CartItemDTO cartItem = findLine(state, productId);
+			if (cartItem == null) {
+				throw new ResourceNotFoundException("CartItem", "Product Id in Cart", productId);
+			}
 
-		Product product = productRepository.findById(productId)
-				.orElseThrow(() -> new ResourceNotFoundException("Product", "Id", productId));
+			stockReservationService.release(state.getId(), productId);
+
+			state.getCartItems().remove(cartItem);
 
-		CartItem cartItem = cart.getCartItems().stream()
-				.filter(item -> item.getProduct().getId().equals(productId))
-				.findFirst()
-				.orElseThrow(() -> new ResourceNotFoundException("CartItem", "Product Id in Cart", productId));
+			applyLineChange(state, cartItem.getPrice(), -cartItem.getQuantity());
+			return state;
+		});
+		return withProductDetails(cart);
+	}
 
-		if (product.getStockQuantity() != null) {
-			product.setStockQuantity(product.getStockQuantity() + cartItem.getQuantity());
-			productRepository.save(product);
+	/**
+	 * Several lines in one go: each change is a (productId, quantity delta), a line reaching zero is
+	 * removed. Products are loaded in one query, stock is held for all lines in one bulk reservation
+	 * and the totals are recalculated once; any line failing leaves the cart untouched.
+	 */
+	@Override
+	@Transactional
+	public CartDTO applyCartChanges(Long customerId, List<CartItemDTO> changes) {
+		if (changes == null || changes.isEmpty()) {
+			throw new IllegalArgumentException("No cart changes given.");
+		}
+		Map<Long, Long> deltas = new LinkedHashMap<>();
+		for (CartItemDTO change : changes) {
+			if (change.getProductId() == null || change.getQuantity() == null) {
+				throw new IllegalArgumentException("Each cart change needs a productId and a quantity.");
+			}
+			deltas.merge(change.getProductId(), change.getQuantity(), Long::sum);
 		}
 
-		cart.removeCartItem(cartItem);
-		cartItemRepository.delete(cartItem);
+		Map<Long, Product> products = productRepository.findAllById(deltas.keySet()).stream()
+				.collect(Collectors.toMap(Product::getId, Function.identity()));
+		for (Long productId : deltas.keySet()) {
+			if (!products.containsKey(productId)) {
+				throw new ResourceNotFoundException("Product", "Id", productId);
+			}
+		}
 
-		recalculateCartTotal(cart);
-		Cart updatedCart = cartRepository.save(cart);
+		CartDTO cart = cartStore.update(customerId, state -> {
+			Map<Long, CartItemDTO> lines = new HashMap<>();
+			for (CartItemDTO item : state.getCartItems()) {
+				lines.put(item.getProductId(), item);
+			}
 
-		return mapCartToDTO(updatedCart);
+			Map<Long, Long> targets = new LinkedHashMap<>();
+			deltas.forEach((productId, delta) -> {
+				CartItemDTO line = lines.get(productId);
+				if (line == null && delta < 0) {
+					throw new ResourceNotFoundException("CartItem", "Product Id in Cart", productId);
+				}
+				long current = line != null ? line.getQuantity() : 0L;
+				targets.put(productId, Math.max(current + delta, 0L));
+			});
+
+			List<Long> shortOfStock = stockReservationService.reserveAll(state.getId(), targets);
+			if (!shortOfStock.isEmpty()) {
+				Map<Long, Long> available = stockReservationService.getAvailable(shortOfStock);
+				String details = shortOfStock.stream()
+						.map(productId -> products.get(productId).getName() + " (available: "
+								+ available.getOrDefault(productId, 0L) + ")")
+						.collect(Collectors.joining(", "));
+				throw new IllegalArgumentException("Not enough stock for: " + details);
+			}
+
+			BigDecimal subtotalChange = BigDecimal.ZERO;
+			for (Map.Entry<Long, Long> target : targets.entrySet()) {
+				CartItemDTO line = lines.get(target.getKey());
+				long current = line != null ? line.getQuantity() : 0L;
+				if (target.getValue() == current) {
+					continue;
+				}
+				if (target.getValue() == 0L) {
+					state.getCartItems().remove(line);
+				} else if (line == null) {
+					line = newCartItemDTO(null, target.getKey(), target.getValue(), products.get(target.getKey()).getPrice());
+					state.getCartItems().add(line);
+				} else {
+					line.setQuantity(target.getValue());
+				}
+				subtotalChange = subtotalChange.add(line.getPrice().multiply(BigDecimal.valueOf(target.getValue() - current)));
+			}
+
+			applyLineChange(state, subtotalChange);
+			return state;
+		});
+		return withProductDetails(cart);
 	}
 
 	@Override
 	@Transactional
 	public void clearCart(Long customerId) {
-		Cart cart = getOrCreateCart(customerId);
-
-		for (CartItem item : new ArrayList<>(cart.getCartItems())) {
-			Product product = item.getProduct();
-			if (product.getStockQuantity() != null) {
-				product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-				productRepository.save(product);
-			}
-			cart.removeCartItem(item);
+		if (cartStore.find(customerId).isEmpty()) {
+			return;
 		}
-
-		cartItemRepository.deleteAll(cart.getCartItems());
-
-		cart.setTotalPrice(BigDecimal.ZERO); // Also reset totalPrice
-		cart.setTotalAmount(BigDecimal.ZERO);
-		cart.setCouponCode(null);
-		cart.setDiscountAmount(BigDecimal.ZERO);
-		cart.setUpdatedAt(LocalDateTime.now());
-		cartRepository.save(cart);
+		cartStore.update(customerId, state -> {
+			stockReservationService.releaseAll(state.getId());
+
+			state.getCartItems().clear();
+			state.setTotalPrice(BigDecimal.ZERO); // Also reset totalPrice
+			state.setTotalAmount(BigDecimal.ZERO);
+			state.setCouponCode(null);
+			state.setDiscountAmount(BigDecimal.ZERO);
+			state.setUpdatedAt(LocalDateTime.now());
+			return state;
+		});
 	}
 
 	@Override
 	@Transactional(readOnly = true)
 	public CartDTO getCartById(Long cartId) {
-		Cart cart = cartRepository.findById(cartId)
+		Long customerId = cartPersistence.findCustomerId(cartId)
 				.orElseThrow(() -> new ResourceNotFoundException("Cart", "Id", cartId));
-		recalculateCartTotal(cart);
-		return mapCartToDTO(cart);
+		CartDTO cart = cartStore.find(customerId)
+				.orElseThrow(() -> new ResourceNotFoundException("Cart", "Id", cartId));
+		return withProductDetails(cart);
 	}
 
+	// Pure read: no writes. A customer without a cart gets an empty one that is not saved.
 	@Override
 	@Transactional(readOnly = true)
 	public CartDTO getCartByCustomerId(Long customerId) {
-		Cart cart = getOrCreateCart(customerId);
-		return mapCartToDTO(cart);
+		Optional<CartDTO> cart = cartStore.find(customerId);
+		if (cart.isEmpty()) {
+			if (!customerRepository.existsById(customerId)) {
+				throw new ResourceNotFoundException("Customer", "Id", customerId);
+			}
+			return emptyCart(customerId);
+		}
+		return withProductDetails(cart.get());
 	}
 
 	@Override
 	@Transactional
 	public CartDTO applyCouponToCart(Long customerId, String couponCode) {
-		Cart cart = getOrCreateCart(customerId);
-		if (cart.getCartItems().isEmpty()) {
-			throw new IllegalArgumentException("Cannot apply coupon to an empty cart.");
-		}
-
-		Discount discount = discountRepository.findByCode(couponCode)
+		Discount discount = discountService.resolveDiscount(couponCode)
 				.orElseThrow(() -> new ResourceNotFoundException("Discount", "code", couponCode));
 
-		if (!discountService.isValidDiscount(couponCode, calculateSubtotal(cart))) {
-			throw new IllegalArgumentException("Coupon code is invalid or expired or does not meet minimum amount.");
-		}
+		CartDTO cart = cartStore.update(customerId, state -> {
+			if (state.getCartItems().isEmpty()) {
+				throw new IllegalArgumentException("Cannot apply coupon to an empty cart.");
+			}
+
+			if (!discountService.isValidDiscount(discount, state.getTotalPrice())) {
+				throw new IllegalArgumentException("Coupon code is invalid or expired or does not meet minimum amount.");
+			}
 
-		cart.setCouponCode(couponCode);
-		recalculateCartTotal(cart);
-		cart.setUpdatedAt(LocalDateTime.now());
-		Cart savedCart = cartRepository.save(cart);
-		return mapCartToDTO(savedCart);
+			state.setCouponCode(couponCode);
+			applyDiscount(state);
+			return state;
+		});
+		return withProductDetails(cart);
 	}
 
 	@Override
 	@Transactional
 	public CartDTO removeCouponFromCart(Long customerId) {
-		Cart cart = getOrCreateCart(customerId);
-		if (cart.getCouponCode() == null) {
+		if (cartStore.find(customerId).map(CartDTO::getCouponCode).isEmpty()) {
 			throw new IllegalArgumentException("No coupon is currently applied to the cart.");
 		}
-		cart.setCouponCode(null);
-		cart.setDiscountAmount(BigDecimal.ZERO);
-		recalculateCartTotal(cart);
-		cart.setUpdatedAt(LocalDateTime.now());
-		Cart savedCart = cartRepository.save(cart);
-		return mapCartToDTO(savedCart);
+		CartDTO cart = cartStore.update(customerId, state -> {
+			state.setCouponCode(null);
+			state.setDiscountAmount(BigDecimal.ZERO);
+			applyDiscount(state);
+			return state;
+		});
+		return withProductDetails(cart);
 	}
 
 
-	// Inside your CartServiceImpl.java
-	private void recalculateCartTotal(Cart cart) {
-	    // 1. Calculate the subtotal from all items in the cart
-	    final BigDecimal subtotal = calculateSubtotal(cart);
-	    cart.setTotalPrice(subtotal);
+	// Moves the stored subtotal by one line's change instead of re-summing every item
+	private void applyLineChange(CartDTO cart, BigDecimal unitPrice, long quantityChange) {
+		applyLineChange(cart, unitPrice.multiply(BigDecimal.valueOf(quantityChange)));
+	}
+
+	private void applyLineChange(CartDTO cart, BigDecimal change) {
+		cart.setTotalPrice(cart.getTotalPrice().add(change).setScale(2, RoundingMode.HALF_UP));
+		applyDiscount(cart);
+	}
+
+	// Derives discount and total from the stored subtotal; the coupon is looked up once per request
+	private void applyDiscount(CartDTO cart) {
+	    // 1. Start from the maintained subtotal
+	    final BigDecimal subtotal = cart.getTotalPrice();
 
 	    // 2. Initialize the final total with the subtotal
 	    BigDecimal finalTotal = subtotal;
@@ -277,10 +315,10 @@ public class CartServiceImpl implements CartService {
 
 	    // 3. Check for and apply coupon discount
 	    if (cart.getCouponCode() != null && !cart.getCouponCode().isEmpty()) {
-	        Optional<Discount> discountOpt = discountRepository.findByCode(cart.getCouponCode());
+	        Optional<Discount> discountOpt = discountService.resolveDiscount(cart.getCouponCode());
 	        if (discountOpt.isPresent()) {
 	            Discount discount = discountOpt.get();
-	            if (discountService.isValidDiscount(discount.getCode(), subtotal)) {
+	            if (discountService.isValidDiscount(discount, subtotal)) {
 	                BigDecimal calculatedDiscount = BigDecimal.ZERO;
 	                if (discount.getType() == DiscountType.PERCENTAGE) {
 	                    calculatedDiscount = subtotal.multiply(discount.getValue().divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP));
@@ -293,7 +331,7 @@ public class CartServiceImpl implements CartService {
 	                    calculatedDiscount = finalTotal;
 	                }
 
-	                // Now, update the cart entity fields directly outside of a nested lambda
+	                // Now, update the cart fields directly outside of a nested lambda
 	                cart.setDiscountAmount(calculatedDiscount.setScale(2, RoundingMode.HALF_UP));
 	                finalTotal = finalTotal.subtract(calculatedDiscount);
 
@@ -309,72 +347,57 @@ public class CartServiceImpl implements CartService {
 	    if (finalTotal.compareTo(BigDecimal.ZERO) < 0) {
 	        finalTotal = BigDecimal.ZERO;
 	    }
-	    
+
 	    // 5. Set the final calculated total and update timestamp
 	    cart.setTotalAmount(finalTotal.setScale(2, RoundingMode.HALF_UP));
 	    cart.setUpdatedAt(LocalDateTime.now());
 	}
 
-
-
-	private BigDecimal calculateSubtotal(Cart cart) {
-		BigDecimal subtotal = BigDecimal.ZERO;
-		if (cart.getCartItems() != null) {
-			for (CartItem item : cart.getCartItems()) {
-				if (item.getProduct() != null && item.getPrice() != null && item.getQuantity() != null) {
-					subtotal = subtotal.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
-				}
+	private static CartItemDTO findLine(CartDTO cart, Long productId) {
+		for (CartItemDTO item : cart.getCartItems()) {
+			if (item.getProductId().equals(productId)) {
+				return item;
 			}
 		}
-		return subtotal.setScale(2, RoundingMode.HALF_UP);
+		return null;
 	}
 
-	private CartDTO mapCartToDTO(Cart cart) {
+	private CartDTO emptyCart(Long customerId) {
 		CartDTO cartDTO = new CartDTO();
-		cartDTO.setId(cart.getId());
-		cartDTO.setCustomerId(cart.getCustomer() != null ? cart.getCustomer().getId() : null);
-		cartDTO.setCreatedAt(cart.getCreatedAt());
-		cartDTO.setUpdatedAt(cart.getUpdatedAt());
-
-		// FIX: Calculate and set the totalPrice before returning the DTO
-		cartDTO.setTotalPrice(calculateSubtotal(cart));
-
-		cartDTO.setTotalAmount(cart.getTotalAmount());
-		cartDTO.setCouponCode(cart.getCouponCode());
-		cartDTO.setDiscountAmount(cart.getDiscountAmount());
-
-		if (cart.getCartItems() != null && !cart.getCartItems().isEmpty()) {
-			cartDTO.setCartItems(
-					cart.getCartItems().stream().map(this::mapCartItemToDTO).collect(Collectors.toList()));
-		} else {
-			cartDTO.setCartItems(new ArrayList<>());
-		}
+		cartDTO.setCustomerId(customerId);
+		cartDTO.setTotalPrice(BigDecimal.ZERO);
+		cartDTO.setTotalAmount(BigDecimal.ZERO);
+		cartDTO.setDiscountAmount(BigDecimal.ZERO);
+		cartDTO.setCartItems(new ArrayList<>());
 		return cartDTO;
 	}
 
-	private CartItemDTO mapCartItemToDTO(CartItem cartItem) {
+	private CartItemDTO newCartItemDTO(Long id, Long productId, Long quantity, BigDecimal price) {
 		CartItemDTO cartItemDTO = new CartItemDTO();
-		cartItemDTO.setId(cartItem.getId());
-		cartItemDTO.setProductId(cartItem.getProduct() != null ? cartItem.getProduct().getId() : null);
-		cartItemDTO.setQuantity(cartItem.getQuantity());
-		cartItemDTO.setPrice(cartItem.getPrice());
-
-		ProductDTO productDTO = new ProductDTO();
-		if (cartItem.getProduct() != null) {
-			productDTO.setId(cartItem.getProduct().getId());
-			productDTO.setName(cartItem.getProduct().getName());
-			productDTO.setPrice(cartItem.getProduct().getPrice());
-			productDTO.setImages(cartItem.getProduct().getImages());
-			productDTO.setDescription(cartItem.getProduct().getDescription());
-			productDTO.setStockQuantity(cartItem.getProduct().getStockQuantity());
-
-			if (cartItem.getProduct().getCategory() != null) {
-				productDTO.setCategoryId(cartItem.getProduct().getCategory().getId());
-				productDTO.setCategoryName(cartItem.getProduct().getCategory().getName());
+		cartItemDTO.setId(id);
+		cartItemDTO.setProductId(productId);
+		cartItemDTO.setQuantity(quantity);
+		cartItemDTO.setPrice(price);
+		return cartItemDTO;
+	}
+
+	// Product details for all lines in one call, served from the product cache
+	private CartDTO withProductDetails(CartDTO cart) {
+		List<CartItemDTO> items = cart.getCartItems();
+		if (items.isEmpty()) {
+			return cart;
+		}
+		List<Long> productIds = items.stream().map(CartItemDTO::getProductId).distinct().collect(Collectors.toList());
+		Map<Long, ProductDTO> products = productService.getProductsByIds(productIds).stream()
+				.collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+		for (CartItemDTO item : items) {
+			ProductDTO productDTO = products.get(item.getProductId());
+			if (productDTO == null) {
+				productDTO = new ProductDTO();
+				productDTO.setId(item.getProductId());
 			}
+			item.setProductDetails(productDTO);
 		}
-		cartItemDTO.setProductDetails(productDTO);
-
-		return cartItemDTO;
+		return cart;
 	}
 }
@@ -19,13 +19,11 @@ import com.shopsmart.config.SecurityConstants;
 import com.shopsmart.dto.AddressDTO;
 import com.shopsmart.dto.CustomerDTO;
 import com.shopsmart.dto.ProfileDTO;
-import com.shopsmart.dto.ProductDTO;
 import com.shopsmart.dto.UserDTO;
 import com.shopsmart.entity.Address;
 import com.shopsmart.entity.Cart;
 import com.shopsmart.entity.CartItem;
 import com.shopsmart.entity.Customer;
-import com.shopsmart.entity.Product;
 import com.shopsmart.entity.Profile;
 import com.shopsmart.entity.Role;
 import com.shopsmart.entity.User;
@@ -38,8 +36,9 @@ import com.shopsmart.repository.OrderRepository;
 import com.shopsmart.repository.RoleRepository;
 import com.shopsmart.repository.UserRepository;
 import com.shopsmart.service.CustomerService;
+import com.shopsmart.service.CartStore;
+import com.shopsmart.service.StockReservationService;
 import com.shopsmart.service.RefreshTokenService;
-import com.shopsmart.service.ProductService;
 
 @Service
 public class CustomerServiceImpl implements CustomerService {
@@ -66,7 +65,10 @@ public class CustomerServiceImpl implements CustomerService {
     private CartItemRepository cartItemRepository;
 
     @Autowired
-    private ProductService productService;
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private CartStore cartStore;
 
     @Autowired
     private OrderRepository orderRepository;
@@ -208,21 +210,19 @@ public class CustomerServiceImpl implements CustomerService {
 
         refreshTokenService.deleteByUserId(customer.getId());
 
-        Optional<Cart> customerCart = cartRepository.findByCustomerId(customer.getId());
-        if (customerCart.isPresent()) {
-            Cart cart = customerCart.get();
-            for (CartItem item : new ArrayList<>(cart.getCartItems())) {
-                if (item.getProduct() != null && item.getProduct().getStockQuantity() != null) {
-                    Product product = item.getProduct();
-                    product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-                    ProductDTO productDTOToUpdate = mapProductEntityToDTO(product);
-                    productService.updateProduct(product.getId(), productDTOToUpdate);
+        cartStore.withPersistedCart(customer.getId(), () -> {
+            Optional<Cart> customerCart = cartRepository.findByCustomerId(customer.getId());
+            if (customerCart.isPresent()) {
+                Cart cart = customerCart.get();
+                for (CartItem item : new ArrayList<>(cart.getCartItems())) {
+                    cartItemRepository.delete(item);
                 }
-                cartItemRepository.delete(item);
+                stockReservationService.releaseAll(cart.getId());
+                cart.getCartItems().clear();
+                cartRepository.delete(cart);
             }
-            cart.getCartItems().clear();
-            cartRepository.delete(cart);
-        }
+            return null;
+        });
 
         customerRepository.delete(customer);
 	}
@@ -364,19 +364,4 @@ public class CustomerServiceImpl implements CustomerService {
         address.setType(dto.getType());
         return address;
     }
-
-    private ProductDTO mapProductEntityToDTO(Product product) {
-        ProductDTO productDTO = new ProductDTO();
-        productDTO.setId(product.getId());
-        productDTO.setName(product.getName());
-        productDTO.setDescription(product.getDescription());
-        productDTO.setImages(product.getImages());
-        productDTO.setPrice(product.getPrice());
-        productDTO.setStockQuantity(product.getStockQuantity());
-        if (product.getCategory() != null) {
-            productDTO.setCategoryId(product.getCategory().getId());
-            productDTO.setCategoryName(product.getCategory().getName());
-        }
-        return productDTO;
-    }
 }
@@ -3,10 +3,13 @@ package com.shopsmart.serviceImpl;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import com.shopsmart.dto.DiscountDTO;
 import com.shopsmart.entity.Discount;
@@ -95,28 +98,43 @@ public class DiscountServiceImpl implements DiscountService {
 
     @Override
     public boolean isValidDiscount(String code, BigDecimal currentAmount) {
-        return discountRepository.findByCode(code).map(discount -> {
-            Instant now = Instant.now();
-            if (!discount.isActive()) {
-                System.out.println("DEBUG: Discount " + code + " is not active.");
-                return false;
-            }
-            // Directly compare Instant from entity
-            if (now.isBefore(discount.getStartDate()) || now.isAfter(discount.getEndDate())) {
-                System.out.println("DEBUG: Discount " + code + " is outside its valid date range.");
-                return false;
-            }
-            if (discount.getUsageLimit() != null && discount.getUsedCount() >= discount.getUsageLimit()) {
-                System.out.println("DEBUG: Discount " + code + " has reached its usage limit.");
-                return false;
-            }
-            if (discount.getMinOrderAmount() != null && currentAmount.compareTo(discount.getMinOrderAmount()) < 0) {
-                System.out.println("DEBUG: Discount " + code + " requires a minimum order amount of "
-                        + discount.getMinOrderAmount() + ".");
-                return false;
-            }
-            return true;
-        }).orElse(false);
+        return resolveDiscount(code).map(discount -> isValidDiscount(discount, currentAmount)).orElse(false);
+    }
+
+    @Override
+    public boolean isValidDiscount(Discount discount, BigDecimal currentAmount) {
+        Instant now = Instant.now();
+        if (!discount.isActive()) {
+            return false;
+        }
+        // Directly compare Instant from entity
+        if (now.isBefore(discount.getStartDate()) || now.isAfter(discount.getEndDate())) {
+            return false;
+        }
+        if (discount.getUsageLimit() != null && discount.getUsedCount() >= discount.getUsageLimit()) {
+            return false;
+        }
+        if (discount.getMinOrderAmount() != null && currentAmount.compareTo(discount.getMinOrderAmount()) < 0) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<Discount> resolveDiscount(String code) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            // Kafka consumers and scheduled jobs have no request to cache on
+            return discountRepository.findByCode(code);
+        }
+        String key = DiscountServiceImpl.class.getName() + ".discount." + code;
+        Optional<Discount> discount = (Optional<Discount>) attributes.getAttribute(key, RequestAttributes.SCOPE_REQUEST);
+        if (discount == null) {
+            discount = discountRepository.findByCode(code);
+            attributes.setAttribute(key, discount, RequestAttributes.SCOPE_REQUEST);
+        }
+        return discount;
     }
 
     // Helper method to map DTO to Entity
@@ -1,23 +1,297 @@
 package com.shopsmart.serviceImpl;
 
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.LongTermsBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
 import com.shopsmart.document.ProductDocument;
+import com.shopsmart.dto.ProductSearchResultDTO;
+import com.shopsmart.dto.SearchFacetBucketDTO;
 import com.shopsmart.repository.ProductDocumentRepository;
+import com.shopsmart.service.LocalProductSearchIndex;
 import com.shopsmart.service.ProductSearchService;
+import com.shopsmart.service.ProductService;
+import com.shopsmart.service.SearchCircuitBreaker;
+import com.shopsmart.service.SearchResultCacheService;
+import com.shopsmart.service.SearchResultCacheService.Key;
+import com.shopsmart.service.SearchResultCacheService.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 public class ElasticsearchProductSearchService implements ProductSearchService {
 
+    private static final int DEFAULT_PAGE_LIMIT = 20;
+    private static final int MAX_PAGE_LIMIT = 100;
+    private static final String CATEGORY_FACET = "categories";
+    private static final String CATEGORY_NAME = "categoryName";
+    private static final String PRICE_FACET = "prices";
+
     private final ProductDocumentRepository productDocumentRepository;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ProductService productService;
+    private final SearchCircuitBreaker searchCircuitBreaker;
+    private final LocalProductSearchIndex localProductSearchIndex;
+    private final SearchResultCacheService searchResultCacheService;
+
+    @Value("${shopsmart.search.category-facet-size:20}")
+    private int categoryFacetSize;
 
-    public ElasticsearchProductSearchService(ProductDocumentRepository productDocumentRepository) {
+    @Value("${shopsmart.search.price-facet-interval:50}")
+    private double priceFacetInterval;
+
+    public ElasticsearchProductSearchService(ProductDocumentRepository productDocumentRepository,
+                                             ElasticsearchOperations elasticsearchOperations,
+                                             ProductService productService,
+                                             SearchCircuitBreaker searchCircuitBreaker,
+                                             LocalProductSearchIndex localProductSearchIndex,
+                                             SearchResultCacheService searchResultCacheService) {
         this.productDocumentRepository = productDocumentRepository;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.productService = productService;
+        this.searchCircuitBreaker = searchCircuitBreaker;
+        this.localProductSearchIndex = localProductSearchIndex;
+        this.searchResultCacheService = searchResultCacheService;
+    }
+
+    @Override
+    public Map<String, Object> getHealth() {
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("breaker", searchCircuitBreaker.getStatus());
+        health.put("localIndexLoaded", localProductSearchIndex.isLoaded());
+        health.put("localIndexSize", localProductSearchIndex.size());
+        health.put("resultCache", searchResultCacheService.getStats());
+        return health;
     }
 
     @Override
     public List<ProductDocument> searchProducts(String query) {
-        return productDocumentRepository.findByNameContainingOrDescriptionContaining(query, query);
+        return searchCircuitBreaker.execute(
+                () -> productDocumentRepository.findByNameContainingOrDescriptionContaining(query, query),
+                () -> localProductSearchIndex.searchDocuments(query));
+    }
+
+    /**
+     * Ranked search in a single round trip: relevance query, filters in filter context (not
+     * scored, cacheable by Elasticsearch), category and price facets, and search_after paging
+     * on (score, id) so deep pages cost the same as the first one. Falls back to the local
+     * index when Elasticsearch fails or is slow. Head queries are answered from the result cache.
+     */
+    @Override
+    public ProductSearchResultDTO search(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                         Boolean inStock, String after, Integer limit) {
+        int pageLimit = (limit == null || limit <= 0) ? DEFAULT_PAGE_LIMIT : Math.min(limit, MAX_PAGE_LIMIT);
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice.");
+        }
+        List<Object> searchAfter = (after != null && !after.isBlank()) ? decodeCursor(after) : null;
+
+        // The engines see the normalized query too, so a cached page matches what a miss would return
+        Key key = Key.of(query, categoryId, minPrice, maxPrice, inStock, after, pageLimit);
+        Page page = searchResultCacheService.get(key, () -> searchCircuitBreaker.execute(
+                () -> searchIndex(key.query(), categoryId, minPrice, maxPrice, inStock, searchAfter, pageLimit),
+                () -> searchLocally(key.query(), categoryId, minPrice, maxPrice, inStock, searchAfter, pageLimit)));
+
+        // Hydrate on the caller thread, outside the Elasticsearch latency budget, into a fresh DTO
+        // since the page may be shared through the cache.
+        // Price, stock and images come from the product cache / one IN query, never per hit
+        ProductSearchResultDTO cached = page.result();
+        ProductSearchResultDTO result = new ProductSearchResultDTO();
+        result.setContent(productService.getProductsByIds(page.hitIds()));
+        result.setTotalHits(cached.getTotalHits());
+        result.setNextCursor(cached.getNextCursor());
+        result.setHasMore(cached.isHasMore());
+        result.setLimit(cached.getLimit());
+        result.setCategoryFacets(cached.getCategoryFacets());
+        result.setPriceFacets(cached.getPriceFacets());
+        result.setDegraded(cached.isDegraded());
+        return result;
+    }
+
+    private Page searchIndex(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                   Boolean inStock, List<Object> searchAfter, int pageLimit) {
+
+        Query textQuery = (query == null || query.isBlank())
+                ? Query.of(q -> q.matchAll(m -> m))
+                : Query.of(q -> q.multiMatch(m -> m
+                        .query(query)
+                        .fields("name^3", "description")
+                        .type(TextQueryType.BestFields)));
+
+        List<Query> filters = new ArrayList<>();
+        if (categoryId != null) {
+            filters.add(Query.of(q -> q.term(t -> t.field("categoryId").value(categoryId))));
+        }
+        if (minPrice != null || maxPrice != null) {
+            filters.add(Query.of(q -> q.range(r -> r.number(n -> {
+                n.field("price");
+                if (minPrice != null) {
+                    n.gte(minPrice.doubleValue());
+                }
+                if (maxPrice != null) {
+                    n.lte(maxPrice.doubleValue());
+                }
+                return n;
+            }))));
+        }
+        if (Boolean.TRUE.equals(inStock)) {
+            filters.add(Query.of(q -> q.range(r -> r.number(n -> n.field("stockQuantity").gt(0.0)))));
+        }
+
+        Aggregation categoryFacet = Aggregation.of(a -> a
+                .terms(t -> t.field("categoryId").size(categoryFacetSize))
+                .aggregations(CATEGORY_NAME, Aggregation.of(s -> s.terms(t -> t.field("categoryName").size(1)))));
+        Aggregation priceFacet = Aggregation.of(a -> a
+                .histogram(h -> h.field("price").interval(priceFacetInterval).minDocCount(1)));
+
+        var builder = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b.must(textQuery).filter(filters)))
+                .withAggregation(CATEGORY_FACET, categoryFacet)
+                .withAggregation(PRICE_FACET, priceFacet)
+                .withSort(s -> s.score(sc -> sc.order(SortOrder.Desc)))
+                .withSort(s -> s.field(f -> f.field("id").order(SortOrder.Asc)))
+                // One extra hit tells us whether another page exists
+                .withPageable(PageRequest.of(0, pageLimit + 1));
+        if (searchAfter != null) {
+            builder.withSearchAfter(searchAfter);
+        }
+
+        SearchHits<ProductDocument> hits = elasticsearchOperations.search(builder.build(), ProductDocument.class);
+
+        List<SearchHit<ProductDocument>> hitList = hits.getSearchHits();
+        boolean hasMore = hitList.size() > pageLimit;
+        List<SearchHit<ProductDocument>> page = hasMore ? hitList.subList(0, pageLimit) : hitList;
+
+        ProductSearchResultDTO result = new ProductSearchResultDTO();
+        List<Long> hitIds = page.stream().map(hit -> hit.getContent().getId()).collect(Collectors.toList());
+        result.setTotalHits(hits.getTotalHits());
+        result.setHasMore(hasMore);
+        result.setNextCursor(hasMore ? encodeCursor(page.get(page.size() - 1).getSortValues()) : null);
+        result.setLimit(pageLimit);
+        result.setCategoryFacets(new ArrayList<>());
+        result.setPriceFacets(new ArrayList<>());
+
+        if (hits.getAggregations() instanceof ElasticsearchAggregations aggregations) {
+            Map<String, ElasticsearchAggregation> byName = aggregations.aggregationsAsMap();
+            if (byName.containsKey(CATEGORY_FACET)) {
+                Aggregate categories = byName.get(CATEGORY_FACET).aggregation().getAggregate();
+                for (LongTermsBucket bucket : categories.lterms().buckets().array()) {
+                    List<StringTermsBucket> names = bucket.aggregations().get(CATEGORY_NAME).sterms().buckets().array();
+                    String label = names.isEmpty() ? null : names.get(0).key().stringValue();
+                    result.getCategoryFacets().add(new SearchFacetBucketDTO(String.valueOf(bucket.key()), label, bucket.docCount()));
+                }
+            }
+            if (byName.containsKey(PRICE_FACET)) {
+                Aggregate prices = byName.get(PRICE_FACET).aggregation().getAggregate();
+                for (HistogramBucket bucket : prices.histogram().buckets().array()) {
+                    BigDecimal from = BigDecimal.valueOf(bucket.key());
+                    BigDecimal to = from.add(BigDecimal.valueOf(priceFacetInterval));
+                    result.getPriceFacets().add(new SearchFacetBucketDTO(from.toPlainString(),
+                            from.toPlainString() + " - " + to.toPlainString(), bucket.docCount()));
+                }
+            }
+        }
+        return new Page(result, hitIds);
+    }
+
+    /**
+     * Same contract as {@link #searchIndex} served from the in-JVM index. Scores differ from
+     * Elasticsearch, so a cursor from one engine only approximately continues in the other.
+     */
+    private Page searchLocally(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                     Boolean inStock, List<Object> searchAfter, int pageLimit) {
+        List<LocalProductSearchIndex.Hit> hits = localProductSearchIndex.search(query, categoryId, minPrice, maxPrice,
+                Boolean.TRUE.equals(inStock));
+
+        int start = 0;
+        if (searchAfter != null) {
+            double afterScore = (Double) searchAfter.get(0);
+            long afterId = Long.parseLong((String) searchAfter.get(1));
+            // Same order as the ES sort: score descending, then id ascending
+            while (start < hits.size() && (hits.get(start).score() > afterScore
+                    || (hits.get(start).score() == afterScore && hits.get(start).id() <= afterId))) {
+                start++;
+            }
+        }
+        int end = Math.min(hits.size(), start + pageLimit);
+        List<LocalProductSearchIndex.Hit> page = hits.subList(start, end);
+        boolean hasMore = end < hits.size();
+
+        ProductSearchResultDTO result = new ProductSearchResultDTO();
+        result.setTotalHits(hits.size());
+        result.setHasMore(hasMore);
+        if (hasMore) {
+            LocalProductSearchIndex.Hit last = page.get(page.size() - 1);
+            result.setNextCursor(encodeCursor(List.of(last.score(), last.id())));
+        }
+        result.setLimit(pageLimit);
+        result.setDegraded(true);
+
+        Map<Long, SearchFacetBucketDTO> categories = new LinkedHashMap<>();
+        Map<BigDecimal, Long> prices = new TreeMap<>();
+        BigDecimal interval = BigDecimal.valueOf(priceFacetInterval);
+        for (LocalProductSearchIndex.Hit hit : hits) {
+            if (hit.categoryId() != null) {
+                SearchFacetBucketDTO bucket = categories.computeIfAbsent(hit.categoryId(),
+                        id -> new SearchFacetBucketDTO(String.valueOf(id), hit.categoryName(), 0));
+                bucket.setCount(bucket.getCount() + 1);
+            }
+            if (hit.price() != null) {
+                BigDecimal from = BigDecimal.valueOf(Math.floor(hit.price().doubleValue() / priceFacetInterval) * priceFacetInterval);
+                prices.merge(from, 1L, Long::sum);
+            }
+        }
+        result.setCategoryFacets(categories.values().stream()
+                .sorted((a, b) -> Long.compare(b.getCount(), a.getCount()))
+                .limit(categoryFacetSize)
+                .collect(Collectors.toList()));
+        List<SearchFacetBucketDTO> priceFacets = new ArrayList<>();
+        prices.forEach((from, count) -> priceFacets.add(new SearchFacetBucketDTO(from.toPlainString(),
+                from.toPlainString() + " - " + from.add(interval).toPlainString(), count)));
+        result.setPriceFacets(priceFacets);
+
+        List<Long> hitIds = page.stream().map(LocalProductSearchIndex.Hit::id).collect(Collectors.toList());
+        return new Page(result, hitIds);
+    }
+
+    // The cursor is the last hit's sort values (score, id), opaque to clients
+    private String encodeCursor(List<Object> sortValues) {
+        String raw = sortValues.stream().map(String::valueOf).collect(Collectors.joining("|"));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Object> decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid search cursor.");
+            }
+            return List.of(Double.parseDouble(parts[0]), parts[1]);
+        } catch (IllegalArgumentException e) {
+            // Also covers malformed Base64 and NumberFormatException
+            throw new IllegalArgumentException("Invalid search cursor.");
+        }
     }
 }
@@ -7,7 +7,12 @@ import com.shopsmart.entity.*;
 import com.shopsmart.entity.Order.OrderStatus;
 import com.shopsmart.exception.ResourceNotFoundException;
 import com.shopsmart.repository.*;
+import com.shopsmart.service.CartStore;
+import com.shopsmart.service.DiscountService;
+import com.shopsmart.service.InventoryService;
 import com.shopsmart.service.OrderService;
+import com.shopsmart.service.ProductService;
+import com.shopsmart.service.StockReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,7 +33,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -46,7 +53,19 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private DiscountRepository discountRepository;
     @Autowired
+    private DiscountService discountService;
+    @Autowired
     private AddressRepository addressRepository;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private CartStore cartStore;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private ProductService productService;
 
     @Override
     @Transactional
@@ -61,6 +80,12 @@ public class OrderServiceImpl implements OrderService {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
 
+        // The cart store may hold changes not yet in MySQL; write them and keep the cart still meanwhile
+        return cartStore.withPersistedCart(customerId, () -> placeOrder(customer));
+    }
+
+    private OrderDTO placeOrder(Customer customer) {
+        Long customerId = customer.getId();
         Cart cart = cartRepository.findByCustomerId(customerId)
                 .orElseThrow(() -> new IllegalArgumentException("Cart not found for customer: " + customerId));
 
@@ -68,13 +93,16 @@ public class OrderServiceImpl implements OrderService {
             throw new IllegalArgumentException("Cannot place an order with an empty cart.");
         }
 
-        // Validate product stock before creating order
-        for (CartItem item : cart.getCartItems()) {
-            Product product = productRepository.findById(item.getProduct().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", item.getProduct().getId()));
-            if (product.getStockQuantity() < item.getQuantity()) {
-                throw new IllegalArgumentException("Not enough stock for product: " + product.getName()
-                        + ". Available: " + product.getStockQuantity());
+        // Cart totals are maintained as items change; the coupon's dates or usage limit may have lapsed since
+        BigDecimal subtotal = cart.getTotalPrice() != null ? cart.getTotalPrice() : cart.getTotalAmount();
+        if (cart.getCouponCode() != null) {
+            boolean stillValid = discountService.resolveDiscount(cart.getCouponCode())
+                    .map(discount -> discountService.isValidDiscount(discount, subtotal))
+                    .orElse(false);
+            if (!stillValid) {
+                cart.setCouponCode(null);
+                cart.setDiscountAmount(BigDecimal.ZERO);
+                cart.setTotalAmount(subtotal);
             }
         }
 
@@ -103,6 +131,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         // Process cart items
+        Map<Long, Long> quantities = new HashMap<>();
         for (CartItem cartItem : cart.getCartItems()) {
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
@@ -110,27 +139,28 @@ public class OrderServiceImpl implements OrderService {
             orderItem.setQuantity(cartItem.getQuantity());
             orderItem.setPrice(cartItem.getPrice());
             order.addOrderItem(orderItem);
-
-            Product product = cartItem.getProduct();
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
+            quantities.merge(cartItem.getProduct().getId(), cartItem.getQuantity(), Long::sum);
         }
 
-        // Handle coupon usage
+        // The cart's reservations become real stock decrements
+        stockReservationService.commit(cart.getId(), quantities);
+
+        // Handle coupon usage: one conditional update, no-op once the usage limit is reached.
+        // A concurrent checkout may have taken the last use since the check above; then no discount
         if (order.getCouponCode() != null && order.getDiscountAmount() != null
-                && order.getDiscountAmount().compareTo(BigDecimal.ZERO) > 0) {
-            discountRepository.findByCode(order.getCouponCode()).ifPresent(discount -> {
-                if (discount.getUsageLimit() == null || discount.getUsedCount() < discount.getUsageLimit()) {
-                    discount.setUsedCount(discount.getUsedCount() + 1);
-                    discountRepository.save(discount);
-                }
-            });
+                && order.getDiscountAmount().compareTo(BigDecimal.ZERO) > 0
+                && discountRepository.incrementUsage(order.getCouponCode()) == 0) {
+            order.setCouponCode(null);
+            order.setDiscountAmount(BigDecimal.ZERO);
+            order.setTotalAmount(subtotal);
         }
 
+        // Order items go out as JDBC batches (sequence ids, hibernate.jdbc.batch_size)
         Order savedOrder = orderRepository.save(order);
 
-        // Clear cart
-        cart.getCartItems().clear();
+        // Clear cart: one delete for all lines rather than one per orphaned item
+        cartItemRepository.deleteByCartId(cart.getId());
+        cart.setTotalPrice(BigDecimal.ZERO);
         cart.setTotalAmount(BigDecimal.ZERO);
         cart.setCouponCode(null);
         cart.setDiscountAmount(BigDecimal.ZERO);
@@ -178,23 +208,17 @@ public class OrderServiceImpl implements OrderService {
         }
         order.setStatus(OrderStatus.CANCELLED);
 
-        // Restore product stock
+        // Restore product stock in one statement
+        Map<Long, Long> restored = new HashMap<>();
         for (OrderItem item : order.getOrderItems()) {
-            Product product = productRepository.findById(item.getProduct().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", item.getProduct().getId()));
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productRepository.save(product);
+            restored.merge(item.getProduct().getId(), item.getQuantity(), Long::sum);
         }
+        inventoryService.incrementAll(restored);
 
         // Decrement coupon usage if needed
         if (order.getCouponCode() != null && order.getDiscountAmount() != null
                 && order.getDiscountAmount().compareTo(BigDecimal.ZERO) > 0) {
-            discountRepository.findByCode(order.getCouponCode()).ifPresent(discount -> {
-                if (discount.getUsedCount() > 0) {
-                    discount.setUsedCount(discount.getUsedCount() - 1);
-                    discountRepository.save(discount);
-                }
-            });
+            discountRepository.decrementUsage(order.getCouponCode());
         }
 
         orderRepository.save(order);
@@ -293,8 +317,15 @@ public class OrderServiceImpl implements OrderService {
         orderDTO.setShippingAddress(order.getShippingAddress());
 
         if (order.getOrderItems() != null) {
+            // Product details for every line in one call, from the product cache
+            Map<Long, ProductDTO> products = productService.getProductsByIds(order.getOrderItems().stream()
+                            .map(item -> item.getProduct().getId())
+                            .distinct()
+                            .collect(Collectors.toList()))
+                    .stream()
+                    .collect(Collectors.toMap(ProductDTO::getId, product -> product));
             orderDTO.setOrderItems(order.getOrderItems().stream()
-                    .map(this::mapOrderItemToDTO)
+                    .map(item -> mapOrderItemToDTO(item, products))
                     .collect(Collectors.toList()));
         } else {
             orderDTO.setOrderItems(List.of());
@@ -302,22 +333,14 @@ public class OrderServiceImpl implements OrderService {
         return orderDTO;
     }
 
-    private OrderItemDTO mapOrderItemToDTO(OrderItem orderItem) {
+    private OrderItemDTO mapOrderItemToDTO(OrderItem orderItem, Map<Long, ProductDTO> products) {
         OrderItemDTO orderItemDTO = new OrderItemDTO();
         orderItemDTO.setId(orderItem.getId());
 
-        ProductDTO productDTO = new ProductDTO();
-        if (orderItem.getProduct() != null) {
+        ProductDTO productDTO = products.get(orderItem.getProduct().getId());
+        if (productDTO == null) {
+            productDTO = new ProductDTO();
             productDTO.setId(orderItem.getProduct().getId());
-            productDTO.setName(orderItem.getProduct().getName());
-            productDTO.setPrice(orderItem.getProduct().getPrice());
-            productDTO.setImages(orderItem.getProduct().getImages());
-            productDTO.setDescription(orderItem.getProduct().getDescription());
-            productDTO.setStockQuantity(orderItem.getProduct().getStockQuantity());
-            if (orderItem.getProduct().getCategory() != null) {
-                productDTO.setCategoryId(orderItem.getProduct().getCategory().getId());
-                productDTO.setCategoryName(orderItem.getProduct().getCategory().getName());
-            }
         }
         orderItemDTO.setProductDetails(productDTO);
         orderItemDTO.setQuantity(orderItem.getQuantity());
@@ -3,27 +3,49 @@ package com.shopsmart.serviceImpl;
 import com.shopsmart.document.ProductDocument;
 import com.shopsmart.dto.BulkUploadResultDTO;
 import com.shopsmart.dto.ProductDTO;
+import com.shopsmart.dto.ProductPageDTO;
 import com.shopsmart.entity.Category;
 import com.shopsmart.entity.Product;
 import com.shopsmart.exception.ResourceNotFoundException;
 import com.shopsmart.repository.CategoryRepository;
 import com.shopsmart.repository.ProductDocumentRepository;
 import com.shopsmart.repository.ProductRepository;
+import com.shopsmart.service.LocalProductSearchIndex;
+import com.shopsmart.service.ProductCacheService;
+import com.shopsmart.service.ProductIndexOutboxService;
 import com.shopsmart.service.ProductService;
+import com.shopsmart.service.SearchCircuitBreaker;
 import com.shopsmart.util.CsvHelper;
 
+import jakarta.persistence.EntityManager;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductServiceImpl implements ProductService {
 
+    private static final int DEFAULT_PAGE_LIMIT = 20;
+    private static final int MAX_PAGE_LIMIT = 100;
+
     @Autowired
     private ProductRepository productRepository;
 
@@ -33,18 +55,64 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductIndexOutboxService productIndexOutboxService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SearchCircuitBreaker searchCircuitBreaker;
+
+    @Autowired
+    private LocalProductSearchIndex localProductSearchIndex;
+
+    @Value("${shopsmart.import.chunk-size:500}")
+    private int importChunkSize;
+
     @Override
     @Transactional(readOnly = true)
     public List<ProductDTO> getAllProducts() {
-        return productRepository.findAll().stream().map(this::mapProductToDTO).collect(Collectors.toList());
+        return productRepository.findWithDetailsBy().stream().map(this::mapProductToDTO).collect(Collectors.toList());
     }
 
     @Override
     @Transactional(readOnly = true)
+    public ProductPageDTO getProductsPage(Long after, Integer limit, Long categoryId, BigDecimal minPrice,
+                                          BigDecimal maxPrice, Boolean inStock) {
+        int pageLimit = (limit == null || limit <= 0) ? DEFAULT_PAGE_LIMIT : Math.min(limit, MAX_PAGE_LIMIT);
+        long afterId = after != null ? after : 0L;
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice.");
+        }
+
+        // Fetch one extra row so we know whether another page exists without a COUNT query
+        List<Product> rows = productRepository.findPageAfter(afterId, categoryId, minPrice, maxPrice,
+                Boolean.TRUE.equals(inStock), PageRequest.of(0, pageLimit + 1));
+
+        boolean hasMore = rows.size() > pageLimit;
+        List<Product> page = hasMore ? rows.subList(0, pageLimit) : rows;
+        Long nextCursor = hasMore ? page.get(page.size() - 1).getId() : null;
+
+        List<ProductDTO> content = page.stream().map(this::mapProductToDTO).collect(Collectors.toList());
+        return new ProductPageDTO(content, nextCursor, hasMore, pageLimit);
+    }
+
+    // Not transactional: a cache hit must not borrow a connection. The loader fetches
+    // category and images eagerly, so mapping needs no open session.
+    @Override
     public ProductDTO getProductById(Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "Id", id));
-        return mapProductToDTO(product);
+        return productCacheService.getProduct(id, productId -> {
+            Product product = productRepository.findWithDetailsById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", "Id", productId));
+            return mapProductToDTO(product);
+        });
     }
 
     @Override
@@ -53,8 +121,8 @@ public class ProductServiceImpl implements ProductService {
         Product product = mapDTOToProduct(productDTO);
         Product savedProduct = productRepository.save(product);
 
-        // Business Logic: Index the new product in Elasticsearch
-        productDocumentRepository.save(mapProductToDocument(savedProduct));
+        // Business Logic: Queue the new product for indexing; committed with the product row
+        productIndexOutboxService.enqueueUpsert(savedProduct.getId());
 
         return mapProductToDTO(savedProduct);
     }
@@ -83,38 +151,61 @@ public class ProductServiceImpl implements ProductService {
 
         Product updatedProduct = productRepository.save(existingProduct);
 
-        // Business Logic: Update the corresponding document in Elasticsearch
-        productDocumentRepository.save(mapProductToDocument(updatedProduct));
+        // Business Logic: Queue the document update; committed with the product row
+        productIndexOutboxService.enqueueUpsert(updatedProduct.getId());
         
         return mapProductToDTO(updatedProduct);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<ProductDTO> getProductsByCategoryId(Long categoryId) {
-        Category category = categoryRepository.findById(categoryId)
-                .orElseThrow(() -> new ResourceNotFoundException("Category", "Id", categoryId));
+        return productCacheService.getProductsByCategory(categoryId, id -> {
+            Category category = categoryRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Category", "Id", id));
 
-        return productRepository.findByCategory(category).stream().map(this::mapProductToDTO)
+            return productRepository.findWithDetailsByCategory(category).stream().map(this::mapProductToDTO)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Hydrates search hits (or any id list) into complete DTOs, keeping the given order.
+     * Cached products are served from memory and the rest load in one IN query, so a
+     * results page costs at most one database round trip. Ids no longer in the database
+     * (index not yet caught up with a delete) are dropped.
+     */
+    @Override
+    public List<ProductDTO> getProductsByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProductDTO> byId = productCacheService.getProducts(ids, missing ->
+                productRepository.findWithDetailsByIdIn(new ArrayList<>(missing)).stream()
+                        .map(this::mapProductToDTO)
+                        .collect(Collectors.toMap(ProductDTO::getId, dto -> dto)));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
     // 🔍 New Business Logic: Implement Elasticsearch for searching products
     @Override
-    @Transactional(readOnly = true)
     public List<ProductDTO> searchProducts(String searchTerm) {
-        List<ProductDocument> productDocuments = productDocumentRepository
-                .findByNameContainingOrDescriptionContaining(searchTerm, searchTerm);
-        
-        return productDocuments.stream()
-                .map(this::mapDocumentToDTO)
-                .collect(Collectors.toList());
+        // Served from the local index while Elasticsearch is down or slow
+        List<ProductDocument> productDocuments = searchCircuitBreaker.execute(
+                () -> productDocumentRepository.findByNameContainingOrDescriptionContaining(searchTerm, searchTerm),
+                () -> localProductSearchIndex.searchDocuments(searchTerm));
+
+        return getProductsByIds(productDocuments.stream()
+                .map(ProductDocument::getId)
+                .collect(Collectors.toList()));
     }
 
     // New Business Logic: Filter products by price range
     @Transactional(readOnly = true)
     public List<ProductDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        List<Product> products = productRepository.findByPriceBetween(minPrice, maxPrice);
+        List<Product> products = productRepository.findWithDetailsByPriceBetween(minPrice, maxPrice);
         return products.stream().map(this::mapProductToDTO).collect(Collectors.toList());
     }
 
@@ -129,7 +220,7 @@ public class ProductServiceImpl implements ProductService {
     @Override
     @Transactional(readOnly = true)
     public List<ProductDTO> getProductsInStock() {
-        List<Product> products = productRepository.findByStockQuantityGreaterThan(0);
+        List<Product> products = productRepository.findWithDetailsByStockQuantityGreaterThan(0L);
         return products.stream().map(this::mapProductToDTO).collect(Collectors.toList());
     }
 
@@ -140,64 +231,151 @@ public class ProductServiceImpl implements ProductService {
         productRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product", "Id", id));
         productRepository.deleteById(id);
 
-        // Business Logic: Delete the product from Elasticsearch as well
-        productDocumentRepository.deleteById(id);
+        // Business Logic: Queue removal from the search index
+        productIndexOutboxService.enqueueDelete(id);
     }
 
+    // Streaming import: records are parsed lazily and written in chunks, each chunk in its own
+    // transaction, so heap use and lock time are bounded by the chunk size rather than the file size.
     @Override
-    @Transactional
     public BulkUploadResultDTO uploadProductsFromCsv(MultipartFile file) {
-        int totalProcessed = 0;
-        int addedCount = 0;
-        int skippedCount = 0;
-        StringBuilder messageBuilder = new StringBuilder();
-
-        try {
-            List<ProductDTO> productDTOs = CsvHelper.csvToProducts(file.getInputStream());
-            totalProcessed = productDTOs.size();
-
-            for (ProductDTO productDTO : productDTOs) {
-                Category category = null;
-                if (productDTO.getCategoryId() != null) {
-                    category = categoryRepository.findById(productDTO.getCategoryId()).orElse(null);
-                }
-
-                if (category == null) {
-                    skippedCount++;
-                    messageBuilder.append("Skipped '").append(productDTO.getName())
-                            .append("' (Category ID ")
-                            .append(productDTO.getCategoryId() != null ? productDTO.getCategoryId() : "null")
-                            .append(" not found). ");
+        long startNanos = System.nanoTime();
+        CsvImportTally tally = new CsvImportTally();
+
+        // Categories are few; resolve them once instead of one lookup per row
+        Map<Long, Category> categoriesById = categoryRepository.findAll().stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+
+        String failure = null;
+        try (CSVParser csvParser = CsvHelper.openProductParser(file.getInputStream())) {
+            List<ProductDTO> chunk = new ArrayList<>(importChunkSize);
+            for (CSVRecord csvRecord : csvParser) {
+                tally.totalProcessed++;
+                try {
+                    chunk.add(CsvHelper.csvRecordToProduct(csvRecord));
+                } catch (IllegalArgumentException e) {
+                    tally.skip(e.getMessage());
                     continue;
                 }
-
-                boolean exists = productRepository.findByNameIgnoreCaseAndCategoryId(productDTO.getName(), productDTO.getCategoryId()).isPresent();
-
-                if (exists) {
-                    skippedCount++;
-                    messageBuilder.append("Skipped '").append(productDTO.getName())
-                            .append("' (Duplicate found in category '").append(category.getName()).append("'). ");
-                } else {
-                    Product product = mapDTOToProduct(productDTO);
-                    product.setCategory(category);
-                    Product savedProduct = productRepository.save(product);
-                    addedCount++;
-                    
-                    // Business Logic: Index the newly uploaded product in Elasticsearch
-                    productDocumentRepository.save(mapProductToDocument(savedProduct));
+                if (chunk.size() >= importChunkSize) {
+                    importChunk(chunk, categoriesById, tally);
+                    chunk.clear();
                 }
             }
-            String finalMessage = String.format("CSV upload complete. %d products processed: %d added, %d skipped.", totalProcessed, addedCount, skippedCount);
-            if (messageBuilder.length() > 0) {
-                finalMessage += " Details: " + messageBuilder.toString();
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, categoriesById, tally);
             }
-            return new BulkUploadResultDTO(totalProcessed, addedCount, skippedCount, finalMessage);
-
         } catch (IOException e) {
-            return new BulkUploadResultDTO(totalProcessed, addedCount, skippedCount, "Failed to read CSV file: " + e.getMessage());
+            failure = "Failed to read CSV file: " + e.getMessage();
         } catch (Exception e) {
             e.printStackTrace(); // Log the full stack trace for debugging
-            return new BulkUploadResultDTO(totalProcessed, addedCount, skippedCount, "Failed to process CSV file: " + e.getMessage());
+            failure = "Failed to process CSV file: " + e.getMessage();
+        }
+
+        String finalMessage;
+        if (failure != null) {
+            // Chunks committed before the failure stay committed
+            finalMessage = failure + String.format(" %d rows read before failure: %d added, %d skipped.",
+                    tally.totalProcessed, tally.addedCount, tally.skippedCount);
+        } else {
+            finalMessage = String.format("CSV upload complete. %d products processed: %d added, %d skipped.",
+                    tally.totalProcessed, tally.addedCount, tally.skippedCount);
+        }
+        if (tally.details.length() > 0) {
+            finalMessage += " Details: " + tally.details;
+        }
+
+        BulkUploadResultDTO result = new BulkUploadResultDTO(tally.totalProcessed, tally.addedCount, tally.skippedCount, finalMessage);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        result.setElapsedMillis(elapsedMillis);
+        result.setRowsPerSecond(elapsedMillis > 0 ? tally.totalProcessed * 1000.0 / elapsedMillis : tally.totalProcessed);
+        return result;
+    }
+
+    /**
+     * Inserts one chunk in its own transaction: one IN query for duplicates, one batched
+     * saveAll for the inserts, and outbox rows so the chunk is bulk-indexed after commit.
+     * The persistence context is flushed and cleared before commit: with open-in-view every
+     * chunk of a request shares one EntityManager, which would otherwise keep every imported
+     * product managed and dirty-check all of them again on each later chunk.
+     */
+    private void importChunk(List<ProductDTO> chunk, Map<Long, Category> categoriesById, CsvImportTally tally) {
+        List<Product> savedProducts = transactionTemplate.execute(status -> {
+            Set<Long> categoryIds = new HashSet<>();
+            Set<String> lowerNames = new HashSet<>();
+            for (ProductDTO productDTO : chunk) {
+                if (productDTO.getName() != null && categoriesById.containsKey(productDTO.getCategoryId())) {
+                    categoryIds.add(productDTO.getCategoryId());
+                    lowerNames.add(productDTO.getName().toLowerCase(Locale.ROOT));
+                }
+            }
+
+            Set<String> existingKeys = new HashSet<>();
+            if (!categoryIds.isEmpty()) {
+                for (Object[] row : productRepository.findExistingCategoryAndLowerName(categoryIds, lowerNames)) {
+                    existingKeys.add(row[0] + "|" + row[1]);
+                }
+            }
+
+            List<Product> toInsert = new ArrayList<>();
+            for (ProductDTO productDTO : chunk) {
+                Category category = categoriesById.get(productDTO.getCategoryId());
+                if (category == null) {
+                    tally.skip("Skipped '" + productDTO.getName() + "' (Category ID "
+                            + (productDTO.getCategoryId() != null ? productDTO.getCategoryId() : "null") + " not found).");
+                    continue;
+                }
+                // existingKeys also absorbs repeats of the same product later in this chunk
+                String key = category.getId() + "|" + (productDTO.getName() != null ? productDTO.getName().toLowerCase(Locale.ROOT) : "");
+                if (!existingKeys.add(key)) {
+                    tally.skip("Skipped '" + productDTO.getName() + "' (Duplicate found in category '" + category.getName() + "').");
+                    continue;
+                }
+                Product product = new Product();
+                product.setName(productDTO.getName());
+                product.setDescription(productDTO.getDescription());
+                product.setImages(productDTO.getImages());
+                product.setPrice(productDTO.getPrice());
+                product.setStockQuantity(productDTO.getStockQuantity());
+                // categoriesById is detached after the first chunk's clear; attach by reference
+                product.setCategory(entityManager.getReference(Category.class, category.getId()));
+                toInsert.add(product);
+            }
+            List<Product> saved = productRepository.saveAll(toInsert);
+            // Business Logic: Queue the chunk for indexing; the dispatcher ships it as one bulk request
+            productIndexOutboxService.enqueueUpserts(saved.stream().map(Product::getId).collect(Collectors.toList()));
+            entityManager.flush();
+            entityManager.clear();
+            return saved;
+        });
+
+        if (savedProducts != null) {
+            tally.addedCount += savedProducts.size();
+        }
+    }
+
+    // Running counters for one CSV import; skip details are capped so huge feeds keep a bounded message
+    private static class CsvImportTally {
+        private static final int MAX_DETAILS = 50;
+
+        int totalProcessed;
+        int addedCount;
+        int skippedCount;
+        int detailCount;
+        final StringBuilder details = new StringBuilder();
+
+        void skip(String detail) {
+            skippedCount++;
+            note(detail);
+        }
+
+        void note(String detail) {
+            detailCount++;
+            if (detailCount <= MAX_DETAILS) {
+                details.append(detail).append(' ');
+            } else if (detailCount == MAX_DETAILS + 1) {
+                details.append("(further details omitted) ");
+            }
         }
     }
 
@@ -208,11 +386,8 @@ public class ProductServiceImpl implements ProductService {
         List<Product> products = productDTOs.stream().map(this::mapDTOToProduct).collect(Collectors.toList());
         List<Product> savedProducts = productRepository.saveAll(products);
 
-        // Business Logic: Index all newly created products in Elasticsearch
-        List<ProductDocument> productDocuments = savedProducts.stream()
-            .map(this::mapProductToDocument)
-            .collect(Collectors.toList());
-        productDocumentRepository.saveAll(productDocuments);
+        // Business Logic: Queue all newly created products for indexing
+        productIndexOutboxService.enqueueUpserts(savedProducts.stream().map(Product::getId).collect(Collectors.toList()));
 
         return savedProducts.stream().map(this::mapProductToDTO).collect(Collectors.toList());
     }
@@ -222,7 +397,8 @@ public class ProductServiceImpl implements ProductService {
         productDTO.setId(product.getId());
         productDTO.setName(product.getName());
         productDTO.setDescription(product.getDescription());
-        productDTO.setImages(product.getImages());
+        // Detach from the Hibernate collection so the DTO is safe to cache
+        productDTO.setImages(product.getImages() != null ? new ArrayList<>(product.getImages()) : null);
         productDTO.setPrice(product.getPrice());
         productDTO.setStockQuantity(product.getStockQuantity());
 
@@ -252,29 +428,4 @@ public class ProductServiceImpl implements ProductService {
         return product;
     }
 
-    private ProductDocument mapProductToDocument(Product product) {
-        ProductDocument document = new ProductDocument();
-        document.setId(product.getId());
-        document.setName(product.getName());
-        document.setDescription(product.getDescription());
-        if (product.getCategory() != null) {
-            document.setCategoryId(product.getCategory().getId());
-            document.setCategoryName(product.getCategory().getName());
-        }
-        return document;
-    }
-
-    private ProductDTO mapDocumentToDTO(ProductDocument document) {
-        ProductDTO dto = new ProductDTO();
-        dto.setId(document.getId());
-        dto.setName(document.getName());
-        dto.setDescription(document.getDescription());
-        dto.setCategoryId(document.getCategoryId());
-        dto.setCategoryName(document.getCategoryName());
-        // Note: price, images, and stock are not always in the search index
-        // so you might need to fetch the full product from the database
-        // for detailed views.
-        return dto;
-    }
-
 }
\ No newline at end of file
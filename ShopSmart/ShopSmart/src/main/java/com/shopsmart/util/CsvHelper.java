@@ -10,9 +10,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.stream.Collectors;
 
 public class CsvHelper {
@@ -20,48 +20,49 @@ public class CsvHelper {
 
     public static String[] HEADERS = { "name", "description", "price", "categoryId", "stockQuantity", "images" };
 
-    public static List<ProductDTO> csvToProducts(InputStream is) {
-        try (BufferedReader fileReader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
-             CSVParser csvParser = CSVFormat.DEFAULT.builder()
-                     .setHeader(HEADERS)
-                     .setSkipHeaderRecord(true)
-                     .setIgnoreHeaderCase(true)
-                     .setTrim(true)
-                     .build()
-                     .parse(fileReader)) {
-
-            List<ProductDTO> products = new ArrayList<>();
-            Iterable<CSVRecord> csvRecords = csvParser.getRecords();
-
-            for (CSVRecord csvRecord : csvRecords) {
-                try {
-                    ProductDTO productDTO = new ProductDTO();
-                    productDTO.setName(csvRecord.get("name"));
-                    productDTO.setDescription(csvRecord.get("description"));
-                    productDTO.setPrice(new BigDecimal(csvRecord.get("price")));
-                    productDTO.setCategoryId(Long.parseLong(csvRecord.get("categoryId")));
-                    productDTO.setStockQuantity(Long.parseLong(csvRecord.get("stockQuantity")));
+    /**
+     * Opens a lazy parser over the product CSV. Records are read one at a time as the
+     * caller iterates, so memory stays flat regardless of file size. The caller owns
+     * the returned parser and must close it.
+     */
+    public static CSVParser openProductParser(InputStream is) throws IOException {
+        BufferedReader fileReader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        return CSVFormat.DEFAULT.builder()
+                .setHeader(HEADERS)
+                .setSkipHeaderRecord(true)
+                .setIgnoreHeaderCase(true)
+                .setTrim(true)
+                .build()
+                .parse(fileReader);
+    }
 
-                    String imagesString = csvRecord.get("images");
-                    if (imagesString != null && !imagesString.trim().isEmpty()) {
-                        productDTO.setImages(Arrays.asList(imagesString.split(",")).stream()
-                                .map(String::trim)
-                                .filter(s -> !s.isEmpty())
-                                .collect(Collectors.toList()));
-                    } else {
-                        productDTO.setImages(new ArrayList<>());
-                    }
+    /**
+     * Maps a single CSV record to a ProductDTO.
+     * Throws IllegalArgumentException describing the row when a value is missing or malformed.
+     */
+    public static ProductDTO csvRecordToProduct(CSVRecord csvRecord) {
+        try {
+            ProductDTO productDTO = new ProductDTO();
+            productDTO.setName(csvRecord.get("name"));
+            productDTO.setDescription(csvRecord.get("description"));
+            productDTO.setPrice(new BigDecimal(csvRecord.get("price")));
+            productDTO.setCategoryId(Long.parseLong(csvRecord.get("categoryId")));
+            productDTO.setStockQuantity(Long.parseLong(csvRecord.get("stockQuantity")));
 
-                    products.add(productDTO);
-                } catch (NumberFormatException e) {
-                    throw new RuntimeException("CSV parsing error: Invalid number format for row " + csvRecord.getRecordNumber() + ". " + e.getMessage());
-                } catch (IllegalArgumentException e) {
-                    throw new RuntimeException("CSV parsing error: Missing or invalid header in row " + csvRecord.getRecordNumber() + ". " + e.getMessage());
-                }
+            String imagesString = csvRecord.get("images");
+            if (imagesString != null && !imagesString.trim().isEmpty()) {
+                productDTO.setImages(Arrays.asList(imagesString.split(",")).stream()
+                        .map(String::trim)
+                        .filter(s -> !s.isEmpty())
+                        .collect(Collectors.toList()));
+            } else {
+                productDTO.setImages(new ArrayList<>());
             }
-            return products;
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to parse CSV file: " + e.getMessage());
+            return productDTO;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("CSV parsing error: Invalid number format for row " + csvRecord.getRecordNumber() + ". " + e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new IllegalArgumentException("CSV parsing error: Missing or invalid header in row " + csvRecord.getRecordNumber() + ". " + e.getMessage());
         }
     }
 
@@ -0,0 +1,136 @@
+package com.shopsmart.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable prefix trie for typeahead. Every node stores its top-K completions by weight,
+ * computed once at build time, so a lookup is a walk down the prefix and nothing more.
+ * Rebuild and swap the whole trie to apply changes; reads need no locking.
+ */
+public class PrefixTrie {
+
+    // Heavier first, then alphabetical
+    private static final Comparator<Completion> ORDER = (a, b) -> a.weight != b.weight
+            ? Integer.compare(b.weight, a.weight)
+            : a.text.compareToIgnoreCase(b.text);
+
+    private final Node root;
+    private final int size;
+
+    private PrefixTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static PrefixTrie empty() {
+        return new PrefixTrie(new Node(), 0);
+    }
+
+    /**
+     * @param weightedTerms display text -> weight; higher weights are suggested first
+     * @param topK          completions kept per node, i.e. the most a lookup can return
+     */
+    public static PrefixTrie build(Map<String, Integer> weightedTerms, int topK) {
+        Node root = new Node();
+        for (Map.Entry<String, Integer> entry : weightedTerms.entrySet()) {
+            String term = entry.getKey();
+            Completion completion = new Completion(term, entry.getValue());
+            // Index the whole term and every later word, so "iph" also finds "Apple iPhone 15"
+            String normalized = normalize(term);
+            for (int start = 0; start < normalized.length(); start++) {
+                if (start == 0 || normalized.charAt(start - 1) == ' ') {
+                    insert(root, normalized, start, completion, topK);
+                }
+            }
+        }
+        finish(root);
+        return new PrefixTrie(root, weightedTerms.size());
+    }
+
+    public List<String> complete(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Node node = root;
+        for (int i = 0; i < normalized.length() && node != null; i++) {
+            node = node.children.get(normalized.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(Math.min(limit, node.top.length));
+        for (int i = 0; i < node.top.length && result.size() < limit; i++) {
+            result.add(node.top[i]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static void insert(Node root, String normalized, int start, Completion completion, int topK) {
+        Node node = root;
+        for (int i = start; i < normalized.length(); i++) {
+            node = node.children.computeIfAbsent(normalized.charAt(i), c -> new Node());
+            offer(node, completion, topK);
+        }
+    }
+
+    // Keeps node.candidates as the best topK seen so far, best first, so build memory stays bounded
+    private static void offer(Node node, Completion completion, int topK) {
+        if (node.candidates == null) {
+            node.candidates = new ArrayList<>(2);
+        }
+        List<Completion> candidates = node.candidates;
+        // A term can reach the same node twice through repeated words
+        if (candidates.contains(completion)) {
+            return;
+        }
+        int position = 0;
+        while (position < candidates.size() && ORDER.compare(candidates.get(position), completion) <= 0) {
+            position++;
+        }
+        if (position >= topK) {
+            return;
+        }
+        candidates.add(position, completion);
+        if (candidates.size() > topK) {
+            candidates.remove(candidates.size() - 1);
+        }
+    }
+
+    private static void finish(Node node) {
+        if (node.candidates != null) {
+            node.top = new String[node.candidates.size()];
+            for (int i = 0; i < node.top.length; i++) {
+                node.top[i] = node.candidates.get(i).text;
+            }
+            node.candidates = null;
+        }
+        for (Node child : node.children.values()) {
+            finish(child);
+        }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private String[] top = new String[0];
+        // Only used while building
+        private List<Completion> candidates;
+    }
+
+    private record Completion(String text, int weight) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.shopsmart.repository;
+
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A 10k-product insert as it was (the IDENTITY mapping, see {@link IdentityProduct}, with no
+ * JDBC batching configured) against saveAll now (pooled sequence ids, hibernate.jdbc.batch_size=50).
+ * Prints statements and wall time for both; H2 runs in-process, so the statement counts are the
+ * number to compare, each being a round trip on MySQL. Runs with {@code -Pbenchmarks}.
+ */
+@Tag("benchmark")
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductBatchInsertTest {
+
+    private static final int PRODUCTS = 10_000;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void saveAllInsertsInJdbcBatches() {
+        Category category = new Category();
+        category.setName("batched");
+        entityManager.persistAndFlush(category);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Result identity = insertIdentity(statistics, category);
+        Result batched = insert(statistics, category);
+
+        System.out.printf("10k-product insert: IDENTITY %d statements in %d ms, pooled ids batched %d statements in %d ms%n",
+                identity.statements(), identity.millis(), batched.statements(), batched.millis());
+
+        // Per 50 products: one product insert batch, one image insert batch and one sequence call
+        assertThat(batched.statements()).isLessThanOrEqualTo(3L * PRODUCTS / BATCH_SIZE + 5);
+        // One product insert and one image insert per product
+        assertThat(identity.statements()).isGreaterThanOrEqualTo(2L * PRODUCTS);
+        assertThat(productRepository.count()).isEqualTo(PRODUCTS);
+    }
+
+    private record Result(long statements, long millis) {
+    }
+
+    private Result insert(Statistics statistics, Category category) {
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("product " + i);
+            product.setDescription("Batch insert benchmark");
+            product.setImages(List.of("product-" + i + ".jpg"));
+            product.setPrice(BigDecimal.valueOf(10));
+            product.setStockQuantity(5L);
+            product.setCategory(category);
+            products.add(product);
+        }
+        return timed(statistics, () -> productRepository.saveAll(products));
+    }
+
+    // The baseline had no hibernate.jdbc.batch_size, so batching is off for the session as well
+    private Result insertIdentity(Statistics statistics, Category category) {
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        session.setJdbcBatchSize(1);
+        try {
+            return timed(statistics, () -> {
+                for (int i = 0; i < PRODUCTS; i++) {
+                    IdentityProduct product = new IdentityProduct();
+                    product.setName("identity product " + i);
+                    product.setDescription("Batch insert benchmark");
+                    product.setImages(List.of("identity-" + i + ".jpg"));
+                    product.setPrice(BigDecimal.valueOf(10));
+                    product.setStockQuantity(5L);
+                    product.setCategory(category);
+                    entityManager.persist(product);
+                }
+            });
+        } finally {
+            session.setJdbcBatchSize(null);
+        }
+    }
+
+    private Result timed(Statistics statistics, Runnable insert) {
+        statistics.clear();
+        long start = System.nanoTime();
+        insert.run();
+        entityManager.flush();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long statements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        return new Result(statements, millis);
+    }
+}
@@ -0,0 +1,198 @@
+package com.shopsmart.repository;
+
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The list read paths must cost the same number of statements for 3 products as for 60,
+ * including touching each product's category and images the way mapProductToDTO does.
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductRepositoryTest {
+
+    private static final int SMALL = 3;
+    private static final int LARGE = 60;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findAllWithDetailsIsConstantInResultSize() {
+        persistProducts(category("small"), SMALL);
+        long small = statementsFor(() -> productRepository.findWithDetailsBy(), SMALL);
+
+        persistProducts(category("large"), LARGE - SMALL);
+        long large = statementsFor(() -> productRepository.findWithDetailsBy(), LARGE);
+
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void findByCategoryWithDetailsIsConstantInResultSize() {
+        Category few = category("few");
+        Category many = category("many");
+        persistProducts(few, SMALL);
+        persistProducts(many, LARGE);
+
+        long small = statementsFor(() -> productRepository.findWithDetailsByCategory(few), SMALL);
+        long large = statementsFor(() -> productRepository.findWithDetailsByCategory(many), LARGE);
+
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void findByPriceBetweenWithDetailsIsConstantInResultSize() {
+        // persistProducts prices products 1, 2, 3, ...
+        persistProducts(category("priced"), LARGE);
+
+        long small = statementsFor(() -> productRepository.findWithDetailsByPriceBetween(
+                BigDecimal.ONE, BigDecimal.valueOf(SMALL)), SMALL);
+        long large = statementsFor(() -> productRepository.findWithDetailsByPriceBetween(
+                BigDecimal.ONE, BigDecimal.valueOf(LARGE)), LARGE);
+
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void findByStockQuantityGreaterThanWithDetailsIsConstantInResultSize() {
+        // persistProducts stocks products 1, 2, 3, ...
+        persistProducts(category("stocked"), LARGE);
+
+        long small = statementsFor(() -> productRepository.findWithDetailsByStockQuantityGreaterThan(
+                (long) (LARGE - SMALL)), SMALL);
+        long large = statementsFor(() -> productRepository.findWithDetailsByStockQuantityGreaterThan(0L), LARGE);
+
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void findPageAfterAppliesOnlyTheGivenFilters() {
+        // persistProducts prices and stocks products 1, 2, 3, ...
+        Category shoes = category("shoes");
+        Category hats = category("hats");
+        persistProducts(shoes, 10);
+        persistProducts(hats, 10);
+        Product soldOut = new Product();
+        soldOut.setName("shoes sold out");
+        soldOut.setImages(List.of("a.jpg", "b.jpg"));
+        soldOut.setPrice(BigDecimal.valueOf(5));
+        soldOut.setStockQuantity(0L);
+        soldOut.setCategory(shoes);
+        entityManager.persist(soldOut);
+
+        List<Product> all = page(0L, null, null, null, false, 100, 21);
+        // Filters that were not given are not in the statement at all, not even as "? IS NULL"
+        assertThat(where()).isEqualTo("p1_0.product_id>?");
+        List<Product> firstFive = page(0L, null, null, null, false, 5, 5);
+        assertThat(firstFive).extracting(Product::getId).isEqualTo(all.subList(0, 5).stream().map(Product::getId).toList());
+        List<Product> afterCursor = page(firstFive.get(4).getId(), null, null, null, false, 100, 16);
+        assertThat(afterCursor).allMatch(product -> product.getId() > firstFive.get(4).getId());
+
+        assertThat(page(0L, shoes.getId(), null, null, false, 100, 11))
+                .allMatch(product -> product.getCategory().getId().equals(shoes.getId()));
+        assertThat(page(0L, null, BigDecimal.valueOf(9), null, false, 100, 4))
+                .allMatch(product -> product.getPrice().compareTo(BigDecimal.valueOf(9)) >= 0);
+        assertThat(page(0L, null, null, BigDecimal.valueOf(2), false, 100, 4))
+                .allMatch(product -> product.getPrice().compareTo(BigDecimal.valueOf(2)) <= 0);
+        assertThat(page(0L, shoes.getId(), BigDecimal.valueOf(4), BigDecimal.valueOf(6), true, 100, 3))
+                .extracting(Product::getName)
+                .containsExactly("shoes product 4", "shoes product 5", "shoes product 6");
+        assertThat(where()).isEqualTo("p1_0.product_id>? and p1_0.category_id=? and p1_0.product_price>=?"
+                + " and p1_0.product_price<=? and p1_0.stock_quantity>?");
+        assertThat(page(0L, shoes.getId(), null, null, true, 100, 10)).noneMatch(soldOut::equals);
+        assertThat(where()).isEqualTo("p1_0.product_id>? and p1_0.category_id=? and p1_0.stock_quantity>?");
+    }
+
+    // One statement per page; category comes with it, images are not touched here
+    private List<Product> page(Long afterId, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                               boolean inStock, int size, int expectedSize) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<Product> products = productRepository.findPageAfter(afterId, categoryId, minPrice, maxPrice, inStock,
+                PageRequest.of(0, size));
+        products.forEach(product -> assertThat(product.getCategory().getName()).isNotNull());
+
+        assertThat(products).hasSize(expectedSize);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        return products;
+    }
+
+    // WHERE clause of the last page query, as Hibernate rendered it
+    private String where() {
+        String sql = statistics.getQueries()[0];
+        return sql.substring(sql.indexOf(" where ") + " where ".length(), sql.indexOf(" order by "));
+    }
+
+    // Runs the query on an empty persistence context and walks the result like mapProductToDTO
+    private long statementsFor(Supplier<List<Product>> query, int expectedSize) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<Product> products = query.get();
+        for (Product product : products) {
+            assertThat(product.getCategory().getName()).isNotNull();
+            assertThat(product.getImages()).hasSize(2);
+        }
+
+        assertThat(products).hasSize(expectedSize);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return entityManager.persist(category);
+    }
+
+    private void persistProducts(Category category, int count) {
+        for (int i = 1; i <= count; i++) {
+            Product product = new Product();
+            product.setName(category.getName() + " product " + i);
+            product.setDescription("Test product");
+            product.setImages(List.of(category.getName() + "-" + i + "-front.jpg", category.getName() + "-" + i + "-back.jpg"));
+            product.setPrice(BigDecimal.valueOf(i));
+            product.setStockQuantity((long) i);
+            product.setCategory(category);
+            entityManager.persist(product);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.shopsmart.service;
+
+import com.shopsmart.dto.CartDTO;
+import com.shopsmart.dto.CartItemDTO;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * What the write-behind cart stores need around them, without a database: transactions that only
+ * run synchronizations, and a CartPersistence keeping written carts in a map. A cart's row id is
+ * its customer's id.
+ */
+final class CartStoreTestSupport {
+
+    static final Long PRODUCT_ID = 1L;
+
+    private CartStoreTestSupport() {
+    }
+
+    static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        });
+    }
+
+    /** A CartPersistence mock that keeps what it is asked to write in {@code rows}, by customer id. */
+    @SuppressWarnings("unchecked")
+    static CartPersistence cartPersistence(Map<Long, CartDTO> rows) {
+        CartPersistence cartPersistence = mock(CartPersistence.class);
+        when(cartPersistence.load(anyLong())).thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<Long>getArgument(0)))
+                .map(CartPersistence::copyOf));
+        when(cartPersistence.create(anyLong())).thenAnswer(invocation -> {
+            Long customerId = invocation.getArgument(0);
+            CartDTO state = new CartDTO();
+            state.setId(customerId);
+            state.setCustomerId(customerId);
+            state.setTotalPrice(BigDecimal.ZERO);
+            state.setTotalAmount(BigDecimal.ZERO);
+            state.setDiscountAmount(BigDecimal.ZERO);
+            state.setCartItems(new ArrayList<>());
+            rows.put(customerId, CartPersistence.copyOf(state));
+            return state;
+        });
+        doAnswer(invocation -> {
+            CartDTO state = invocation.getArgument(0);
+            rows.put(state.getCustomerId(), CartPersistence.copyOf(state));
+            return null;
+        }).when(cartPersistence).write(any());
+        doAnswer(invocation -> {
+            for (CartDTO state : (Collection<CartDTO>) invocation.getArgument(0)) {
+                rows.put(state.getCustomerId(), CartPersistence.copyOf(state));
+            }
+            return null;
+        }).when(cartPersistence).writeAll(any());
+        return cartPersistence;
+    }
+
+    static Map<Long, CartDTO> rows() {
+        return new ConcurrentHashMap<>();
+    }
+
+    /** Adds one unit of {@link #PRODUCT_ID}, the way CartServiceImpl changes a snapshot. */
+    static CartDTO addOne(CartDTO state) {
+        CartItemDTO line = state.getCartItems().stream()
+                .filter(item -> PRODUCT_ID.equals(item.getProductId()))
+                .findFirst()
+                .orElse(null);
+        if (line == null) {
+            line = new CartItemDTO(null, PRODUCT_ID, 0L, BigDecimal.ONE, null);
+            state.getCartItems().add(line);
+        }
+        line.setQuantity(line.getQuantity() + 1);
+        state.setTotalPrice(state.getTotalPrice().add(BigDecimal.ONE));
+        state.setTotalAmount(state.getTotalAmount().add(BigDecimal.ONE));
+        return state;
+    }
+
+    record Run(Map<Long, Long> added, long operations, long millis) {
+
+        long perSecond() {
+            return operations * 1000 / Math.max(millis, 1);
+        }
+    }
+
+    /**
+     * {@code threads} threads each adding one unit {@code operations} times, in its own
+     * transaction each time, to the carts of customers 1..{@code customers} in turn.
+     */
+    static Run addConcurrently(CartStore cartStore, TransactionTemplate transactionTemplate,
+                               int threads, int customers, int operations) throws Exception {
+        Map<Long, AtomicLong> added = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < operations; i++) {
+                        Long customerId = (long) ((offset + i) % customers) + 1;
+                        transactionTemplate.executeWithoutResult(status -> cartStore.update(customerId, CartStoreTestSupport::addOne));
+                        added.computeIfAbsent(customerId, id -> new AtomicLong()).incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            Map<Long, Long> totals = new HashMap<>();
+            added.forEach((customerId, count) -> totals.put(customerId, count.get()));
+            return new Run(totals, (long) threads * operations, millis);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static long quantityOf(CartDTO state) {
+        return state == null ? 0L : state.getCartItems().stream()
+                .filter(item -> PRODUCT_ID.equals(item.getProductId()))
+                .mapToLong(CartItemDTO::getQuantity)
+                .sum();
+    }
+}
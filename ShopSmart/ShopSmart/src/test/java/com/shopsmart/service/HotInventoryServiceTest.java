@@ -0,0 +1,248 @@
+package com.shopsmart.service;
+
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Product;
+import com.shopsmart.repository.CategoryRepository;
+import com.shopsmart.repository.ProductRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hot-SKU pools against H2, committing for real: crash recovery from the lease rows and the
+ * journal, and reservation throughput on one product with and without hot mode.
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(InventoryService.class)
+class HotInventoryServiceTest {
+
+    private static final long LEASE_SIZE = 100;
+
+    @MockitoBean
+    private ProductIndexOutboxService productIndexOutboxService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    private Path journalDir;
+
+    @Test
+    void recoveryReturnsWhatTheCrashedPoolHeld() throws Exception {
+        Long productId = product(500);
+        String instanceId = "crashed-" + UUID.randomUUID();
+        HotInventoryService crashed = hotInventoryService(instanceId, LEASE_SIZE);
+        crashed.recoverOnStartup();
+        crashed.enable(productId);
+
+        // enable() leased 100 units off the row; 30 are taken and the flush records 70 as of seq 3
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 3; i++) {
+                assertThat(crashed.allocate(productId, 10)).isTrue();
+            }
+        });
+        Path flushedJournal = onlyJournal();
+        byte[] flushedEntries = Files.readAllBytes(flushedJournal);
+        crashed.flush();
+        // As if the crash came between the flush commit and deleting the old journal: its
+        // entries are all at or below flushed_seq and must not be counted again
+        Files.write(flushedJournal, flushedEntries);
+
+        // Only in the journal: 5 taken, and 7 taken by a cart that rolled back and given back
+        transactionTemplate.executeWithoutResult(status -> assertThat(crashed.allocate(productId, 5)).isTrue());
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(crashed.allocate(productId, 7)).isTrue();
+            status.setRollbackOnly();
+        });
+        assertThat(crashed.getPooled(productId)).isEqualTo(65);
+        // Torn last write
+        Path current = journalFiles().get(journalFiles().size() - 1);
+        Files.write(current, "7 ".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        assertThat(stockOf(productId)).isEqualTo(400);
+        HotInventoryService restarted = hotInventoryService(instanceId, LEASE_SIZE);
+        restarted.recoverOnStartup();
+
+        assertThat(stockOf(productId)).isEqualTo(500 - 35);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hot_inventory_lease WHERE instance_id = ?",
+                Long.class, instanceId)).isZero();
+        assertThat(restarted.isHot(productId)).isFalse();
+        // The crashed run's journals are gone, the new run has its own
+        assertThat(journalFiles()).hasSize(1).doesNotContain(flushedJournal, current);
+    }
+
+    /**
+     * Reservations of one unit each by many carts on the same product, through the row-locking
+     * path and through a hot pool, with more threads than connections. The flush runs alongside
+     * as it would on its schedule; a reservation told the pool is being refilled is retried, as a
+     * client would. H2 runs in-process, so the gap is smaller than against MySQL, where every
+     * row-lock wait is held across network round trips.
+     */
+    @Test
+    @Tag("benchmark")
+    void hotPoolAgainstRowUpdatesUnderContention() throws Exception {
+        int threads = 16;
+        int reservationsPerThread = 200;
+        long initialStock = 1_000_000;
+        HotInventoryService hotInventoryService = hotInventoryService("bench-" + UUID.randomUUID(), 1_000);
+        hotInventoryService.recoverOnStartup();
+        StockReservationService stockReservationService = new StockReservationService(jdbcTemplate, inventoryService,
+                hotInventoryService, transactionTemplate, 15, 1000);
+
+        Long coldProduct = product(initialStock);
+        Result cold = reserveConcurrently(stockReservationService, coldProduct, threads, reservationsPerThread);
+
+        Long hotProduct = product(initialStock);
+        hotInventoryService.enable(hotProduct);
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+        Result hot;
+        try {
+            flusher.scheduleWithFixedDelay(hotInventoryService::flush, 20, 20, TimeUnit.MILLISECONDS);
+            hot = reserveConcurrently(stockReservationService, hotProduct, threads, reservationsPerThread);
+        } finally {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        long reservations = (long) threads * reservationsPerThread;
+        System.out.printf("%d one-unit reservations by %d threads on one product: row updates %d ms (%d/s),"
+                        + " hot pool %d ms (%d/s, %d retried)%n",
+                reservations, threads, cold.millis(), reservations * 1000 / Math.max(cold.millis(), 1),
+                hot.millis(), reservations * 1000 / Math.max(hot.millis(), 1), hot.retries());
+        assertThat(cold.retries()).isZero();
+
+        // Cold holds leave the row alone; hot holds are taken off it through the pool
+        assertThat(stockOf(coldProduct)).isEqualTo(initialStock);
+        assertThat(heldOf(coldProduct, false)).isEqualTo(reservations);
+        assertThat(heldOf(hotProduct, true)).isEqualTo(reservations);
+        assertThat(stockOf(hotProduct) + hotInventoryService.getPooled(hotProduct) + reservations).isEqualTo(initialStock);
+
+        hotInventoryService.disable(hotProduct);
+        assertThat(stockOf(hotProduct) + reservations).isEqualTo(initialStock);
+    }
+
+    private record Result(long millis, long retries) {
+    }
+
+    private Result reserveConcurrently(StockReservationService stockReservationService, Long productId,
+                                       int threads, int reservationsPerThread) throws Exception {
+        AtomicLong retries = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                long firstCart = (long) t * reservationsPerThread + 1;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long cartId = firstCart; cartId < firstCart + reservationsPerThread; cartId++) {
+                        long cart = cartId;
+                        while (true) {
+                            try {
+                                Boolean reserved = transactionTemplate.execute(status ->
+                                        stockReservationService.reserve(cart, productId, 1));
+                                assertThat(reserved).isTrue();
+                                break;
+                            } catch (IllegalStateException e) {
+                                retries.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+            return new Result(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin), retries.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private HotInventoryService hotInventoryService(String instanceId, long leaseSize) {
+        return new HotInventoryService(jdbcTemplate, inventoryService, transactionTemplate, instanceId, 16, leaseSize,
+                200, journalDir.toString(), List.of());
+    }
+
+    private Long product(long stock) {
+        Category category = new Category();
+        category.setName("category-" + UUID.randomUUID());
+        categoryRepository.save(category);
+        Product product = new Product();
+        product.setName("product-" + UUID.randomUUID());
+        product.setDescription("Hot inventory test product");
+        product.setImages(List.of());
+        product.setPrice(BigDecimal.TEN);
+        product.setStockQuantity(stock);
+        product.setCategory(category);
+        return productRepository.save(product).getId();
+    }
+
+    private long stockOf(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM product WHERE product_id = ?", Long.class, productId);
+    }
+
+    private long heldOf(Long productId, boolean deducted) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM stock_reservation"
+                + " WHERE product_id = ? AND deducted = ?", Long.class, productId, deducted);
+    }
+
+    private Path onlyJournal() throws Exception {
+        List<Path> files = journalFiles();
+        assertThat(files).hasSize(1);
+        return files.get(0);
+    }
+
+    private List<Path> journalFiles() throws Exception {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.shopsmart.service;
+
+import com.shopsmart.dto.CartDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static com.shopsmart.service.CartStoreTestSupport.addConcurrently;
+import static com.shopsmart.service.CartStoreTestSupport.addOne;
+import static com.shopsmart.service.CartStoreTestSupport.quantityOf;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryCartStoreTest {
+
+    private Map<Long, CartDTO> rows;
+    private TransactionTemplate transactionTemplate;
+    private InMemoryCartStore cartStore;
+
+    @BeforeEach
+    void setUp() {
+        rows = CartStoreTestSupport.rows();
+        transactionTemplate = CartStoreTestSupport.transactionTemplate();
+        cartStore = new InMemoryCartStore(CartStoreTestSupport.cartPersistence(rows), transactionTemplate,
+                16, 30, 200, 5000);
+    }
+
+    @Test
+    void concurrentChangesToTheSameCartsAreNotLost() throws Exception {
+        CartStoreTestSupport.Run run = addConcurrently(cartStore, transactionTemplate, 16, 8, 500);
+
+        run.added().forEach((customerId, added) ->
+                assertThat(quantityOf(cartStore.find(customerId).orElseThrow())).isEqualTo(added));
+
+        cartStore.flushAndEvict();
+        run.added().forEach((customerId, added) -> assertThat(quantityOf(rows.get(customerId))).isEqualTo(added));
+    }
+
+    @Test
+    void rolledBackChangeIsDiscarded() {
+        transactionTemplate.executeWithoutResult(status -> cartStore.update(1L, CartStoreTestSupport::addOne));
+        transactionTemplate.executeWithoutResult(status -> {
+            cartStore.update(1L, CartStoreTestSupport::addOne);
+            status.setRollbackOnly();
+        });
+
+        assertThat(quantityOf(cartStore.find(1L).orElseThrow())).isEqualTo(1);
+        cartStore.flushAndEvict();
+        assertThat(quantityOf(rows.get(1L))).isEqualTo(1);
+    }
+
+    @Test
+    void checkoutSeesChangesNotYetWrittenBack() {
+        transactionTemplate.executeWithoutResult(status -> cartStore.update(1L, state -> addOne(addOne(state))));
+        assertThat(quantityOf(rows.get(1L))).isZero();
+
+        long atCheckout = transactionTemplate.execute(status -> cartStore.withPersistedCart(1L, () -> {
+            long quantity = quantityOf(rows.get(1L));
+            // Checkout empties the cart rows
+            rows.get(1L).getCartItems().clear();
+            return quantity;
+        }));
+
+        assertThat(atCheckout).isEqualTo(2);
+        assertThat(cartStore.find(1L).orElseThrow().getCartItems()).isEmpty();
+    }
+
+    /**
+     * Throughput of cart changes spread over many customers, the case the store is for; the
+     * write-back to MySQL is not part of it.
+     */
+    @Test
+    @Tag("benchmark")
+    void addThroughputUnderConcurrency() throws Exception {
+        // Warm-up
+        addConcurrently(cartStore, transactionTemplate, 8, 1000, 2_000);
+
+        CartStoreTestSupport.Run run = addConcurrently(cartStore, transactionTemplate, 8, 1000, 25_000);
+        System.out.printf("In-memory cart store: %d adds by 8 threads over 1000 carts in %d ms, %d adds/s%n",
+                run.operations(), run.millis(), run.perSecond());
+
+        cartStore.flushAndEvict();
+        long written = rows.values().stream().mapToLong(CartStoreTestSupport::quantityOf).sum();
+        assertThat(written).isEqualTo(8L * 2_000 + run.operations());
+    }
+}
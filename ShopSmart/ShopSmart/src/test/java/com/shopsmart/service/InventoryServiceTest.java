@@ -0,0 +1,102 @@
+package com.shopsmart.service;
+
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Product;
+import com.shopsmart.serviceImpl.CheckoutSliceTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * InventoryService on its own, without carts or reservations in front of it: threads lock two
+ * products (listed in either order), take stock only when both locked rows have enough, and some
+ * give units back. Each product must end at exactly its initial stock minus what was taken plus
+ * what was returned, never below zero.
+ */
+class InventoryServiceTest extends CheckoutSliceTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS_PER_THREAD = 50;
+    private static final long INITIAL_STOCK = 200;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Test
+    void concurrentLockedDecrementsNeverOversell() throws Exception {
+        Category category = category();
+        Long first = product(category, INITIAL_STOCK).getId();
+        Long second = product(category, INITIAL_STOCK).getId();
+
+        AtomicLong takenFirst = new AtomicLong();
+        AtomicLong takenSecond = new AtomicLong();
+        AtomicLong returned = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < ROUNDS_PER_THREAD; round++) {
+                        if (thread % 4 == 0 && round % 5 == 0) {
+                            transactionTemplate.executeWithoutResult(status ->
+                                    inventoryService.incrementAll(Map.of(first, 1L, second, 1L)));
+                            returned.incrementAndGet();
+                            continue;
+                        }
+                        long quantity = round % 3 + 1;
+                        // Callers hand over ids in any order; locks are still taken in id order
+                        List<Long> ids = thread % 2 == 0 ? List.of(first, second) : List.of(second, first);
+                        boolean taken = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                            Map<Long, Long> locked = inventoryService.lockStock(ids);
+                            if (locked.get(first) < quantity || locked.get(second) < 2 * quantity) {
+                                return false;
+                            }
+                            inventoryService.decrementLocked(Map.of(first, quantity, second, 2 * quantity), locked);
+                            return true;
+                        }));
+                        if (taken) {
+                            takenFirst.addAndGet(quantity);
+                            takenSecond.addAndGet(2 * quantity);
+                        } else {
+                            refused.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long firstStock = stockOf(first);
+        long secondStock = stockOf(second);
+
+        // The second product runs out first, so some rounds must have been refused
+        assertThat(refused.get()).isPositive();
+        assertThat(firstStock).isEqualTo(INITIAL_STOCK - takenFirst.get() + returned.get());
+        assertThat(secondStock).isEqualTo(INITIAL_STOCK - takenSecond.get() + returned.get());
+        assertThat(firstStock).isGreaterThanOrEqualTo(0);
+        assertThat(secondStock).isGreaterThanOrEqualTo(0);
+        assertThat(inventoryService.getStock(List.of(first, second))).containsEntry(first, firstStock)
+                .containsEntry(second, secondStock);
+    }
+}
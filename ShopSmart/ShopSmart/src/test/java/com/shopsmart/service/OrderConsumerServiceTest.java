@@ -0,0 +1,213 @@
+package com.shopsmart.service;
+
+import com.shopsmart.config.KafkaConfig;
+import com.shopsmart.config.KafkaConstants;
+import com.shopsmart.dto.OrderDTO;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The order topic listeners against an embedded broker, with KafkaConfig as the application
+ * wires it and order placement replaced by a recorder: per-record error handling within a
+ * batch, and end-to-end throughput of the batch listener.
+ */
+@SpringBootTest(classes = {KafkaConfig.class, OrderConsumerService.class, OrderProducerService.class,
+        OrderConsumerServiceTest.PlacementConfig.class},
+        properties = {
+                "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+                "shopsmart.kafka.orders.retry-topic.attempts=2",
+                "shopsmart.kafka.orders.retry-topic.delay-ms=100",
+                "shopsmart.kafka.orders.retry-topic.multiplier=1"
+        })
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, KafkaAutoConfiguration.class})
+@EmbeddedKafka(partitions = 3, topics = KafkaConstants.TOPIC_ORDERS)
+class OrderConsumerServiceTest {
+
+    private static final String POISON = "poison-";
+
+    /**
+     * Records the idempotency key of every command handed to placement; keys starting with
+     * {@link #POISON} fail as a placement error other than a business failure would.
+     */
+    static class RecordingPlacementService extends OrderPlacementService {
+
+        final Queue<String> consumed = new ConcurrentLinkedQueue<>();
+
+        RecordingPlacementService() {
+            super(null, null, null, null, null);
+        }
+
+        @Override
+        public void consume(OrderDTO message, int partition, long offset) {
+            consumed.add(message.getIdempotencyKey());
+            if (message.getIdempotencyKey().startsWith(POISON)) {
+                throw new IllegalStateException("Placement failed for " + message.getIdempotencyKey());
+            }
+        }
+
+        @Override
+        public String commandKey(OrderDTO message, int partition, long offset) {
+            return message.getIdempotencyKey();
+        }
+
+        long count(String key) {
+            return consumed.stream().filter(key::equals).count();
+        }
+
+        long countPrefix(String prefix) {
+            return consumed.stream().filter(key -> key.startsWith(prefix)).count();
+        }
+    }
+
+    @TestConfiguration
+    static class PlacementConfig {
+
+        @Bean
+        RecordingPlacementService orderPlacementService() {
+            return new RecordingPlacementService();
+        }
+
+        // For the retry topic containers' delays, as @EnableScheduling provides in the application
+        @Bean
+        ThreadPoolTaskScheduler taskScheduler() {
+            return new ThreadPoolTaskScheduler();
+        }
+    }
+
+    @Autowired
+    private RecordingPlacementService placementService;
+
+    @Autowired
+    private OrderProducerService orderProducerService;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> orderRawKafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @BeforeEach
+    void waitForAssignment() {
+        // Consumers start from the latest offset; anything sent before they own a partition is skipped
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, broker.getPartitionsPerTopic());
+        }
+    }
+
+    @Test
+    void failedRecordsLeaveTheBatchWithoutHoldingUpTheRest() throws Exception {
+        String run = UUID.randomUUID().toString();
+        // One customer, so everything lands on one partition, in this order, in one batch
+        send(run + "-good-0");
+        send(run + "-good-1");
+        send(POISON + run);
+        byte[] unreadable = "{\"customerId\": 42, not json".getBytes(StandardCharsets.UTF_8);
+        orderRawKafkaTemplate.send(KafkaConstants.TOPIC_ORDERS, "42", unreadable).get(10, TimeUnit.SECONDS);
+        send(run + "-good-2");
+        send(run + "-good-3");
+
+        // Once on the order topic, then both attempts of the retry topic
+        await(() -> placementService.count(POISON + run) == 3 && placementService.countPrefix(run + "-good-") == 4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(placementService.count(run + "-good-" + i)).isEqualTo(1);
+        }
+        List<byte[]> dead = readDeadLetters(2);
+        assertThat(dead).anySatisfy(value -> assertThat(value).isEqualTo(unreadable));
+        assertThat(dead).anySatisfy(value -> assertThat(new String(value, StandardCharsets.UTF_8)).contains(POISON + run));
+    }
+
+    /**
+     * Commands for 1000 customers sent through OrderProducerService and consumed by the batch
+     * listener (3 partitions, 3 consumers), placement being a no-op: the Kafka side of checkout.
+     */
+    @Test
+    @Tag("benchmark")
+    void batchListenerThroughput() throws Exception {
+        int messages = 20_000;
+        String run = "bench-" + UUID.randomUUID() + "-";
+        long begin = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            OrderDTO command = new OrderDTO();
+            command.setCustomerId((long) (i % 1000) + 1);
+            command.setIdempotencyKey(run + i);
+            orderProducerService.send(KafkaConstants.TOPIC_ORDERS, command);
+        }
+        await(() -> placementService.countPrefix(run) >= messages);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        System.out.printf("Order topic: %d commands produced and consumed in %d ms, %d msgs/s%n",
+                messages, millis, messages * 1000L / Math.max(millis, 1));
+        assertThat(placementService.countPrefix(run)).isEqualTo(messages);
+    }
+
+    private void send(String key) throws Exception {
+        OrderDTO command = new OrderDTO();
+        command.setCustomerId(42L);
+        command.setIdempotencyKey(key);
+        orderProducerService.send(KafkaConstants.TOPIC_ORDERS, command).get(10, TimeUnit.SECONDS);
+    }
+
+    private List<byte[]> readDeadLetters(int expected) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dlt-reader-" + UUID.randomUUID(), "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        List<byte[]> values = new ArrayList<>();
+        try (Consumer<String, byte[]> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            consumer.subscribe(List.of(KafkaConstants.TOPIC_ORDERS_DLT));
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (values.size() < expected && System.currentTimeMillis() < deadline) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(500))) {
+                    values.add(record.value());
+                }
+            }
+        }
+        return values;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("timed out waiting").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.shopsmart.service;
+
+import com.shopsmart.config.KafkaConfig;
+import com.shopsmart.config.KafkaConstants;
+import com.shopsmart.dto.OrderDTO;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Peeking and replaying the order DLT against an embedded broker. Records are put on the DLT
+ * directly; no listener runs, so what replay sends stays on the order topic to be read back.
+ */
+@SpringBootTest(classes = {KafkaConfig.class, OrderProducerService.class, OrderDeadLetterService.class},
+        properties = "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}")
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, KafkaAutoConfiguration.class})
+@EmbeddedKafka(partitions = 3, topics = {KafkaConstants.TOPIC_ORDERS, KafkaConstants.TOPIC_ORDERS_DLT})
+class OrderDeadLetterServiceTest {
+
+    @Autowired
+    private OrderDeadLetterService orderDeadLetterService;
+
+    @Autowired
+    private KafkaTemplate<String, OrderDTO> orderKafkaTemplate;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> orderRawKafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Test
+    void peekLeavesTheReplayPositionAlone() throws Exception {
+        String run = UUID.randomUUID().toString();
+        deadLetter(run + "-0", 1L);
+        deadLetter(run + "-1", 2L);
+        Map<TopicPartition, Long> before = replayPosition();
+
+        List<Map<String, Object>> first = orderDeadLetterService.peek(1000);
+        List<Map<String, Object>> second = orderDeadLetterService.peek(1000);
+
+        assertThat(trackingIds(first, run)).containsExactlyInAnyOrder(run + "-0", run + "-1");
+        assertThat(trackingIds(second, run)).containsExactlyInAnyOrder(run + "-0", run + "-1");
+        assertThat(replayPosition()).isEqualTo(before);
+    }
+
+    @Test
+    void replaySendsEachRecordOnceAndStepsOverUnreadableOnes() throws Exception {
+        // Whatever another test left on the DLT is out of the way first
+        orderDeadLetterService.replay(1000);
+        String run = UUID.randomUUID().toString();
+        deadLetter(run + "-0", 1L);
+        deadLetter(run + "-1", 2L);
+        orderRawKafkaTemplate.send(KafkaConstants.TOPIC_ORDERS_DLT, "3", "not json".getBytes(StandardCharsets.UTF_8))
+                .get(10, TimeUnit.SECONDS);
+
+        Map<String, Object> replayed = orderDeadLetterService.replay(1000);
+
+        assertThat(replayed).containsEntry("replayed", 2).containsEntry("skippedUnreadable", 1);
+        assertThat(orderDeadLetterService.peek(1000)).isEmpty();
+        assertThat(replayPosition()).isEqualTo(endOffsets(KafkaConstants.TOPIC_ORDERS_DLT));
+        assertThat(orderDeadLetterService.replay(1000)).containsEntry("replayed", 0).containsEntry("skippedUnreadable", 0);
+
+        // Both readable records are back on the order topic, once each, keyed by customer
+        List<ConsumerRecord<String, String>> resent = readOrderTopic(run, 2);
+        assertThat(resent).extracting(ConsumerRecord::key).containsExactlyInAnyOrder("1", "2");
+        assertThat(resent).extracting(ConsumerRecord::value)
+                .anySatisfy(value -> assertThat(value).contains(run + "-0"))
+                .anySatisfy(value -> assertThat(value).contains(run + "-1"));
+    }
+
+    private void deadLetter(String trackingId, Long customerId) throws Exception {
+        OrderDTO message = new OrderDTO();
+        message.setCustomerId(customerId);
+        message.setIdempotencyKey(trackingId);
+        orderKafkaTemplate.send(KafkaConstants.TOPIC_ORDERS_DLT, customerId.toString(), message).get(10, TimeUnit.SECONDS);
+    }
+
+    private static List<String> trackingIds(List<Map<String, Object>> entries, String run) {
+        return entries.stream()
+                .map(entry -> (String) entry.get("trackingId"))
+                .filter(trackingId -> trackingId != null && trackingId.startsWith(run))
+                .collect(Collectors.toList());
+    }
+
+    private Map<TopicPartition, Long> replayPosition() throws Exception {
+        try (AdminClient admin = admin()) {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin
+                    .listConsumerGroupOffsets(KafkaConstants.GROUP_ORDERS_DLT_REPLAY)
+                    .partitionsToOffsetAndMetadata().get(10, TimeUnit.SECONDS);
+            return committed.entrySet().stream()
+                    .filter(entry -> entry.getValue() != null)
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().offset()));
+        }
+    }
+
+    private Map<TopicPartition, Long> endOffsets(String topic) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("end-offsets-" + UUID.randomUUID(), "false", broker);
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                    .map(info -> new TopicPartition(topic, info.partition()))
+                    .collect(Collectors.toList());
+            // Partitions nothing was ever written to have no replay position either
+            return consumer.endOffsets(partitions).entrySet().stream()
+                    .filter(entry -> entry.getValue() > 0)
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        }
+    }
+
+    // Reads the whole order topic, then waits a little longer to catch duplicates
+    private List<ConsumerRecord<String, String>> readOrderTopic(String run, int expected) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("order-reader-" + UUID.randomUUID(), "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            consumer.subscribe(List.of(KafkaConstants.TOPIC_ORDERS));
+            long deadline = System.currentTimeMillis() + 30_000;
+            long settled = Long.MAX_VALUE;
+            while (System.currentTimeMillis() < Math.min(deadline, settled)) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(500))) {
+                    if (record.value().contains(run)) {
+                        records.add(record);
+                    }
+                }
+                if (records.size() >= expected && settled == Long.MAX_VALUE) {
+                    settled = System.currentTimeMillis() + 2_000;
+                }
+            }
+        }
+        return records;
+    }
+
+    private AdminClient admin() {
+        return AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+    }
+}
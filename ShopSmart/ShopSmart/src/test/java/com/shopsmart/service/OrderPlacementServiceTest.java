@@ -0,0 +1,151 @@
+package com.shopsmart.service;
+
+import com.shopsmart.dto.OrderPlacementStatusDTO;
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Customer;
+import com.shopsmart.entity.Product;
+import com.shopsmart.serviceImpl.CheckoutSliceTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Command dedup and settlement of asynchronous checkout against H2. Publishing is mocked; the
+ * tests call {@link OrderPlacementService#process} as the consumer would, as often as Kafka might.
+ */
+@Import(OrderPlacementService.class)
+class OrderPlacementServiceTest extends CheckoutSliceTest {
+
+    @MockitoBean
+    private OrderProducerService orderProducerService;
+
+    @Autowired
+    private OrderPlacementService orderPlacementService;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = category();
+        when(orderProducerService.send(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void sameKeySubmittedTwiceIsQueuedOnce() {
+        Customer customer = customer();
+        String key = UUID.randomUUID().toString();
+
+        OrderPlacementStatusDTO first = orderPlacementService.submit(customer.getId(), key);
+        OrderPlacementStatusDTO second = orderPlacementService.submit(customer.getId(), key);
+
+        assertThat(commandRows(key)).isEqualTo(1);
+        assertThat(second.getTrackingId()).isEqualTo(first.getTrackingId());
+        assertThat(second.getStatus()).isEqualTo("PENDING");
+        verify(orderProducerService, times(1)).send(anyString(), any());
+    }
+
+    @Test
+    void redeliveredCommandPlacesOneOrder() {
+        Customer customer = customer();
+        Product product = product(category, 10);
+        cartService.addProductToCart(customer.getId(), product.getId(), 3L);
+        String key = orderPlacementService.submit(customer.getId(), UUID.randomUUID().toString()).getTrackingId();
+
+        orderPlacementService.process(key, customer.getId());
+        // Redelivery, after the cart has been refilled: the settled command must not place it
+        cartService.addProductToCart(customer.getId(), product.getId(), 2L);
+        orderPlacementService.process(key, customer.getId());
+
+        OrderPlacementStatusDTO status = orderPlacementService.getStatus(key);
+        assertThat(status.getStatus()).isEqualTo("COMPLETED");
+        assertThat(ordersOf(customer)).isEqualTo(1);
+        assertThat(stockOf(product.getId())).isEqualTo(7);
+        assertThat(status.getOrderId()).isNotNull();
+    }
+
+    @Test
+    void keyOfAnotherCustomerIsRejected() {
+        Customer owner = customer();
+        Customer other = customer();
+        Product product = product(category, 10);
+        cartService.addProductToCart(other.getId(), product.getId(), 1L);
+        String key = orderPlacementService.submit(owner.getId(), UUID.randomUUID().toString()).getTrackingId();
+
+        assertThatThrownBy(() -> orderPlacementService.submit(other.getId(), key))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("belongs to another customer");
+        // A message carrying the reused key does not settle the owner's command either
+        orderPlacementService.process(key, other.getId());
+
+        assertThat(orderPlacementService.getStatus(key).getStatus()).isEqualTo("PENDING");
+        assertThat(ordersOf(other)).isZero();
+        assertThat(stockOf(product.getId())).isEqualTo(10);
+        verify(orderProducerService, times(1)).send(anyString(), any());
+    }
+
+    @Test
+    void emptyCartFailsTheCommand() {
+        Customer customer = customer();
+        Product product = product(category, 10);
+        cartService.addProductToCart(customer.getId(), product.getId(), 1L);
+        cartService.removeProductFromCart(customer.getId(), product.getId());
+        String key = orderPlacementService.submit(customer.getId(), UUID.randomUUID().toString()).getTrackingId();
+
+        orderPlacementService.process(key, customer.getId());
+
+        OrderPlacementStatusDTO status = orderPlacementService.getStatus(key);
+        assertThat(status.getStatus()).isEqualTo("FAILED");
+        assertThat(status.getError()).contains("empty cart");
+        assertThat(ordersOf(customer)).isZero();
+    }
+
+    @Test
+    void lineWithoutStockFailsTheCommandWithoutPartialWrites() {
+        Customer customer = customer();
+        Product available = product(category, 10);
+        Product soldOut = product(category, 10);
+        cartService.addProductToCart(customer.getId(), available.getId(), 2L);
+        cartService.addProductToCart(customer.getId(), soldOut.getId(), 2L);
+        // The hold on the second line lapsed and its stock went elsewhere meanwhile
+        jdbcTemplate.update("DELETE FROM stock_reservation WHERE product_id = ?", soldOut.getId());
+        jdbcTemplate.update("UPDATE product SET stock_quantity = 1 WHERE product_id = ?", soldOut.getId());
+        String key = orderPlacementService.submit(customer.getId(), UUID.randomUUID().toString()).getTrackingId();
+
+        orderPlacementService.process(key, customer.getId());
+
+        OrderPlacementStatusDTO status = orderPlacementService.getStatus(key);
+        assertThat(status.getStatus()).isEqualTo("FAILED");
+        assertThat(status.getError()).contains("Not enough stock");
+        assertThat(ordersOf(customer)).isZero();
+        assertThat(stockOf(available.getId())).isEqualTo(10);
+        assertThat(stockOf(soldOut.getId())).isEqualTo(1);
+        // The cart and the first line's hold are as they were
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items i JOIN carts c ON c.id = i.cart_id"
+                + " WHERE c.customer_id = ?", Long.class, customer.getId())).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM stock_reservation WHERE product_id = ?",
+                Long.class, available.getId())).isEqualTo(2);
+    }
+
+    private long commandRows(String key) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM processed_order_command WHERE command_key = ?",
+                Long.class, key);
+    }
+
+    private long ordersOf(Customer customer) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customer_order WHERE customer_id = ?",
+                Long.class, customer.getId());
+    }
+}
@@ -0,0 +1,123 @@
+package com.shopsmart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopsmart.config.KafkaConfig;
+import com.shopsmart.dto.OrderDTO;
+import com.shopsmart.dto.OrderItemDTO;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The order producer as KafkaConfig tunes it (lz4, 64 KB batches, 5 ms linger) against the
+ * client defaults, on an embedded broker with three partitions.
+ */
+@Tag("benchmark")
+@EmbeddedKafka(partitions = 3, topics = OrderProducerServiceTest.TOPIC)
+class OrderProducerServiceTest {
+
+    static final String TOPIC = "shop-smart-orders-bench";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private record Result(long millis, long messages, double bytes, Object batchSizeAvg, Object compressionRateAvg) {
+
+        long perSecond() {
+            return messages * 1000 / Math.max(millis, 1);
+        }
+    }
+
+    /**
+     * Placement commands of a few lines each for 1000 customers, sent without waiting as checkout
+     * does. Bytes are what the producer put on the wire, so compression and batch overhead count.
+     */
+    @Test
+    void tunedProducerAgainstClientDefaults(EmbeddedKafkaBroker broker) throws Exception {
+        KafkaConfig kafkaConfig = new KafkaConfig(objectMapper, broker.getBrokersAsString(), 3, 3, 100, 1000, 3,
+                "all", true, 5, 65536, "lz4");
+        ProducerFactory<String, OrderDTO> tunedFactory = kafkaConfig.orderProducerFactory();
+        ProducerFactory<String, OrderDTO> defaultFactory = new DefaultKafkaProducerFactory<>(
+                Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()),
+                new StringSerializer(), new JsonSerializer<OrderDTO>(objectMapper).noTypeInfo());
+
+        try {
+            int messages = 50_000;
+            Result defaults = sendAll(new OrderProducerService(new KafkaTemplate<>(defaultFactory)), messages);
+            Result tuned = sendAll(new OrderProducerService(new KafkaTemplate<>(tunedFactory)), messages);
+
+            System.out.printf("%d order commands, client defaults: %d ms (%d msgs/s), %.0f bytes out,"
+                            + " batch-size-avg %s, compression-rate-avg %s%n",
+                    messages, defaults.millis(), defaults.perSecond(), defaults.bytes(),
+                    defaults.batchSizeAvg(), defaults.compressionRateAvg());
+            System.out.printf("%d order commands, tuned: %d ms (%d msgs/s), %.0f bytes out,"
+                            + " batch-size-avg %s, compression-rate-avg %s%n",
+                    messages, tuned.millis(), tuned.perSecond(), tuned.bytes(),
+                    tuned.batchSizeAvg(), tuned.compressionRateAvg());
+
+            // JSON with repeated field names compresses well; the tuned producer must send less
+            assertThat(tuned.bytes()).isLessThan(defaults.bytes());
+        } finally {
+            tunedFactory.reset();
+            defaultFactory.reset();
+        }
+    }
+
+    private Result sendAll(OrderProducerService producer, int messages) throws Exception {
+        // Warm-up: connections, metadata, producer id
+        send(producer, 5_000, "warm-up-");
+        double bytesBefore = outgoingBytes(producer);
+
+        long begin = System.nanoTime();
+        send(producer, messages, UUID.randomUUID() + "-");
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        Map<String, Object> stats = producer.getStats();
+        Map<?, ?> metrics = (Map<?, ?>) stats.get("producer");
+        assertThat(stats.get("failed")).isEqualTo(0L);
+        assertThat(stats.get("sent")).isEqualTo(5_000L + messages);
+        return new Result(millis, messages, outgoingBytes(producer) - bytesBefore,
+                metrics.get("batch-size-avg"), metrics.get("compression-rate-avg"));
+    }
+
+    private void send(OrderProducerService producer, int messages, String keyPrefix) throws Exception {
+        List<CompletableFuture<?>> futures = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            futures.add(producer.send(TOPIC, command(keyPrefix + i, (long) (i % 1000) + 1)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(120, TimeUnit.SECONDS);
+    }
+
+    private static double outgoingBytes(OrderProducerService producer) {
+        Map<?, ?> metrics = (Map<?, ?>) producer.getStats().get("producer");
+        return (Double) metrics.get("outgoing-byte-total");
+    }
+
+    private static OrderDTO command(String idempotencyKey, Long customerId) {
+        List<OrderItemDTO> items = new ArrayList<>();
+        for (long line = 1; line <= 3; line++) {
+            items.add(new OrderItemDTO(null, customerId * 10 + line, null, line, BigDecimal.valueOf(499, 2)));
+        }
+        OrderDTO command = new OrderDTO(null, LocalDateTime.now(), BigDecimal.valueOf(2994, 2), items, customerId,
+                "PENDING", customerId + " Market Street, Springfield", null, BigDecimal.ZERO);
+        command.setIdempotencyKey(idempotencyKey);
+        return command;
+    }
+}
@@ -0,0 +1,70 @@
+package com.shopsmart.service;
+
+import com.shopsmart.dto.ProductDTO;
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Product;
+import com.shopsmart.event.ProductUpdatedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCacheServiceTest {
+
+    private ProductCacheService cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ProductCacheService(100, 100, 300);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void movingAProductEvictsBothCategoriesWhenOnlyTheListsAreCached() {
+        categoryList(1L);
+        categoryList(2L);
+        categoryList(3L);
+
+        cache.handleProductUpdated(new ProductUpdatedEvent(product(7L, 2L), 1L));
+
+        loads.set(0);
+        categoryList(1L);
+        categoryList(2L);
+        categoryList(3L);
+        // The lists it left and joined reload; the untouched one does not
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void unknownPreviousCategoryEvictsEveryList() {
+        categoryList(1L);
+        categoryList(2L);
+
+        cache.handleProductUpdated(new ProductUpdatedEvent(product(7L, 2L), null));
+
+        loads.set(0);
+        categoryList(1L);
+        categoryList(2L);
+        assertThat(loads).hasValue(2);
+    }
+
+    private void categoryList(Long categoryId) {
+        cache.getProductsByCategory(categoryId, id -> {
+            loads.incrementAndGet();
+            ProductDTO dto = new ProductDTO();
+            dto.setCategoryId(id);
+            return List.of(dto);
+        });
+    }
+
+    private static Product product(Long id, Long categoryId) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategory(new Category(categoryId, "Category " + categoryId, null));
+        return product;
+    }
+}
@@ -0,0 +1,176 @@
+package com.shopsmart.service;
+
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Product;
+import com.shopsmart.event.ProductUpdatedEvent;
+import com.shopsmart.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Per-keystroke latency of the trie path under concurrent load, while products are renamed and
+ * the trie is rebuilt and swapped underneath. Every request is timed on its own, so the tail is
+ * measured rather than inferred from throughput. Runs with {@code -Pbenchmarks}.
+ */
+@Tag("benchmark")
+class ProductSuggestServiceTest {
+
+    private static final String[] BRANDS = { "Acme", "Globex", "Initech", "Umbrella", "Stark", "Wayne", "Wonka",
+            "Hooli", "Soylent", "Tyrell" };
+    private static final String[] COLOURS = { "Red", "Blue", "Green", "Black", "White", "Silver", "Golden", "Teal",
+            "Ivory", "Amber" };
+    private static final String[] SIZES = { "Mini", "Compact", "Classic", "Large", "Pro", "Max", "Ultra", "Lite",
+            "Plus", "Travel" };
+    private static final String[] NOUNS = { "Kettle", "Toaster", "Blender", "Lamp", "Backpack", "Headphones",
+            "Keyboard", "Monitor", "Jacket", "Sneakers", "Watch", "Camera", "Speaker", "Mug", "Pillow", "Tent",
+            "Bottle", "Charger", "Router", "Desk", "Chair", "Mirror", "Umbrella", "Wallet", "Drone", "Scooter",
+            "Guitar", "Printer", "Tablet", "Heater", "Fan", "Vacuum", "Grill", "Cooler", "Skillet", "Knife",
+            "Candle", "Rug", "Blanket", "Helmet", "Gloves", "Scarf", "Sunglasses", "Bicycle", "Projector",
+            "Microphone", "Thermostat", "Doorbell", "Purifier", "Humidifier" };
+
+    private static final int THREADS = 4;
+    private static final long DURATION_MS = 8_000;
+    private static final long P99_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final List<String> names = new ArrayList<>();
+    private ElasticsearchOperations elasticsearchOperations;
+    private ProductSuggestService suggestService;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> rows = new ArrayList<>();
+        long id = 0;
+        for (String brand : BRANDS) {
+            for (String colour : COLOURS) {
+                for (String size : SIZES) {
+                    for (String noun : NOUNS) {
+                        String name = brand + " " + colour + " " + size + " " + noun;
+                        names.add(name);
+                        rows.add(new Object[] { ++id, name, noun + "s" });
+                    }
+                }
+            }
+        }
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findSuggestTermsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            int from = (int) Math.min(afterId, rows.size());
+            return rows.subList(from, Math.min(from + page.getPageSize(), rows.size()));
+        });
+        elasticsearchOperations = mock(ElasticsearchOperations.class);
+        suggestService = new ProductSuggestService(productRepository, elasticsearchOperations,
+                new SearchCircuitBreaker(500, 5, 30_000, 32));
+        ReflectionTestUtils.setField(suggestService, "maxResults", 10);
+        ReflectionTestUtils.setField(suggestService, "loadPageSize", 5000);
+        ReflectionTestUtils.invokeMethod(suggestService, "load");
+    }
+
+    @Test
+    void keystrokeLatencyUnderLoad() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        List<Future<long[]>> readers = new ArrayList<>();
+        Future<Integer> writer;
+        try {
+            // Renames a batch of products and rebuilds the trie four times a second, faster than the schedule
+            writer = executor.submit(() -> {
+                start.await();
+                Category category = new Category(1L, "Renamed", null);
+                int rebuilds = 0;
+                for (long round = 0; running.get(); round++) {
+                    for (int i = 0; i < 100; i++) {
+                        int index = (int) ((round * 100 + i) % names.size());
+                        Product product = new Product();
+                        product.setId(index + 1L);
+                        product.setName(names.get(index) + " v" + round);
+                        product.setCategory(category);
+                        suggestService.handleProductUpdated(new ProductUpdatedEvent(product, 1L));
+                    }
+                    suggestService.rebuildIfChanged();
+                    rebuilds++;
+                    Thread.sleep(250);
+                }
+                return rebuilds;
+            });
+            for (int t = 0; t < THREADS; t++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long[] latencies = new long[1 << 16];
+                    int count = 0;
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MS);
+                    while (System.nanoTime() < deadline) {
+                        // Type a name out one keystroke at a time, as the UI calls the endpoint
+                        String name = names.get(random.nextInt(names.size()));
+                        for (int length = 1; length <= name.length(); length++) {
+                            String prefix = name.substring(0, length);
+                            long begin = System.nanoTime();
+                            List<String> suggestions = suggestService.suggest(prefix, null);
+                            long latency = System.nanoTime() - begin;
+                            if (count == latencies.length) {
+                                latencies = Arrays.copyOf(latencies, count * 2);
+                            }
+                            latencies[count++] = latency;
+                            assertThat(suggestions).isNotEmpty();
+                        }
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+            start.countDown();
+            List<long[]> perThread = new ArrayList<>();
+            for (Future<long[]> reader : readers) {
+                perThread.add(reader.get(DURATION_MS + 60_000, TimeUnit.MILLISECONDS));
+            }
+            running.set(false);
+            int rebuilds = writer.get(30, TimeUnit.SECONDS);
+
+            long[] all = perThread.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            System.out.printf("Suggest: %d keystrokes by %d threads in %d ms over %d names, %d trie rebuilds:"
+                            + " p50 %d us, p99 %d us, p99.9 %d us, max %d us%n",
+                    all.length, THREADS, DURATION_MS, names.size(), rebuilds, micros(percentile(all, 50)),
+                    micros(percentile(all, 99)), micros(percentile(all, 99.9)), micros(all[all.length - 1]));
+
+            assertThat(rebuilds).isPositive();
+            assertThat(percentile(all, 99)).isLessThan(P99_BUDGET_NANOS);
+            // Every keystroke was a prefix of a known name, so none fell through to Elasticsearch
+            verifyNoInteractions(elasticsearchOperations);
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,127 @@
+package com.shopsmart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import com.shopsmart.dto.CartDTO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static com.shopsmart.service.CartStoreTestSupport.addConcurrently;
+import static com.shopsmart.service.CartStoreTestSupport.addOne;
+import static com.shopsmart.service.CartStoreTestSupport.quantityOf;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RedisCartStore against jedis-mock, an in-process server speaking the Redis protocol, so the
+ * commands, the Lua unlock and the lock handoff all go over a real Lettuce connection.
+ */
+class RedisCartStoreTest {
+
+    private static RedisServer server;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private Map<Long, CartDTO> rows;
+    private TransactionTemplate transactionTemplate;
+    private RedisCartStore cartStore;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        rows = CartStoreTestSupport.rows();
+        transactionTemplate = CartStoreTestSupport.transactionTemplate();
+        cartStore = new RedisCartStore(redisTemplate, new ObjectMapper().findAndRegisterModules(),
+                CartStoreTestSupport.cartPersistence(rows), transactionTemplate, 30, 200, 10_000);
+    }
+
+    @Test
+    void concurrentChangesToTheSameCartsAreNotLost() throws Exception {
+        CartStoreTestSupport.Run run = addConcurrently(cartStore, transactionTemplate, 8, 4, 50);
+
+        run.added().forEach((customerId, added) ->
+                assertThat(quantityOf(cartStore.find(customerId).orElseThrow())).isEqualTo(added));
+
+        cartStore.flush();
+        run.added().forEach((customerId, added) -> assertThat(quantityOf(rows.get(customerId))).isEqualTo(added));
+        assertThat(redisTemplate.opsForSet().size("cart:dirty")).isZero();
+    }
+
+    @Test
+    void rolledBackChangeIsDiscarded() {
+        transactionTemplate.executeWithoutResult(status -> cartStore.update(1L, CartStoreTestSupport::addOne));
+        transactionTemplate.executeWithoutResult(status -> {
+            cartStore.update(1L, CartStoreTestSupport::addOne);
+            status.setRollbackOnly();
+        });
+
+        assertThat(quantityOf(cartStore.find(1L).orElseThrow())).isEqualTo(1);
+        // The lock went back on rollback too
+        assertThat(redisTemplate.hasKey("cart:lock:1")).isFalse();
+    }
+
+    @Test
+    void checkoutSeesChangesNotYetWrittenBack() {
+        transactionTemplate.executeWithoutResult(status -> cartStore.update(1L, state -> addOne(addOne(state))));
+        assertThat(quantityOf(rows.get(1L))).isZero();
+
+        long atCheckout = transactionTemplate.execute(status -> cartStore.withPersistedCart(1L, () -> {
+            long quantity = quantityOf(rows.get(1L));
+            // Checkout empties the cart rows
+            rows.get(1L).getCartItems().clear();
+            return quantity;
+        }));
+
+        assertThat(atCheckout).isEqualTo(2);
+        assertThat(redisTemplate.opsForSet().isMember("cart:dirty", "1")).isFalse();
+        assertThat(cartStore.find(1L).orElseThrow().getCartItems()).isEmpty();
+    }
+
+    /**
+     * Throughput of cart changes spread over many customers; each change is a lock, a read, a
+     * write, a set add and the unlock script, so this mostly measures round trips. jedis-mock is
+     * far slower than a real server, Lua especially; run against Redis for numbers to compare.
+     */
+    @Test
+    @Tag("benchmark")
+    void addThroughputUnderConcurrency() throws Exception {
+        // Warm-up
+        addConcurrently(cartStore, transactionTemplate, 8, 1000, 200);
+
+        CartStoreTestSupport.Run run = addConcurrently(cartStore, transactionTemplate, 8, 1000, 500);
+        System.out.printf("Redis cart store: %d adds by 8 threads over 1000 carts in %d ms, %d adds/s%n",
+                run.operations(), run.millis(), run.perSecond());
+
+        while (redisTemplate.opsForSet().size("cart:dirty") > 0) {
+            cartStore.flush();
+        }
+        long written = rows.values().stream().mapToLong(CartStoreTestSupport::quantityOf).sum();
+        assertThat(written).isEqualTo(8L * 200 + run.operations());
+    }
+}
@@ -0,0 +1,162 @@
+package com.shopsmart.service;
+
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Customer;
+import com.shopsmart.entity.Product;
+import com.shopsmart.serviceImpl.CheckoutSliceTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * reserveAll on its own, and the one-time backfill of holds for cart lines filled before
+ * reservations, when stock was taken off the product row as items were added.
+ */
+class StockReservationServiceTest extends CheckoutSliceTest {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @BeforeEach
+    void forgetBackfill() {
+        jdbcTemplate.update("DELETE FROM data_migration");
+    }
+
+    @Test
+    void legacyLinesGetDeductedHoldsOnce() {
+        Product product = product(category(), 10);
+        Customer legacy = customer();
+        legacyLine(legacy, product, 3);
+        Customer current = customer();
+        cartService.addProductToCart(current.getId(), product.getId(), 2L);
+
+        stockReservationService.backfillLegacyCartHolds();
+
+        assertThat(hold(legacy, product)).containsEntry("quantity", 3L).containsEntry("deducted", true);
+        assertThat(hold(current, product)).containsEntry("quantity", 2L).containsEntry("deducted", false);
+        assertThat(stockOf(product.getId())).isEqualTo(7);
+        assertThat(stockReservationService.getAvailable(product.getId())).isEqualTo(5);
+
+        // The current cart's hold expires and is swept; a second run must not take it for a legacy line
+        jdbcTemplate.update("DELETE FROM stock_reservation WHERE cart_id = ?", cartId(current));
+        stockReservationService.backfillLegacyCartHolds();
+
+        assertThat(holds(current, product)).isEmpty();
+        assertThat(hold(legacy, product)).containsEntry("quantity", 3L);
+        assertThat(stockOf(product.getId())).isEqualTo(7);
+    }
+
+    @Test
+    void backfilledCartChecksOutWithoutTakingStockAgain() {
+        Product product = product(category(), 10);
+        Customer legacy = customer();
+        legacyLine(legacy, product, 3);
+
+        stockReservationService.backfillLegacyCartHolds();
+        orderService.placeOrder(legacy.getId());
+
+        assertThat(stockOf(product.getId())).isEqualTo(7);
+        assertThat(holds(legacy, product)).isEmpty();
+    }
+
+    @Test
+    void expiredBackfilledHoldGoesBackToStock() {
+        Product product = product(category(), 10);
+        Customer legacy = customer();
+        legacyLine(legacy, product, 3);
+
+        stockReservationService.backfillLegacyCartHolds();
+        jdbcTemplate.update("UPDATE stock_reservation SET expires_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP)"
+                + " WHERE cart_id = ?", cartId(legacy));
+        stockReservationService.sweepExpired();
+
+        assertThat(stockOf(product.getId())).isEqualTo(10);
+        assertThat(holds(legacy, product)).isEmpty();
+    }
+
+    @Test
+    void reserveAllWritesNoHoldWhenAnyLineIsShort() {
+        Category category = category();
+        Product plenty = product(category, 10);
+        Product scarce = product(category, 3);
+        Product fresh = product(category, 10);
+        Customer customer = customer();
+        cartService.addProductToCart(customer.getId(), plenty.getId(), 2L);
+        Long cartId = cartId(customer);
+
+        List<Long> shortOfStock = transactionTemplate.execute(status -> {
+            List<Long> failed = stockReservationService.reserveAll(cartId,
+                    Map.of(plenty.getId(), 5L, scarce.getId(), 4L, fresh.getId(), 1L));
+            // Nothing was written before the shortfall was found, even inside the transaction
+            assertThat(holdsOf(cartId)).isEqualTo(Map.of(plenty.getId(), 2L));
+            status.setRollbackOnly();
+            return failed;
+        });
+
+        assertThat(shortOfStock).containsExactly(scarce.getId());
+        assertThat(holdsOf(cartId)).isEqualTo(Map.of(plenty.getId(), 2L));
+        assertThat(stockReservationService.getAvailable(plenty.getId())).isEqualTo(8);
+        assertThat(stockReservationService.getAvailable(scarce.getId())).isEqualTo(3);
+        assertThat(stockReservationService.getAvailable(fresh.getId())).isEqualTo(10);
+    }
+
+    @Test
+    void reserveAllRaisesLowersAndReleasesInOneCall() {
+        Category category = category();
+        Product raised = product(category, 10);
+        Product lowered = product(category, 10);
+        Product released = product(category, 10);
+        Customer customer = customer();
+        cartService.addProductToCart(customer.getId(), raised.getId(), 1L);
+        cartService.addProductToCart(customer.getId(), lowered.getId(), 5L);
+        cartService.addProductToCart(customer.getId(), released.getId(), 2L);
+        Long cartId = cartId(customer);
+
+        List<Long> failed = transactionTemplate.execute(status -> stockReservationService.reserveAll(cartId,
+                Map.of(raised.getId(), 10L, lowered.getId(), 1L, released.getId(), 0L)));
+
+        assertThat(failed).isEmpty();
+        assertThat(holdsOf(cartId)).isEqualTo(Map.of(raised.getId(), 10L, lowered.getId(), 1L));
+        assertThat(stockReservationService.getAvailable(raised.getId())).isZero();
+        assertThat(stockReservationService.getAvailable(released.getId())).isEqualTo(10);
+    }
+
+    // A line as the pre-reservation cart left it: stock taken off the row, no hold
+    private void legacyLine(Customer customer, Product product, long quantity) {
+        cartService.addProductToCart(customer.getId(), product.getId(), quantity);
+        jdbcTemplate.update("DELETE FROM stock_reservation WHERE cart_id = ?", cartId(customer));
+        jdbcTemplate.update("UPDATE product SET stock_quantity = stock_quantity - ? WHERE product_id = ?",
+                quantity, product.getId());
+    }
+
+    private Long cartId(Customer customer) {
+        return jdbcTemplate.queryForObject("SELECT id FROM carts WHERE customer_id = ?", Long.class, customer.getId());
+    }
+
+    private Map<Long, Long> holdsOf(Long cartId) {
+        Map<Long, Long> holds = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, quantity FROM stock_reservation WHERE cart_id = ?",
+                rs -> {
+                    holds.put(rs.getLong(1), rs.getLong(2));
+                },
+                cartId);
+        return holds;
+    }
+
+    private Map<String, Object> hold(Customer customer, Product product) {
+        List<Map<String, Object>> holds = holds(customer, product);
+        assertThat(holds).hasSize(1);
+        return holds.get(0);
+    }
+
+    private List<Map<String, Object>> holds(Customer customer, Product product) {
+        return jdbcTemplate.queryForList("SELECT quantity, deducted FROM stock_reservation WHERE cart_id = ? AND product_id = ?",
+                cartId(customer), product.getId());
+    }
+}
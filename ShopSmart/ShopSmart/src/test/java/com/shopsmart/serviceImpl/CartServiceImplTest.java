@@ -0,0 +1,131 @@
+package com.shopsmart.serviceImpl;
+
+import com.shopsmart.dto.CartDTO;
+import com.shopsmart.dto.CartItemDTO;
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Customer;
+import com.shopsmart.entity.Product;
+import com.shopsmart.exception.ResourceNotFoundException;
+import com.shopsmart.service.StockReservationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * applyCartChanges takes each change's quantity as a delta on the line, and the batch stands or
+ * falls as a whole: lines, totals and stock holds all move together.
+ */
+class CartServiceImplTest extends CheckoutSliceTest {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = category();
+    }
+
+    @Test
+    void mixedBatchAddsAndRemovesByDelta() {
+        Customer customer = customer();
+        Product kept = product(category, 10);
+        Product emptied = product(category, 10);
+        Product added = product(category, 10);
+        cartService.addProductToCart(customer.getId(), kept.getId(), 3L);
+        cartService.addProductToCart(customer.getId(), emptied.getId(), 2L);
+
+        // Two changes to the same product are summed: -1 then +2 is +1
+        CartDTO cart = cartService.applyCartChanges(customer.getId(), List.of(
+                change(kept, -1), change(emptied, -2), change(added, 4), change(kept, 2)));
+
+        Map<Long, Long> expected = Map.of(kept.getId(), 4L, added.getId(), 4L);
+        assertThat(lines(cart)).isEqualTo(expected);
+        assertThat(lines(cartService.getCartByCustomerId(customer.getId()))).isEqualTo(expected);
+        assertThat(cart.getTotalPrice()).isEqualByComparingTo(BigDecimal.valueOf(80));
+        assertThat(holds(cart.getId())).isEqualTo(expected);
+    }
+
+    @Test
+    void removingMoreThanTheLineHoldsDropsTheLine() {
+        Customer customer = customer();
+        Product product = product(category, 10);
+        Product other = product(category, 10);
+        cartService.addProductToCart(customer.getId(), product.getId(), 2L);
+        cartService.addProductToCart(customer.getId(), other.getId(), 1L);
+
+        CartDTO cart = cartService.applyCartChanges(customer.getId(), List.of(change(product, -5)));
+
+        assertThat(lines(cart)).isEqualTo(Map.of(other.getId(), 1L));
+        assertThat(cart.getTotalPrice()).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(holds(cart.getId())).isEqualTo(Map.of(other.getId(), 1L));
+        assertThat(stockReservationService.getAvailable(product.getId())).isEqualTo(10);
+    }
+
+    @Test
+    void removingAProductNotInTheCartChangesNothing() {
+        Customer customer = customer();
+        Product inCart = product(category, 10);
+        Product notInCart = product(category, 10);
+        CartDTO before = cartService.addProductToCart(customer.getId(), inCart.getId(), 2L);
+
+        assertThatThrownBy(() -> cartService.applyCartChanges(customer.getId(),
+                List.of(change(inCart, 1), change(notInCart, -1))))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        assertThat(lines(cartService.getCartByCustomerId(customer.getId()))).isEqualTo(Map.of(inCart.getId(), 2L));
+        assertThat(holds(before.getId())).isEqualTo(Map.of(inCart.getId(), 2L));
+    }
+
+    @Test
+    void batchWithOneLineShortOfStockRollsBackEveryLine() {
+        Customer customer = customer();
+        Product plenty = product(category, 10);
+        Product scarce = product(category, 3);
+        Product fresh = product(category, 10);
+        CartDTO before = cartService.addProductToCart(customer.getId(), plenty.getId(), 2L);
+
+        assertThatThrownBy(() -> cartService.applyCartChanges(customer.getId(),
+                List.of(change(plenty, 3), change(fresh, 1), change(scarce, 4))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(scarce.getName());
+
+        CartDTO after = cartService.getCartByCustomerId(customer.getId());
+        assertThat(lines(after)).isEqualTo(Map.of(plenty.getId(), 2L));
+        assertThat(after.getTotalPrice()).isEqualByComparingTo(before.getTotalPrice());
+        assertThat(holds(before.getId())).isEqualTo(Map.of(plenty.getId(), 2L));
+        assertThat(stockOf(plenty.getId())).isEqualTo(10);
+        assertThat(stockOf(scarce.getId())).isEqualTo(3);
+    }
+
+    private static CartItemDTO change(Product product, long delta) {
+        CartItemDTO change = new CartItemDTO();
+        change.setProductId(product.getId());
+        change.setQuantity(delta);
+        return change;
+    }
+
+    private static Map<Long, Long> lines(CartDTO cart) {
+        return cart.getCartItems().stream().collect(Collectors.toMap(CartItemDTO::getProductId, CartItemDTO::getQuantity));
+    }
+
+    private Map<Long, Long> holds(Long cartId) {
+        Map<Long, Long> holds = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, quantity FROM stock_reservation WHERE cart_id = ?",
+                rs -> {
+                    holds.put(rs.getLong(1), rs.getLong(2));
+                },
+                cartId);
+        return holds;
+    }
+}
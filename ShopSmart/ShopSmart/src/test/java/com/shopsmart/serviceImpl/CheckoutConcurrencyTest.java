@@ -0,0 +1,78 @@
+package com.shopsmart.serviceImpl;
+
+import com.shopsmart.entity.Customer;
+import com.shopsmart.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many customers racing to add the last units of one product to their carts and check out. Every
+ * attempt that fails must fail cleanly (not enough stock), and the product row must end up at
+ * exactly its initial stock minus the units sold, never below zero.
+ */
+class CheckoutConcurrencyTest extends CheckoutSliceTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 3;
+    private static final long INITIAL_STOCK = 20;
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        Product product = product(category(), INITIAL_STOCK);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            customers.add(customer());
+        }
+
+        AtomicInteger checkouts = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (Customer customer : customers) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                        try {
+                            cartService.addProductToCart(customer.getId(), product.getId(), 1L);
+                        } catch (IllegalArgumentException e) {
+                            outOfStock.incrementAndGet();
+                            continue;
+                        }
+                        orderService.placeOrder(customer.getId());
+                        checkouts.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                // Anything but a clean "not enough stock" fails the test here
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long finalStock = stockOf(product.getId());
+
+        assertThat(finalStock).isGreaterThanOrEqualTo(0);
+        assertThat((long) checkouts.get()).isLessThanOrEqualTo(INITIAL_STOCK);
+        assertThat(finalStock).isEqualTo(INITIAL_STOCK - checkouts.get());
+        assertThat(checkouts.get() + outOfStock.get()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD);
+        // Holds were all either committed or refused; nothing is left reserved
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reservation WHERE product_id = ?",
+                Long.class, product.getId())).isZero();
+    }
+}
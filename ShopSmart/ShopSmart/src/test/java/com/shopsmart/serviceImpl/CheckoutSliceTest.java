@@ -0,0 +1,107 @@
+package com.shopsmart.serviceImpl;
+
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Customer;
+import com.shopsmart.entity.Product;
+import com.shopsmart.repository.CategoryRepository;
+import com.shopsmart.repository.CustomerRepository;
+import com.shopsmart.repository.ProductRepository;
+import com.shopsmart.service.CartPersistence;
+import com.shopsmart.service.DiscountService;
+import com.shopsmart.service.HotInventoryService;
+import com.shopsmart.service.InventoryService;
+import com.shopsmart.service.JpaCartStore;
+import com.shopsmart.service.ProductIndexOutboxService;
+import com.shopsmart.service.ProductService;
+import com.shopsmart.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The cart and checkout services against H2 with the default (jpa) cart store, committing for
+ * real so tests see what concurrent transactions see. Search, cache and discount collaborators
+ * are mocked; no product is in hot mode.
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CartServiceImpl.class, OrderServiceImpl.class, StockReservationService.class, InventoryService.class,
+        JpaCartStore.class, CartPersistence.class})
+public abstract class CheckoutSliceTest {
+
+    @MockitoBean
+    protected ProductService productService;
+
+    @MockitoBean
+    protected DiscountService discountService;
+
+    @MockitoBean
+    protected HotInventoryService hotInventoryService;
+
+    @MockitoBean
+    protected ProductIndexOutboxService productIndexOutboxService;
+
+    @Autowired
+    protected CartServiceImpl cartService;
+
+    @Autowired
+    protected OrderServiceImpl orderService;
+
+    @Autowired
+    protected ProductRepository productRepository;
+
+    @Autowired
+    protected CustomerRepository customerRepository;
+
+    @Autowired
+    protected CategoryRepository categoryRepository;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+
+    protected Customer customer() {
+        String name = "customer-" + UUID.randomUUID();
+        Customer customer = new Customer();
+        customer.setUsername(name);
+        customer.setPassword("secret");
+        customer.setEmail(name + "@shopsmart.test");
+        return customerRepository.save(customer);
+    }
+
+    protected Category category() {
+        Category category = new Category();
+        category.setName("category-" + UUID.randomUUID());
+        return categoryRepository.save(category);
+    }
+
+    protected Product product(Category category, long stock) {
+        Product product = new Product();
+        product.setName("product-" + UUID.randomUUID());
+        product.setDescription("Checkout test product");
+        product.setImages(List.of());
+        product.setPrice(BigDecimal.TEN);
+        product.setStockQuantity(stock);
+        product.setCategory(category);
+        return productRepository.save(product);
+    }
+
+    protected long stockOf(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM product WHERE product_id = ?", Long.class, productId);
+    }
+}
@@ -0,0 +1,211 @@
+package com.shopsmart.serviceImpl;
+
+import com.shopsmart.dto.CartDTO;
+import com.shopsmart.entity.Category;
+import com.shopsmart.entity.Customer;
+import com.shopsmart.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checkout and cart reads must cost the same number of statements for a 1-line cart as for a 40-line one. Hibernate
+ * statistics only see the JPA side, while stock is locked and decremented through JdbcTemplate, so
+ * every statement execution on the DataSource is counted as well. Id sequence calls are left out of both:
+ * they come once per 50 ids (pooled sequences), not per line.
+ */
+class CheckoutStatementCountTest extends CheckoutSliceTest {
+
+    private static final int LARGE = 40;
+
+    @TestConfiguration
+    static class CountingDataSourceConfig {
+
+        @Bean
+        static StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+    }
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        category = category();
+    }
+
+    @Test
+    void placeOrderIsConstantInCartLines() {
+        // First checkout warms up whatever is loaded once per session factory
+        checkout(1);
+
+        Counts small = checkout(1);
+        Counts large = checkout(LARGE);
+        assertThat(large.executed()).isEqualTo(small.executed());
+        assertThat(large.hibernate()).isEqualTo(small.hibernate());
+    }
+
+    /**
+     * A cart read is one query joining the cart to its lines, however many lines there are.
+     * Product details come from ProductService, which is mocked in this slice.
+     */
+    @Test
+    void cartReadIsOneStatement() {
+        Customer small = filledCart(1);
+        Customer large = filledCart(LARGE);
+        // Warm-up, as for checkout
+        cartService.getCartByCustomerId(small.getId());
+
+        Counts smallRead = read(small, 1);
+        Counts largeRead = read(large, LARGE);
+        assertThat(smallRead.executed()).isEqualTo(1);
+        assertThat(largeRead.executed()).isEqualTo(1);
+        assertThat(largeRead.hibernate()).isEqualTo(smallRead.hibernate());
+    }
+
+    private Counts read(Customer customer, int lines) {
+        statistics.clear();
+        statementCounter.start();
+        CartDTO cart = cartService.getCartByCustomerId(customer.getId());
+        long executed = statementCounter.stop();
+        assertThat(cart.getCartItems()).hasSize(lines);
+        return new Counts(executed, statistics.getPrepareStatementCount() - statementCounter.sequenceCalls());
+    }
+
+    private Customer filledCart(int lines) {
+        Customer customer = customer();
+        for (int i = 0; i < lines; i++) {
+            cartService.addProductToCart(customer.getId(), product(category, 10).getId(), 2L);
+        }
+        return customer;
+    }
+
+    private record Counts(long executed, long hibernate) {
+    }
+
+    private Counts checkout(int lines) {
+        Customer customer = customer();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            products.add(product(category, 10));
+        }
+        for (Product product : products) {
+            cartService.addProductToCart(customer.getId(), product.getId(), 2L);
+        }
+
+        statistics.clear();
+        statementCounter.start();
+        orderService.placeOrder(customer.getId());
+        long executed = statementCounter.stop();
+        long hibernate = statistics.getPrepareStatementCount() - statementCounter.sequenceCalls();
+
+        for (Product product : products) {
+            assertThat(stockOf(product.getId())).isEqualTo(8);
+        }
+        return new Counts(executed, hibernate);
+    }
+
+    /**
+     * Wraps the DataSource so each statement execution while started is counted.
+     */
+    static class StatementCounter implements BeanPostProcessor {
+
+        private final AtomicBoolean counting = new AtomicBoolean();
+        private final AtomicLong executed = new AtomicLong();
+        private final AtomicLong sequenceCalls = new AtomicLong();
+
+        void start() {
+            executed.set(0);
+            sequenceCalls.set(0);
+            counting.set(true);
+        }
+
+        long stop() {
+            counting.set(false);
+            return executed.get();
+        }
+
+        long sequenceCalls() {
+            return sequenceCalls.get();
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return proxy(DataSource.class, dataSource, (target, method, args) ->
+                        method.getName().equals("getConnection")
+                                ? proxy(Connection.class, (Connection) invoke(target, method, args), this::onConnection)
+                                : invoke(target, method, args));
+            }
+            return bean;
+        }
+
+        private Object onConnection(Object connection, Method method, Object[] args) throws Throwable {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                // prepareStatement/prepareCall carry their SQL; plain statements get it on execute
+                String preparedSql = args != null && args.length > 0 && args[0] instanceof String sql ? sql : null;
+                Class<?> type = method.getReturnType();
+                return proxy(type, statement, (target, statementMethod, statementArgs) -> {
+                    if (statementMethod.getName().startsWith("execute")) {
+                        String sql = preparedSql != null ? preparedSql
+                                : statementArgs != null && statementArgs.length > 0 ? String.valueOf(statementArgs[0]) : "";
+                        if (counting.get()) {
+                            (sql.toLowerCase(Locale.ROOT).contains("next value for") ? sequenceCalls : executed).incrementAndGet();
+                        }
+                    }
+                    return invoke(target, statementMethod, statementArgs);
+                });
+            }
+            return result;
+        }
+
+        private interface Handler<T> {
+            Object handle(T target, Method method, Object[] args) throws Throwable;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<?> type, T target, Handler<T> handler) {
+            InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(target, method, args);
+            return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}